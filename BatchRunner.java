@@ -0,0 +1,430 @@
+package simulador;
+
+import core.CPU;
+import core.CPUPool;
+import core.Memory;
+import core.RegisterFile;
+import utils.Loader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Executa muitos programas assembly em paralelo, um CPU isolado por job.
+ *
+ * Uso:
+ *   java simulador.Main --batch <diretório|manifesto> [--out arquivo.json|arquivo.csv]
+ *        [--threads n] [--limit n] [--memory n] [--registers n]
+ *
+ * Fonte dos jobs:
+ *  - diretório: cada arquivo .asm é um job, sem entradas;
+ *  - manifesto: cada linha é "programa.asm [entrada...]", com caminhos relativos ao manifesto.
+ *    As entradas são "%regN=valor" (registrador inicial) ou "endereço=valor" (palavra na memória).
+ *    Linhas vazias e começando com '#' são ignoradas. O mesmo programa pode aparecer em
+ *    várias linhas com entradas diferentes; ele é montado uma única vez.
+ *
+ * Os jobs rodam num pool fixo de threads (por padrão, uma por núcleo da máquina). Cada job
+ * usa uma CPU/Memory só sua enquanto roda (tirada de um CPUPool e resetada ao final), então
+ * não há estado compartilhado entre jobs além do cache de programas montados (somente leitura). O resultado sai em CSV (padrão, na saída
+ * padrão) ou JSON (se o arquivo de saída terminar em .json), na ordem do manifesto.
+ */
+public class BatchRunner {
+
+    // Um programa e um conjunto de entradas
+    static final class Job {
+        final int index;
+        final Path program;
+        final String inputs;                     // Texto original das entradas (para o relatório)
+        final Map<Integer, Integer> registers;   // id do registrador -> valor inicial
+        final Map<Integer, Integer> memoryWords; // endereço -> valor inicial
+
+        Job(int index, Path program, String inputs, Map<Integer, Integer> registers, Map<Integer, Integer> memoryWords) {
+            this.index = index;
+            this.program = program;
+            this.inputs = inputs;
+            this.registers = registers;
+            this.memoryWords = memoryWords;
+        }
+    }
+
+    // Resultado de um job
+    static final class Result {
+        final Job job;
+        String status;       // Motivo da parada (CPU.STOP_*) ou "error"
+        long instructions;
+        long elapsedNanos;
+        int[] registers;     // REG0..REGn-1 ao final, null em caso de erro
+        int imulResult;
+        String error;
+
+        Result(Job job) {
+            this.job = job;
+        }
+    }
+
+    private final int memorySize;
+    private final int registerCount;
+    private final long instructionLimit;
+    private final int threads;
+
+    // Programas montados, compartilhados (somente leitura) entre os jobs
+    private final Map<Path, int[]> assembled = new ConcurrentHashMap<>();
+    private final int programLoadAddress;
+    private final CPUPool cpus; // CPUs reaproveitadas entre jobs (reset em vez de construir)
+
+    public BatchRunner(int memorySize, int registerCount, long instructionLimit, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Quantidade de threads deve ser positiva: " + threads);
+        }
+        this.memorySize = memorySize;
+        this.registerCount = registerCount;
+        this.instructionLimit = instructionLimit;
+        this.threads = threads;
+        // O layout da memória é o mesmo em todos os jobs: o microprograma e o endereço
+        // de carga são calculados uma vez só.
+        Memory layout = new Memory(memorySize, registerCount);
+        this.cpus = new CPUPool(memorySize, registerCount, Main.generateImulMicroprogram(layout), threads);
+        // O programa vai depois de todas as áreas reservadas: logo após o microprograma ele
+        // sobrescreveria a área de salvamento e o resultado do IMUL.
+        this.programLoadAddress = layout.getVariablesStartAddress();
+    }
+
+    /**
+     * Executa os jobs no pool e devolve os resultados na mesma ordem dos jobs.
+     */
+    public List<Result> run(List<Job> jobs) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                futures.add(pool.submit(() -> runJob(job)));
+            }
+            List<Result> results = new ArrayList<>(jobs.size());
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // runJob já trata os erros do programa; aqui só chegam erros inesperados
+                    throw new IllegalStateException("Falha inesperada no lote: " + e.getCause(), e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Result runJob(Job job) {
+        Result result = new Result(job);
+        long begin = System.nanoTime();
+        CPU cpu = cpus.acquire();
+        try {
+            int[] code = assemble(job.program);
+            if (code.length > memorySize - programLoadAddress) {
+                throw new IllegalArgumentException("Programa com " + code.length + " palavras não cabe na memória a partir de "
+                                                   + programLoadAddress);
+            }
+
+            cpu.setInstructionLimit(instructionLimit);
+            cpu.loadProgram(code, programLoadAddress);
+            for (Map.Entry<Integer, Integer> e : job.registers.entrySet()) {
+                cpu.setRegisterValue(e.getKey(), e.getValue());
+            }
+            Memory memory = cpu.getMemory();
+            for (Map.Entry<Integer, Integer> e : job.memoryWords.entrySet()) {
+                memory.write(e.getKey(), e.getValue());
+            }
+            if (!job.memoryWords.isEmpty()) {
+                cpu.invalidateDecodedCode(); // Palavras do manifesto podem alterar o próprio código
+            }
+
+            cpu.start();
+
+            result.status = cpu.getStopReason();
+            result.instructions = cpu.getInstructionCount();
+            result.registers = new int[registerCount];
+            for (int i = 0; i < registerCount; i++) {
+                result.registers[i] = cpu.getRegisterValue(i);
+            }
+            result.imulResult = memory.read(memory.getImulResultAddress());
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            // Erro de montagem, de entrada ou de execução: fica registrado no resultado do job
+            result.status = "error";
+            result.error = e.getMessage();
+        } finally {
+            if (cpu.isRunning()) {
+                cpu.stop(); // Exceção no meio da execução
+            }
+            cpus.release(cpu);
+        }
+        result.elapsedNanos = System.nanoTime() - begin;
+        return result;
+    }
+
+    private int[] assemble(Path program) throws IOException {
+        int[] code = assembled.get(program);
+        if (code == null) {
+            Loader loader = new Loader(programLoadAddress, registerCount);
+            loader.setVerbose(false);
+            code = loader.loadAssembly(program.toString());
+            // Se duas threads montarem o mesmo programa ao mesmo tempo, fica a primeira cópia
+            int[] previous = assembled.putIfAbsent(program, code);
+            if (previous != null) {
+                code = previous;
+            }
+        }
+        return code;
+    }
+
+    // --- Leitura dos jobs ---
+
+    /**
+     * Lê os jobs de um diretório (todos os .asm, em ordem alfabética) ou de um manifesto.
+     */
+    public List<Job> readJobs(Path source) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.list(source)) {
+                files.filter(p -> p.getFileName().toString().endsWith(".asm"))
+                     .sorted()
+                     .forEach(p -> jobs.add(new Job(jobs.size(), p, "", Map.of(), Map.of())));
+            }
+            return jobs;
+        }
+
+        Path base = source.toAbsolutePath().getParent();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+", 2);
+                Path program = base.resolve(parts[0]).normalize();
+                String inputs = parts.length > 1 ? parts[1] : "";
+                Map<Integer, Integer> regs = new LinkedHashMap<>();
+                Map<Integer, Integer> words = new LinkedHashMap<>();
+                if (!inputs.isEmpty()) {
+                    for (String input : inputs.split("\\s+")) {
+                        parseInput(input, regs, words, source, lineNumber);
+                    }
+                }
+                jobs.add(new Job(jobs.size(), program, inputs, regs, words));
+            }
+        }
+        return jobs;
+    }
+
+    private void parseInput(String input, Map<Integer, Integer> regs, Map<Integer, Integer> words,
+                            Path source, int lineNumber) {
+        int eq = input.indexOf('=');
+        if (eq <= 0) {
+            throw new IllegalArgumentException(source + ":" + lineNumber + ": entrada inválida (esperado alvo=valor): " + input);
+        }
+        String target = input.substring(0, eq).toLowerCase();
+        try {
+            int value = Integer.parseInt(input.substring(eq + 1));
+            if (target.startsWith("%reg")) {
+                int id = Integer.parseInt(target.substring(4));
+                if (id < 0 || id >= registerCount) {
+                    throw new IllegalArgumentException(source + ":" + lineNumber + ": registrador inválido: " + target);
+                }
+                regs.put(id, value);
+            } else {
+                int address = Integer.parseInt(target);
+                if (address < 0 || address >= memorySize) {
+                    throw new IllegalArgumentException(source + ":" + lineNumber + ": endereço fora da memória: " + target);
+                }
+                words.put(address, value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(source + ":" + lineNumber + ": entrada inválida: " + input);
+        }
+    }
+
+    // --- Relatórios ---
+
+    public void writeCsv(List<Result> results, PrintWriter out) {
+        StringBuilder header = new StringBuilder("job,program,inputs,status,instructions,elapsed_us");
+        for (int i = 0; i < registerCount; i++) {
+            header.append(",reg").append(i);
+        }
+        header.append(",imul_result,error");
+        out.println(header);
+        for (Result r : results) {
+            StringBuilder row = new StringBuilder();
+            row.append(r.job.index).append(',')
+               .append(csv(r.job.program.toString())).append(',')
+               .append(csv(r.job.inputs)).append(',')
+               .append(r.status).append(',')
+               .append(r.instructions).append(',')
+               .append(r.elapsedNanos / 1000);
+            for (int i = 0; i < registerCount; i++) {
+                row.append(',');
+                if (r.registers != null) {
+                    row.append(r.registers[i]);
+                }
+            }
+            row.append(',');
+            if (r.registers != null) {
+                row.append(r.imulResult);
+            }
+            row.append(',').append(r.error == null ? "" : csv(r.error));
+            out.println(row);
+        }
+    }
+
+    public void writeJson(List<Result> results, PrintWriter out) {
+        out.println("[");
+        for (int k = 0; k < results.size(); k++) {
+            Result r = results.get(k);
+            StringBuilder obj = new StringBuilder("  {");
+            obj.append("\"job\": ").append(r.job.index)
+               .append(", \"program\": ").append(json(r.job.program.toString()))
+               .append(", \"inputs\": ").append(json(r.job.inputs))
+               .append(", \"status\": ").append(json(r.status))
+               .append(", \"instructions\": ").append(r.instructions)
+               .append(", \"elapsed_us\": ").append(r.elapsedNanos / 1000);
+            if (r.registers != null) {
+                obj.append(", \"registers\": [");
+                for (int i = 0; i < r.registers.length; i++) {
+                    obj.append(i == 0 ? "" : ", ").append(r.registers[i]);
+                }
+                obj.append("], \"imul_result\": ").append(r.imulResult);
+            }
+            if (r.error != null) {
+                obj.append(", \"error\": ").append(json(r.error));
+            }
+            obj.append(k + 1 < results.size() ? "}," : "}");
+            out.println(obj);
+        }
+        out.println("]");
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String json(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Uso: --batch <diretório|manifesto> [--out arquivo.json|arquivo.csv] "
+                    + "[--threads n] [--limit n] [--memory n] [--registers n]");
+            return;
+        }
+        Path source = null;
+        Path outFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long limit = CPU.DEFAULT_INSTRUCTION_LIMIT;
+        int memorySize = 1024;
+        int registerCount = RegisterFile.DEFAULT_GENERAL_PURPOSE;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":       outFile = Paths.get(args[++i]); break;
+                    case "--threads":   threads = Integer.parseInt(args[++i]); break;
+                    case "--limit":     limit = Long.parseLong(args[++i]); break;
+                    case "--memory":    memorySize = Integer.parseInt(args[++i]); break;
+                    case "--registers": registerCount = Integer.parseInt(args[++i]); break;
+                    default:
+                        if (source != null) {
+                            throw new IllegalArgumentException("Argumento inesperado: " + args[i]);
+                        }
+                        source = Paths.get(args[i]);
+                }
+            }
+            if (source == null) {
+                throw new IllegalArgumentException("Informe um diretório ou manifesto.");
+            }
+
+            BatchRunner runner = new BatchRunner(memorySize, registerCount, limit, threads);
+            List<Job> jobs = runner.readJobs(source);
+
+            long begin = System.nanoTime();
+            List<Result> results = runner.run(jobs);
+            long elapsed = System.nanoTime() - begin;
+
+            boolean json = outFile != null && outFile.toString().toLowerCase().endsWith(".json");
+            PrintWriter out = outFile == null
+                    ? new PrintWriter(System.out)
+                    : new PrintWriter(Files.newBufferedWriter(outFile, StandardCharsets.UTF_8));
+            try {
+                if (json) {
+                    runner.writeJson(results, out);
+                } else {
+                    runner.writeCsv(results, out);
+                }
+            } finally {
+                out.flush();
+                if (outFile != null) {
+                    out.close();
+                }
+            }
+
+            // Resumo no stderr, para não misturar com o CSV na saída padrão
+            long totalInstructions = 0;
+            int failures = 0;
+            for (Result r : results) {
+                totalInstructions += r.instructions;
+                if (!CPU.STOP_HALT.equals(r.status)) {
+                    failures++;
+                }
+            }
+            double seconds = elapsed / 1e9;
+            System.err.printf("Lote: %d jobs (%d sem HALT) em %.3f s com %d threads: %.1f jobs/s, %.2f MIPS%n",
+                              results.size(), failures, seconds, threads,
+                              results.size() / seconds, totalInstructions / seconds / 1e6);
+        } catch (IOException e) {
+            System.err.println("Erro de E/S no lote: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro de configuração do lote: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Lote interrompido.");
+        }
+    }
+}
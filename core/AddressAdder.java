@@ -0,0 +1,35 @@
+package core;
+
+// Somador de endereços dedicado, separado da ULA.
+// Usado para atualizar ponteiros (como o StackTop) sem passar pela ULA,
+// então CALL/RET e push/pop não alteram as flags Z e N do programa.
+public class AddressAdder {
+
+    /**
+     * Soma um deslocamento a um endereço base.
+     * @param base   O endereço base.
+     * @param offset O deslocamento (pode ser negativo).
+     * @return O endereço resultante.
+     */
+    public int add(int base, int offset) {
+        return base + offset;
+    }
+
+    /**
+     * Avança o endereço uma posição.
+     * @param address O endereço atual.
+     * @return address + 1.
+     */
+    public int increment(int address) {
+        return address + 1;
+    }
+
+    /**
+     * Recua o endereço uma posição.
+     * @param address O endereço atual.
+     * @return address - 1.
+     */
+    public int decrement(int address) {
+        return address - 1;
+    }
+}
@@ -0,0 +1,55 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Preditor bimodal: uma tabela de contadores saturados de 2 bits indexada pelos bits
+ * baixos do PC. 0 e 1 preveem não tomado, 2 e 3 tomado; cada resultado move o contador um
+ * passo, então um laço só erra na saída (e não na volta seguinte, como um de 1 bit).
+ */
+public class BimodalPredictor implements BranchPredictor {
+    static final byte WEAKLY_NOT_TAKEN = 1;
+
+    private final byte[] counters;
+    private final int mask;
+
+    /**
+     * @param indexBits log2 da quantidade de contadores.
+     */
+    public BimodalPredictor(int indexBits) {
+        if (indexBits < 0 || indexBits > 24) {
+            throw new IllegalArgumentException("Tamanho de tabela inválido: 2^" + indexBits);
+        }
+        this.counters = new byte[1 << indexBits];
+        this.mask = counters.length - 1;
+        reset();
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        return counters[pc & mask] >= 2;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        counters[pc & mask] = train(counters[pc & mask], taken);
+    }
+
+    /** Um passo de um contador saturado de 2 bits. */
+    static byte train(byte counter, boolean taken) {
+        if (taken) {
+            return counter < 3 ? (byte) (counter + 1) : counter;
+        }
+        return counter > 0 ? (byte) (counter - 1) : counter;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(counters, WEAKLY_NOT_TAKEN);
+    }
+
+    @Override
+    public String getName() {
+        return "bimodal (" + counters.length + " contadores)";
+    }
+}
@@ -0,0 +1,286 @@
+package core;
+
+import model.Instruction;
+import java.util.Arrays;
+
+/**
+ * Unidade de previsão de desvios: junta um preditor de direção (BranchPredictor), um BTB
+ * e uma RAS e confere cada previsão contra o desvio que a CPU realmente executou.
+ *
+ * Uma previsão está certa quando a busca seguiria para o PC correto:
+ *  - desvio condicional (jn, jz, jnz, jeq, jgt, jlw): direção prevista pelo preditor;
+ *    se prevê tomado, o destino vem do BTB (sem entrada, a busca segue em sequência);
+ *  - jmp e call: destino do BTB (call também empilha o retorno na RAS);
+ *  - ret: destino desempilhado da RAS.
+ * Trocas de contexto (imul, mret, iret) não passam pela unidade, nem instruções que falharam
+ * (ex: call com a pilha cheia): a CPU não as passa para observe, e os modelos de
+ * temporização as recebem por TimingModel.onFault.
+ *
+ * Pode ser ligada à CPU (só estatísticas, CPU.setBranchPredictionUnit) ou a um modelo de
+ * temporização (PipelineModel, OutOfOrderModel), que passa a pagar a penalidade só nos
+ * erros. Uma mesma unidade não deve ser ligada aos dois ao mesmo tempo: cada desvio seria
+ * visto duas vezes.
+ *
+ * As estatísticas por PC ficam em arrays primitivos do tamanho da memória, para o
+ * relatório mostrar quais desvios (e portanto quais formatos de laço) erram mais.
+ */
+public class BranchPredictionUnit {
+    public static final int DEFAULT_TABLE_BITS = 10;
+    public static final int DEFAULT_BTB_ENTRIES = 256;
+    public static final int DEFAULT_RAS_DEPTH = 16;
+    public static final int DEFAULT_REPORT_SIZE = 10;
+
+    private final BranchPredictor predictor;
+    private final BranchTargetBuffer btb;
+    private final ReturnAddressStack ras;
+
+    // Por PC (índice = endereço da instrução de desvio)
+    private final long[] executedAt;
+    private final long[] takenAt;
+    private final long[] mispredictedAt;
+    private final int[] opcodeAt;
+
+    // Totais
+    private long conditionals;
+    private long conditionalsTaken;
+    private long conditionalMisses;
+    private long directionMisses; // Direção errada (o resto dos erros é falta no BTB)
+    private long jumps;
+    private long jumpMisses;
+    private long returns;
+    private long returnMisses;
+
+    /**
+     * @param predictor  Preditor de direção dos desvios condicionais.
+     * @param btb        Buffer de destinos.
+     * @param ras        Pilha de endereços de retorno.
+     * @param memorySize Tamanho da memória (faixa de PCs das estatísticas por desvio).
+     */
+    public BranchPredictionUnit(BranchPredictor predictor, BranchTargetBuffer btb, ReturnAddressStack ras, int memorySize) {
+        if (memorySize <= 0) {
+            throw new IllegalArgumentException("Tamanho de memória inválido: " + memorySize);
+        }
+        this.predictor = predictor;
+        this.btb = btb;
+        this.ras = ras;
+        this.executedAt = new long[memorySize];
+        this.takenAt = new long[memorySize];
+        this.mispredictedAt = new long[memorySize];
+        this.opcodeAt = new int[memorySize];
+    }
+
+    /** Preditor de torneio (bimodal x gshare), BTB de 256 entradas e RAS de 16. */
+    public static BranchPredictionUnit createDefault(int memorySize) {
+        return new BranchPredictionUnit(TournamentPredictor.createDefault(DEFAULT_TABLE_BITS),
+                                        new BranchTargetBuffer(DEFAULT_BTB_ENTRIES),
+                                        new ReturnAddressStack(DEFAULT_RAS_DEPTH), memorySize);
+    }
+
+    /**
+     * Prevê o desvio em pc, confere com o PC que a execução produziu e treina as tabelas.
+     *
+     * @return true se a previsão estava certa ou se a instrução não é um desvio previsto.
+     */
+    public boolean observe(int pc, Instruction instruction, int nextPc) {
+        int opcode = instruction.getOpcode();
+        int effects = InstructionSet.effectsOf(opcode);
+        if ((effects & (InstructionSet.EFFECT_BRANCH | InstructionSet.EFFECT_JUMP)) == 0
+                || (effects & InstructionSet.EFFECT_SERIAL) != 0) {
+            return true;
+        }
+        boolean taken = nextPc != pc + 1;
+        boolean correct;
+        if ((effects & InstructionSet.EFFECT_BRANCH) != 0) {
+            int target = targetOf(instruction);
+            boolean guess = predictor.predict(pc, target);
+            int predicted = pc + 1;
+            if (guess) {
+                int stored = btb.lookup(pc);
+                if (stored >= 0) {
+                    predicted = stored;
+                }
+            }
+            correct = predicted == nextPc;
+            predictor.update(pc, target, taken);
+            if (taken) {
+                btb.update(pc, nextPc);
+                conditionalsTaken++;
+            }
+            conditionals++;
+            if (!correct) {
+                conditionalMisses++;
+            }
+            if (guess != taken) {
+                directionMisses++;
+            }
+        } else if (opcode == Opcodes.RET) {
+            correct = ras.pop() == nextPc;
+            returns++;
+            if (!correct) {
+                returnMisses++;
+            }
+        } else { // jmp, call: destino fixo na instrução
+            correct = btb.lookup(pc) == nextPc;
+            btb.update(pc, nextPc);
+            if (opcode == Opcodes.CALL) {
+                ras.push(pc + 1);
+            }
+            jumps++;
+            if (!correct) {
+                jumpMisses++;
+            }
+        }
+        if (pc >= 0 && pc < executedAt.length) {
+            executedAt[pc]++;
+            opcodeAt[pc] = opcode;
+            if (taken) {
+                takenAt[pc]++;
+            }
+            if (!correct) {
+                mispredictedAt[pc]++;
+            }
+        }
+        return correct;
+    }
+
+    // Destino de um desvio condicional: o seu operando de memória
+    private static int targetOf(Instruction instruction) {
+        int opcode = instruction.getOpcode();
+        for (int i = InstructionSet.operandCount(opcode) - 1; i >= 0; i--) {
+            if (InstructionSet.operandKind(opcode, i) == InstructionSet.KIND_MEM) {
+                return i == 0 ? instruction.getOperand1() : i == 1 ? instruction.getOperand2() : instruction.getOperand3();
+            }
+        }
+        return -1;
+    }
+
+    /** Esquece o histórico e zera as estatísticas. */
+    public void reset() {
+        predictor.reset();
+        btb.reset();
+        ras.reset();
+        Arrays.fill(executedAt, 0);
+        Arrays.fill(takenAt, 0);
+        Arrays.fill(mispredictedAt, 0);
+        conditionals = 0;
+        conditionalsTaken = 0;
+        conditionalMisses = 0;
+        directionMisses = 0;
+        jumps = 0;
+        jumpMisses = 0;
+        returns = 0;
+        returnMisses = 0;
+    }
+
+    // --- Estatísticas ---
+
+    public BranchPredictor getPredictor() {
+        return predictor;
+    }
+
+    public BranchTargetBuffer getBTB() {
+        return btb;
+    }
+
+    public ReturnAddressStack getRAS() {
+        return ras;
+    }
+
+    public long getConditionals() {
+        return conditionals;
+    }
+
+    public long getConditionalMisses() {
+        return conditionalMisses;
+    }
+
+    public long getDirectionMisses() {
+        return directionMisses;
+    }
+
+    public long getJumps() {
+        return jumps;
+    }
+
+    public long getJumpMisses() {
+        return jumpMisses;
+    }
+
+    public long getReturns() {
+        return returns;
+    }
+
+    public long getReturnMisses() {
+        return returnMisses;
+    }
+
+    /** @return Fração de acertos de todos os desvios previstos (1 se nenhum). */
+    public double getAccuracy() {
+        long total = conditionals + jumps + returns;
+        return total == 0 ? 1 : 1 - (double) (conditionalMisses + jumpMisses + returnMisses) / total;
+    }
+
+    /** @return Fração de acertos dos desvios condicionais (1 se nenhum). */
+    public double getConditionalAccuracy() {
+        return conditionals == 0 ? 1 : 1 - (double) conditionalMisses / conditionals;
+    }
+
+    public long getExecutedAt(int pc) {
+        return executedAt[pc];
+    }
+
+    public long getTakenAt(int pc) {
+        return takenAt[pc];
+    }
+
+    public long getMispredictedAt(int pc) {
+        return mispredictedAt[pc];
+    }
+
+    public void printStatistics() {
+        printStatistics(DEFAULT_REPORT_SIZE);
+    }
+
+    /**
+     * Imprime os totais e os desvios com mais erros.
+     *
+     * @param top Quantidade de desvios listados.
+     */
+    public void printStatistics(int top) {
+        System.out.printf("Previsão de desvios (%s): acerto geral %.4f%n", predictor.getName(), getAccuracy());
+        System.out.printf("  condicionais %d (%d tomados), %d erros (%d de direção), acerto %.4f%n",
+                          conditionals, conditionalsTaken, conditionalMisses, directionMisses, getConditionalAccuracy());
+        System.out.printf("  jmp/call %d, %d erros; ret %d, %d erros; BTB %d entradas (%d acertos, %d faltas); "
+                        + "RAS %d (%d transbordos)%n",
+                          jumps, jumpMisses, returns, returnMisses, btb.getEntries(), btb.getHits(), btb.getMisses(),
+                          ras.getDepth(), ras.getOverflows());
+
+        // Os top desvios com mais erros (inserção ordenada, sem boxing)
+        int[] worst = new int[Math.max(top, 0)];
+        int found = 0;
+        for (int pc = 0; pc < executedAt.length; pc++) {
+            if (executedAt[pc] == 0) {
+                continue;
+            }
+            int i = found < worst.length ? found++ : worst.length;
+            while (i > 0 && mispredictedAt[worst[i - 1]] < mispredictedAt[pc]) {
+                if (i < worst.length) {
+                    worst[i] = worst[i - 1];
+                }
+                i--;
+            }
+            if (i < worst.length) {
+                worst[i] = pc;
+            }
+        }
+        if (found > 0) {
+            System.out.println("  PC      instrução              execuções  tomados    erros  acerto");
+        }
+        for (int k = 0; k < found; k++) {
+            int pc = worst[k];
+            System.out.printf("  %-7d %-22s %9d %7.1f%% %8d  %.4f%n", pc, Opcodes.getInstructionName(opcodeAt[pc]),
+                              executedAt[pc], 100.0 * takenAt[pc] / executedAt[pc], mispredictedAt[pc],
+                              1 - (double) mispredictedAt[pc] / executedAt[pc]);
+        }
+    }
+}
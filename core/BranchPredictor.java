@@ -0,0 +1,25 @@
+package core;
+
+/**
+ * Preditor de direção de desvios condicionais (ver BranchPredictionUnit). A unidade chama
+ * predict e, logo depois que o desvio é resolvido, update com o resultado real, sempre
+ * na ordem do programa.
+ */
+public interface BranchPredictor {
+
+    /**
+     * @param pc     Endereço do desvio.
+     * @param target Destino se o desvio for tomado.
+     * @return true se o desvio deve ser tomado.
+     */
+    boolean predict(int pc, int target);
+
+    /** Treina o preditor com o resultado do último desvio previsto. */
+    void update(int pc, int target, boolean taken);
+
+    /** Esquece todo o histórico. */
+    void reset();
+
+    /** @return Nome do preditor nos relatórios. */
+    String getName();
+}
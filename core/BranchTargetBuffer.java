@@ -0,0 +1,71 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Buffer de destinos de desvio (BTB), mapeado diretamente pelos bits baixos do PC: guarda o
+ * destino dos desvios tomados para que a busca possa seguir para lá no mesmo ciclo, antes
+ * de decodificar a instrução. Sem entrada no BTB, um desvio previsto como tomado não tem
+ * para onde ir e a busca continua em sequência.
+ */
+public class BranchTargetBuffer {
+    private final int[] tag;    // PC do desvio dono da entrada
+    private final int[] target;
+    private final boolean[] valid;
+    private final int mask;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param entries Quantidade de entradas (potência de 2).
+     */
+    public BranchTargetBuffer(int entries) {
+        if (entries <= 0 || Integer.bitCount(entries) != 1) {
+            throw new IllegalArgumentException("Entradas do BTB deve ser potência de 2: " + entries);
+        }
+        this.tag = new int[entries];
+        this.target = new int[entries];
+        this.valid = new boolean[entries];
+        this.mask = entries - 1;
+    }
+
+    /**
+     * @return O destino guardado para o desvio em pc, ou -1 (falta no BTB).
+     */
+    public int lookup(int pc) {
+        int i = pc & mask;
+        if (valid[i] && tag[i] == pc) {
+            hits++;
+            return target[i];
+        }
+        misses++;
+        return -1;
+    }
+
+    /** Guarda (ou substitui) o destino do desvio em pc. */
+    public void update(int pc, int destination) {
+        int i = pc & mask;
+        tag[i] = pc;
+        target[i] = destination;
+        valid[i] = true;
+    }
+
+    public void reset() {
+        Arrays.fill(valid, false);
+        hits = 0;
+        misses = 0;
+    }
+
+    public int getEntries() {
+        return tag.length;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -1,99 +1,236 @@
 package core;
 
 import model.Instruction;
-import java.util.HashMap;
-import java.util.Map;
 // Opcodes.java deve estar no mesmo pacote 'core' ou ser importado corretamente
 import core.Opcodes; 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongConsumer;
 
 public class CPU {
     // Componentes da CPU
     private Memory memory;
     private ULA ula;
+    private AddressAdder addressAdder;
     private Flags flags;
     private Stack stack;
     private Bus bus; // Instância do barramento, embora seu uso seja mais conceitual
 
-    // Registradores
-    private Register IR;    // Instruction Register
-    private Register PC;    // Program Counter
-    private Register REG0;
-    private Register REG1;
-    private Register REG2;
-    private Register REG3;
-    private Register StkTOP; // Stack Top Pointer
-    private Register StkBOT; // Stack Bottom Pointer
+    // Registradores: estado guardado em um int[] plano (ver RegisterFile).
+    // "regs" é o array do banco, usado diretamente no laço de execução.
+    private RegisterFile registers;
+    private int[] regs;
+    private final int registerCount; // Quantidade de registradores de uso geral
+    private final int stackBottom;   // Base da pilha deste núcleo (restaurada por reset())
+    private int[] imulMicroprogram;  // Último microprograma carregado (reinstalado por reset())
 
-    // Mapa para acesso fácil aos registradores por ID (ex: 0 para REG0, 1 para REG1)
-    private Map<Integer, Register> generalPurposeRegisters;
+    // Código pré-decodificado, compartilhado com outras CPUs (DecodedProgramCache).
+    // Uma escrita desta CPU dentro da faixa de uma imagem a descarta, e a partir daí essa
+    // faixa volta a ser buscada e decodificada da memória a cada instrução.
+    private DecodedProgram decodedProgram;
+    private DecodedProgram decodedMicroprogram;
+
+    // Busca antecipada numa segunda thread (modo experimental, 0 = desligado)
+    private int prefetchRingSize;
+    private PrefetchUnit prefetchUnit; // Unidade da última execução com prefetch (estatísticas)
 
     // Constantes para endereços de memória reservados (do Memory.java)
     private final int IMUL_MICROPROGRAM_START;
     private final int IMUL_REGS_SAVE_AREA_START;
     private final int IMUL_RESULT_ADDRESS;
-    // Endereço de retorno do microprograma IMUL (onde a CPU deve voltar após a multiplicação)
-    private final int IMUL_RETURN_PC_SAVE_ADDR;
-    // Endereços temporários para os operandos do IMUL no microprograma (se necessário)
-    private final int IMUL_OP1_TEMP_ADDR;
-    private final int IMUL_OP2_TEMP_ADDR;
+    private final int INTERRUPT_SAVE_AREA_START;
+    private final int TRAP_SAVE_AREA_START;
+    private final int FAULT_REGISTER_ADDRESS;
+    private final int TRAP_VECTOR_ADDRESS;
+    private final int memorySize; // Limite das checagens de endereço do caminho rápido
+
+    // Falhas de acesso (traps). Em vez de exceções Java, cada acesso à memória ou à pilha
+    // é checado antes (uma comparação) e, se inválido, a instrução é abortada sem efeito e
+    // a CPU entra no tratador apontado pelo vetor de trap (ou para, se não houver).
+    // Ficam fora desse modelo, e continuam lançando exceção, só os caminhos do lado Java:
+    // chamadas diretas a Memory (read/write/load/copy...), loadProgram, setRegisterValue e
+    // as APIs Java dos dispositivos. Falhas de dispositivos acionadas pelo programa não são
+    // traps: elas vão para registradores de status do próprio dispositivo (ver Device);
+    // serviços de hcall que falham param a CPU com STOP_HOST_SERVICE_ERROR.
+    public static final int FAULT_NONE = 0;
+    public static final int FAULT_LOAD = 1;            // Leitura fora da memória
+    public static final int FAULT_STORE = 2;           // Escrita fora da memória
+    public static final int FAULT_STACK_OVERFLOW = 3;  // push/call com a pilha cheia
+    public static final int FAULT_STACK_UNDERFLOW = 4; // pop/ret com a pilha vazia
+    public static final int FAULT_PAGE = 5;            // Página não mapeada (MMU)
+    public static final int FAULT_PROTECTION = 6;      // Escrita em página somente leitura (MMU)
+    private int faultCause = FAULT_NONE;
+    private int faultAddress;
+    private int faultPc;
+    private boolean inTrap; // Executando o tratador de trap (até o IRET)
+    private long faultCount;
+    private long handlerEntries; // Entradas em tratadores (trap ou interrupção), para a busca antecipada
+
+    // Tradução de endereços de dados (opcional, null = endereços físicos)
+    private MMU mmu;
+
+    // Modelo de caches (opcional, null = memória com custo uniforme). Só temporização.
+    private CacheHierarchy caches;
+
+    // Modelo de temporização (opcional, null = uma instrução por passo). Só estimativa de ciclos.
+    private TimingModel timing;
+
+    // Previsão de desvios só para estatísticas (opcional; ver BranchPredictionUnit)
+    private BranchPredictionUnit branchUnit;
+
+    // Contadores por opcode e por PC (null = perfil desligado, custo de um teste de null)
+    private Profiler profiler;
 
+    // Interrupções e eventos temporizados. O agendador é consultado a cada instrução só
+    // com uma comparação (instructionCount >= próximo prazo); o controlador é opcional.
+    private final EventScheduler scheduler = new EventScheduler();
+    private InterruptController interrupts;
+
+    // Serviços do hospedeiro chamados por "hcall n" (ver HostService), indexados por n
+    public static final int MAX_HOST_SERVICES = 256;
+    private final HostService[] hostServices = new HostService[MAX_HOST_SERVICES];
+
+
+    // Identificação do núcleo (quando várias CPUs compartilham a mesma Memory)
+    private final int coreId;
+    private CoherenceModel coherence; // Modelo opcional de custo de coerência (null = desligado)
 
     // Variáveis para depuração e controle do ciclo
-    private boolean running;
+    public static final long DEFAULT_INSTRUCTION_LIMIT = 100000;
+    private volatile boolean running; // Lido por outras threads (isRunning, CPUPool)
+    // Fim da última execução assíncrona: completado só quando a thread de simulação larga a CPU
+    private volatile CompletableFuture<String> asyncStopped = CompletableFuture.completedFuture(null);
+    private long instructionLimit = DEFAULT_INSTRUCTION_LIMIT; // Para evitar loops infinitos em programas com erro
+    private long runLimit = DEFAULT_INSTRUCTION_LIMIT; // Limite da execução atual (instructionLimit ou o budget de runAsync)
+    private long executedThisRun;  // Instruções executadas desde o último begin()/start()
+    private long instructionCount; // Total de instruções executadas por esta CPU
+    private boolean verbose = true; // false = não imprime mensagens de progresso/erro (execução em lote)
+    private String stopReason;      // Por que a última execução parou (STOP_*), null enquanto roda
+
+    // Motivos de parada
+    public static final String STOP_HALT = "halt";
+    public static final String STOP_REQUESTED = "stopped";
+    public static final String STOP_LIMIT = "instruction-limit";
+    public static final String STOP_PC_OUT_OF_BOUNDS = "pc-out-of-bounds";
+    public static final String STOP_INVALID_INSTRUCTION = "invalid-instruction";
+    public static final String STOP_CANCELLED = "cancelled"; // Execução assíncrona cancelada ou expirada
+    public static final String STOP_MEMORY_OUT_OF_BOUNDS = "memory-out-of-bounds"; // Falha sem tratador
+    public static final String STOP_STACK_OVERFLOW = "stack-overflow";
+    public static final String STOP_STACK_UNDERFLOW = "stack-underflow";
+    public static final String STOP_PAGE_FAULT = "page-fault";
+    public static final String STOP_PROTECTION_FAULT = "protection-fault";
+    public static final String STOP_HOST_SERVICE_ERROR = "host-service-error"; // hcall desconhecido ou que falhou
+
+    // Instruções executadas entre dois pontos de yield numa execução assíncrona
+    public static final int DEFAULT_YIELD_INTERVAL = 10000;
 
     // Construtor da CPU
     public CPU(int memorySize) {
+        this(memorySize, RegisterFile.DEFAULT_GENERAL_PURPOSE);
+    }
+
+    /**
+     * @param memorySize    Tamanho da memória em palavras.
+     * @param registerCount Quantidade de registradores de uso geral (REG0..REGn-1),
+     *                      até RegisterFile.MAX_GENERAL_PURPOSE.
+     */
+    public CPU(int memorySize, int registerCount) {
+        this(memorySize, registerCount, RegisterFile.DEFAULT_BANKS);
+    }
+
+    /**
+     * @param memorySize    Tamanho da memória em palavras.
+     * @param registerCount Quantidade de registradores de uso geral.
+     * @param registerBanks Quantidade de bancos de registradores; cada microprograma
+     *                      aninhado (IMUL) usa um banco de sombra.
+     */
+    public CPU(int memorySize, int registerCount, int registerBanks) {
+        this(new Memory(memorySize, registerCount), 0, registerCount, registerBanks, -1); // Área de contexto dimensionada pelo nº de registradores
+    }
+
+    /**
+     * Cria um núcleo que usa uma Memory existente, possivelmente compartilhada com outros núcleos.
+     *
+     * @param memory        A memória (própria ou compartilhada).
+     * @param coreId        Identificador do núcleo (0 para uma CPU isolada).
+     * @param registerCount Quantidade de registradores de uso geral.
+     * @param registerBanks Quantidade de bancos de registradores.
+     * @param stackBottom   Base da pilha deste núcleo, ou -1 para usar a da memória.
+     *                      Núcleos que compartilham memória precisam de pilhas separadas.
+     */
+    public CPU(Memory memory, int coreId, int registerCount, int registerBanks, int stackBottom) {
+        this(memory, coreId, registerCount, registerBanks, stackBottom, -1);
+    }
+
+    /**
+     * @param contextArea Início da área de contexto deste núcleo (contextos de interrupção e
+     *                    de trap, registrador de falha e vetor de trap, no layout de
+     *                    Memory.getContextAreaWords), ou -1 para usar a da memória. Núcleos
+     *                    que compartilham memória precisam de áreas separadas, senão traps
+     *                    simultâneos sobrescrevem o contexto um do outro.
+     */
+    public CPU(Memory memory, int coreId, int registerCount, int registerBanks, int stackBottom, int contextArea) {
         // 1. Inicializa os componentes auxiliares
         this.flags = new Flags();
         this.ula = new ULA(this.flags); // ULA precisa de acesso às Flags
-        this.memory = new Memory(memorySize); // Memória é criada com um tamanho específico
+        this.addressAdder = new AddressAdder(); // Somador dedicado para ponteiros (pilha)
+        this.memory = memory; // Pode ser compartilhada com outros núcleos (MultiCoreSystem)
         this.bus = new Bus(); // Instância do barramento
+        this.coreId = coreId;
+        if (stackBottom < 0) {
+            stackBottom = memory.getStackBottomAddress();
+        }
+        this.stackBottom = stackBottom;
 
-        // 2. Inicializa os Registradores
-        this.IR = new Register("IR");
-        this.PC = new Register("PC"); // Program Counter começa em 0 (ou onde o programa será carregado)
-        this.REG0 = new Register("REG0");
-        this.REG1 = new Register("REG1");
-        this.REG2 = new Register("REG2");
-        this.REG3 = new Register("REG3");
+        // 2. Inicializa os Registradores (todos começam em 0)
+        this.registers = new RegisterFile(registerCount, registerBanks);
+        this.regs = registers.values;
+        this.registerCount = registerCount;
 
         // Inicializa StkTOP e StkBOT com o endereço de base da pilha fornecido pela memória
         // Eles devem começar apontando para o mesmo lugar (o "fundo" da pilha)
-        this.StkBOT = new Register("StkBOT");
-        this.StkTOP = new Register("StkTOP");
         // O valor inicial de StkBOT é o endereço mais alto da área de pilha na memória.
         // StackBottomAddress da memória já considera a pilha crescendo para baixo.
-        this.StkBOT.set(memory.getStackBottomAddress());
-        this.StkTOP.set(memory.getStackBottomAddress()); // No início, Top e Bottom são iguais
-
-        // A Stack precisa de Memory, StkTOP, StkBOT e ULA para funcionar corretamente
-        this.stack = new Stack(this.memory, this.StkTOP, this.StkBOT, this.ula);
+        regs[RegisterFile.STK_BOT] = stackBottom;
+        regs[RegisterFile.STK_TOP] = stackBottom; // No início, Top e Bottom são iguais
 
-        // Mapeia registradores de uso geral para fácil acesso
-        this.generalPurposeRegisters = new HashMap<>();
-        generalPurposeRegisters.put(0, REG0);
-        generalPurposeRegisters.put(1, REG1);
-        generalPurposeRegisters.put(2, REG2);
-        generalPurposeRegisters.put(3, REG3);
+        // A Stack precisa de Memory, StkTOP, StkBOT e do somador de endereços (não usa a ULA,
+        // para que CALL/RET não alterem as flags)
+        this.stack = new Stack(this.memory, registers.view(RegisterFile.STK_TOP), registers.view(RegisterFile.STK_BOT), this.addressAdder);
 
         // Armazena os endereços das áreas reservadas da memória
         this.IMUL_MICROPROGRAM_START = memory.getImulMicroprogramStartAddress();
         this.IMUL_REGS_SAVE_AREA_START = memory.getImulRegistersSaveAreaStart();
         this.IMUL_RESULT_ADDRESS = memory.getImulResultAddress();
-        // Endereços dentro da área de salvamento para maior clareza
-        this.IMUL_RETURN_PC_SAVE_ADDR = IMUL_REGS_SAVE_AREA_START + 4; // PC salvo na 5ª posição (0-indexed)
-        this.IMUL_OP1_TEMP_ADDR = IMUL_REGS_SAVE_AREA_START + 6; // Onde o microprograma pode ler o primeiro operando
-        this.IMUL_OP2_TEMP_ADDR = IMUL_REGS_SAVE_AREA_START + 7; // Onde o microprograma pode ler o segundo operando
+        int contextOffset = contextArea < 0 ? 0 : contextArea - memory.getInterruptSaveAreaStart();
+        this.INTERRUPT_SAVE_AREA_START = memory.getInterruptSaveAreaStart() + contextOffset;
+        this.TRAP_SAVE_AREA_START = memory.getTrapSaveAreaStart() + contextOffset;
+        this.FAULT_REGISTER_ADDRESS = memory.getFaultRegisterAddress() + contextOffset;
+        this.TRAP_VECTOR_ADDRESS = memory.getTrapVectorAddress() + contextOffset;
+        this.memorySize = memory.getMaxSize();
+
+        HostServices.installDefaults(this); // memcpy, memset, mul, div, checksum
 
         this.running = false; // CPU não está rodando por padrão
     }
 
     // --- Métodos de Controle da CPU ---
 
+    /**
+     * Carrega o programa na memória e aponta o PC para ele.
+     *
+     * A decodificação vem do DecodedProgramCache. Escritas feitas pela própria CPU dentro do
+     * código invalidam a cópia decodificada; escritas feitas por fora direto na Memory
+     * (outra CPU, dispositivos) não são vistas — nesse caso, use invalidateDecodedCode().
+     */
     public void loadProgram(int[] programCode, int startAddress) {
         memory.load(startAddress, programCode);
-        PC.set(startAddress); // Define o PC para o início do programa
-        System.out.println("Programa carregado na memória a partir do endereço: " + startAddress);
+        decodedProgram = DecodedProgramCache.get(programCode, startAddress);
+        regs[RegisterFile.PC] = startAddress; // Define o PC para o início do programa
+        if (verbose) {
+            System.out.println("Programa carregado na memória a partir do endereço: " + startAddress);
+        }
     }
     
     /**
@@ -103,67 +240,398 @@ public class CPU {
      */
     public void loadImulMicroprogram(int[] imulMicroprogramCode) {
         memory.load(IMUL_MICROPROGRAM_START, imulMicroprogramCode);
-        System.out.println("Microprograma IMUL carregado a partir do endereço: " + IMUL_MICROPROGRAM_START);
+        this.imulMicroprogram = imulMicroprogramCode;
+        this.decodedMicroprogram = DecodedProgramCache.get(imulMicroprogramCode, IMUL_MICROPROGRAM_START);
+        if (verbose) {
+            System.out.println("Microprograma IMUL carregado a partir do endereço: " + IMUL_MICROPROGRAM_START);
+        }
     }
 
 
+    /**
+     * Volta a CPU ao estado de recém-construída, com o microprograma IMUL já instalado:
+     * registradores (todos os bancos), flags e pilha zerados, e a memória limpa apenas nas
+     * páginas que foram escritas. Configurações (verbose, limite de instruções, modelo de
+     * coerência) são mantidas. Bem mais barato que construir outra CPU para cada execução.
+     *
+     * Não use em núcleos de um MultiCoreSystem: a memória é compartilhada e seria limpa
+     * para todos.
+     */
+    public void reset() {
+        if (running) {
+            throw new IllegalStateException("reset() com a CPU em execução.");
+        }
+        memory.reset();
+        decodedProgram = null;
+        if (imulMicroprogram != null) {
+            memory.load(IMUL_MICROPROGRAM_START, imulMicroprogram);
+            decodedMicroprogram = DecodedProgramCache.get(imulMicroprogram, IMUL_MICROPROGRAM_START);
+        }
+        regs = registers.reset();
+        regs[RegisterFile.STK_BOT] = stackBottom;
+        regs[RegisterFile.STK_TOP] = stackBottom;
+        stack.reset();
+        flags.unpack(0);
+        scheduler.clear();
+        inTrap = false;
+        faultCause = FAULT_NONE;
+        faultAddress = 0;
+        faultPc = 0;
+        faultCount = 0;
+        if (mmu != null) {
+            mmu.reset();
+        }
+        if (caches != null) {
+            caches.reset();
+        }
+        if (timing != null) {
+            timing.reset(); // Depois dos caches: o modelo marca os contadores zerados
+        }
+        if (branchUnit != null) {
+            branchUnit.reset();
+        }
+        if (profiler != null) {
+            profiler.reset();
+        }
+        if (interrupts != null) {
+            interrupts.reset();
+        }
+        instructionCount = 0;
+        executedThisRun = 0;
+        stopReason = null;
+    }
+
     public void start() {
+        begin();
+        if (verbose) {
+            System.out.println("CPU Iniciada.");
+        }
+        if (prefetchRingSize > 0) {
+            runPrefetched();
+        } else {
+            runCycle();
+        }
+    }
+
+    /**
+     * Executa o programa carregado em outra thread (virtual, quando a JVM suporta).
+     *
+     * @param budget Máximo de instruções desta execução (não altera o limite de instruções).
+     * @return Um future completado com o motivo da parada (STOP_*).
+     */
+    public CompletableFuture<String> runAsync(long budget) {
+        return runAsync(budget, DEFAULT_YIELD_INTERVAL, null, SimulationExecutor.get());
+    }
+
+    /**
+     * Executa o programa carregado de forma assíncrona, cedendo a thread a cada yieldInterval
+     * instruções. Em cada ponto de yield:
+     *  - se o future já foi completado por fora (cancel(), orTimeout(), completeOnTimeout()),
+     *    a CPU para com o motivo STOP_CANCELLED;
+     *  - senão, o callback de progresso recebe o número de instruções executadas até ali.
+     *
+     * Um laço infinito no programa é, portanto, interrompido no máximo yieldInterval instruções
+     * depois do cancelamento, sem interromper threads. Até lá a thread de simulação ainda
+     * está usando a CPU, mesmo com o future já completado: antes de reutilizar a instância,
+     * espere whenStopped() (CPUPool.release já faz isso).
+     *
+     * Falhas do programa (pilha, acesso fora da memória...) são traps e terminam com um
+     * motivo STOP_*; só uma exceção Java (ex: um Device que viola o contrato e lança
+     * exceção) completa o future excepcionalmente.
+     *
+     * @param budget        Máximo de instruções desta execução (vale só para ela; o limite
+     *                      configurado em setInstructionLimit continua valendo para as próximas).
+     * @param yieldInterval Instruções entre dois pontos de yield (> 0).
+     * @param progress      Callback de progresso, chamado na thread de simulação (pode ser null).
+     * @param executor      Executor onde a simulação roda.
+     * @return Um future completado com o motivo da parada (STOP_*).
+     */
+    public CompletableFuture<String> runAsync(long budget, int yieldInterval, LongConsumer progress, Executor executor) {
+        if (yieldInterval <= 0) {
+            throw new IllegalArgumentException("Intervalo de yield deve ser positivo: " + yieldInterval);
+        }
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> stopped = new CompletableFuture<>();
+        asyncStopped = stopped;
+        Runnable simulation = () -> {
+            try {
+                begin();
+                runLimit = budget;
+                while (running) {
+                    for (int i = 0; i < yieldInterval && step(); i++) {
+                        // executa um bloco de instruções sem checar o future
+                    }
+                    if (!running) {
+                        break;
+                    }
+                    if (future.isDone()) { // Cancelado ou expirado por quem esperava o resultado
+                        stop(STOP_CANCELLED);
+                        return;
+                    }
+                    if (progress != null) {
+                        progress.accept(executedThisRun);
+                    }
+                    Thread.yield(); // Em thread virtual, libera a thread portadora para outras simulações
+                }
+                future.complete(stopReason);
+            } catch (RuntimeException e) {
+                running = false;
+                future.completeExceptionally(e);
+            } finally {
+                stopped.complete(stopReason); // A partir daqui a CPU pode ser reutilizada
+            }
+        };
+        try {
+            executor.execute(simulation);
+        } catch (RejectedExecutionException e) {
+            stopped.complete(null); // Nada chegou a rodar
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * @return Um future completado (sempre normalmente, com o motivo da parada ou null) quando
+     *         a thread da última runAsync deixou de usar a CPU. Diferente do future de
+     *         runAsync, que pode ser completado por fora (cancel, timeout) antes disso. Sem
+     *         execução assíncrona, já vem completado.
+     */
+    public CompletableFuture<String> whenStopped() {
+        return asyncStopped;
+    }
+
+    /**
+     * Prepara a CPU para ser avançada instrução a instrução com step(), sem entrar no laço.
+     * Usado por quem controla a execução de fora (ex: MultiCoreSystem em lock-step).
+     */
+    public void begin() {
         running = true;
-        System.out.println("CPU Iniciada.");
-        runCycle();
+        runLimit = instructionLimit;
+        executedThisRun = 0;
+        stopReason = null;
     }
 
     public void stop() {
+        stop(STOP_REQUESTED);
+    }
+
+    private void stop(String reason) {
         running = false;
-        System.out.println("CPU Parada.");
+        if (stopReason == null) {
+            stopReason = reason; // Mantém o primeiro motivo (HALT chama stop duas vezes)
+        }
+        stack.flush(); // Deixa a pilha visível na memória para dumps e inspeção
+        if (verbose) {
+            System.out.println("CPU Parada.");
+        }
     }
 
     // Ciclo de execução principal
     private void runCycle() {
-        int instructionCount = 0; // Para evitar loops infinitos em programas com erro
         while (running) {
-            instructionCount++;
-            if (instructionCount > 100000) { // Limite de instruções para evitar loops
+            step();
+        }
+    }
+
+    /**
+     * Executa um ciclo completo (busca, decodificação e execução) de uma instrução.
+     *
+     * @return true se a CPU continua rodando depois desta instrução.
+     */
+    public boolean step() {
+        if (++executedThisRun > runLimit) { // Limite de instruções para evitar loops
+            if (verbose) {
                 System.err.println("Limite de instruções excedido. Parando CPU.");
-                stop();
-                break;
             }
+            stop(STOP_LIMIT);
+            return false;
+        }
+        return fetchAndExecute();
+    }
 
-            // 1. Fetch (Busca da Instrução)
-            if (PC.get() < 0 || PC.get() >= memory.getMaxSize()) {
-                System.err.println("Erro: PC fora dos limites da memória: " + PC.get());
-                stop();
-                break;
+    /**
+     * Laço de execução com busca antecipada: a PrefetchUnit busca e decodifica em outra
+     * thread e esta thread só executa. Quando a unidade não sabe o caminho (RET, MRET...),
+     * a instrução é buscada aqui mesmo e a unidade é redirecionada para o PC resultante.
+     */
+    private void runPrefetched() {
+        PrefetchUnit unit = prefetchUnit = new PrefetchUnit(memory, prefetchRingSize);
+        unit.start(regs[RegisterFile.PC]);
+        try {
+            while (running) {
+                if (++executedThisRun > runLimit) {
+                    if (verbose) {
+                        System.err.println("Limite de instruções excedido. Parando CPU.");
+                    }
+                    stop(STOP_LIMIT);
+                    break;
+                }
+                int pc = regs[RegisterFile.PC];
+                long entries = handlerEntries;
+                int slot = unit.take(pc);
+                if (slot >= 0) {
+                    int instructionWord = unit.wordAt(slot);
+                    Instruction decodedInstruction = unit.instructionAt(slot);
+                    unit.release();
+                    executeFetched(pc, instructionWord, decodedInstruction);
+                } else {
+                    fetchAndExecute();
+                }
+                if (handlerEntries != entries) { // Trap ou interrupção: não é previsão errada
+                    unit.enterHandler(regs[RegisterFile.PC]);
+                } else if (slot < 0) {
+                    unit.redirect(regs[RegisterFile.PC]);
+                }
             }
-            int instructionWord = bus.moveData(memory.read(PC.get())); // Lê a instrução da memória
-            IR.set(instructionWord); // Coloca a instrução no Instruction Register
-            
-            // Incrementa o PC para apontar para a próxima instrução (default)
-            // Desvios condicionais ou incondicionais alterarão o PC depois.
-            PC.inc(); 
+        } finally {
+            unit.shutdown();
+        }
+    }
 
+    // Busca, decodificação e execução de uma instrução (sem a checagem de limite)
+    private boolean fetchAndExecute() {
+        // 1. Fetch (Busca da Instrução)
+        int pc = regs[RegisterFile.PC];
+        if (pc < 0 || pc >= memory.getMaxSize()) {
+            if (verbose) {
+                System.err.println("Erro: PC fora dos limites da memória: " + pc);
+            }
+            stop(STOP_PC_OUT_OF_BOUNDS);
+            return false;
+        }
+        // Código pré-decodificado (compartilhado) quando o PC está numa imagem conhecida;
+        // senão, busca e decodificação normais a partir da memória.
+        DecodedProgram image = decodedProgram;
+        if (image == null || !image.contains(pc)) {
+            image = decodedMicroprogram;
+        }
+        int instructionWord;
+        Instruction decodedInstruction;
+        if (image != null && image.contains(pc)) {
+            instructionWord = image.wordAt(pc);
+            decodedInstruction = image.instructionAt(pc);
+        } else {
+            instructionWord = bus.moveData(memory.read(pc)); // Lê a instrução da memória
             // 2. Decode (Decodificação da Instrução)
-            Instruction decodedInstruction = decode(instructionWord);
-            if (decodedInstruction == null) {
-                System.err.println("Erro: Instrução inválida ou não implementada em PC: " + (PC.get() - 1) + ", Raw: 0x" + Integer.toHexString(instructionWord));
-                stop();
-                break;
+            decodedInstruction = decode(instructionWord);
+        }
+        return executeFetched(pc, instructionWord, decodedInstruction);
+    }
+
+    // Execução de uma instrução já buscada e decodificada
+    private boolean executeFetched(int pc, int instructionWord, Instruction decodedInstruction) {
+        if (caches != null) {
+            caches.fetch(pc);
+        }
+        regs[RegisterFile.IR] = instructionWord; // Coloca a instrução no Instruction Register
+
+        // Incrementa o PC para apontar para a próxima instrução (default)
+        // Desvios condicionais ou incondicionais alterarão o PC depois.
+        regs[RegisterFile.PC] = pc + 1;
+
+        if (decodedInstruction == null) {
+            if (verbose) {
+                System.err.println("Erro: Instrução inválida ou não implementada em PC: " + pc + ", Raw: 0x" + Integer.toHexString(instructionWord));
+            }
+            stop(STOP_INVALID_INSTRUCTION);
+            return false;
+        }
+        // Registrador acima dos configurados (palavra montada à mão ou alterada pelo próprio
+        // programa). O microprograma IMUL (banco de sombra) é código do sistema e fica de fora.
+        if (registerCount < RegisterFile.MAX_GENERAL_PURPOSE && registers.getActiveBank() == 0
+                && InstructionSet.highestRegister(instructionWord) >= registerCount) {
+            invalidInstruction("Registrador inexistente (" + registerCount + " configurados) em PC: " + pc
+                               + ", Raw: 0x" + Integer.toHexString(instructionWord));
+            return false;
+        }
+
+        // 3. Execute (Execução da Instrução)
+        instructionCount++;
+        if (profiler != null) {
+            profiler.record(pc, decodedInstruction.getOpcode());
+        }
+        long faults = faultCount;
+        execute(decodedInstruction);
+        boolean faulted = faultCount != faults; // call/ret com a pilha cheia/vazia não treinam a previsão
+        if (timing != null) {
+            if (faulted) {
+                timing.onFault(pc, decodedInstruction, regs[RegisterFile.PC]);
+            } else {
+                timing.onInstruction(pc, decodedInstruction, regs[RegisterFile.PC]);
             }
+        }
+        if (branchUnit != null && !faulted) {
+            branchUnit.observe(pc, decodedInstruction, regs[RegisterFile.PC]);
+        }
 
-            // 3. Execute (Execução da Instrução)
-            execute(decodedInstruction);
-            
-            // Condição de parada (ex: HALT instruction ou fim do programa)
-            // Se o PC ultrapassar o limite do programa, pode ser considerado fim.
-            if (decodedInstruction.getOpcode() == Opcodes.HALT) { 
+        // Condição de parada (ex: HALT instruction ou fim do programa)
+        // Se o PC ultrapassar o limite do programa, pode ser considerado fim.
+        if (decodedInstruction.getOpcode() == Opcodes.HALT) {
+             if (verbose) {
                  System.out.println("Instrução HALT executada. Fim do programa.");
-                 stop();
-            }
-            // Para depuração:
-            // printRegisters();
-            // memory.dumpMemory(0, 20); // Dumps the first 20 memory locations for debugging
-            // try { Thread.sleep(50); } catch (InterruptedException e) { e.printStackTrace(); } // Pequeno delay
+                 if (profiler != null) {
+                     profiler.printReport();
+                 }
+             }
+             stop(STOP_HALT);
+        }
+
+        // Eventos vencidos (temporizadores...) e pedidos de interrupção
+        if (instructionCount >= scheduler.nextDeadline) {
+            scheduler.advance(instructionCount);
+        }
+        if (interrupts != null && running && interrupts.deliverable()) {
+            enterInterrupt();
+        }
+        // Para depuração:
+        // printRegisters();
+        // memory.dumpMemory(0, 20); // Dumps the first 20 memory locations for debugging
+        return running;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return O motivo da última parada (uma das constantes STOP_*), ou null se ainda não parou.
+     */
+    public String getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * Liga a busca antecipada numa segunda thread para as próximas execuções com start().
+     * Experimental: serve para medir se outra thread consegue esconder o custo de busca e
+     * decodificação em programas longos sem desvios.
+     *
+     * @param ringSize Tamanho do anel de instruções (potência de 2), ou 0 para desligar.
+     */
+    public void setPrefetch(int ringSize) {
+        if (ringSize < 0 || (ringSize > 0 && Integer.bitCount(ringSize) != 1)) {
+            throw new IllegalArgumentException("Tamanho do anel deve ser 0 ou potência de 2: " + ringSize);
         }
+        this.prefetchRingSize = ringSize;
+    }
+
+    /**
+     * @return A unidade de prefetch da última execução (com as estatísticas de flush), ou null.
+     */
+    public PrefetchUnit getPrefetchUnit() {
+        return prefetchUnit;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    /**
+     * Liga/desliga as mensagens de progresso e de erro no console. Em execução em lote
+     * (milhares de programas) as mensagens são desligadas e o resultado é lido de
+     * getStopReason() e dos registradores.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
     }
 
     // --- Métodos de Decodificação e Execução ---
@@ -171,103 +639,20 @@ public class CPU {
     /**
      * Decodifica uma palavra de instrução em um objeto Instruction.
      * Baseia-se no formato: Opcode (8 bits mais significativos) + Operandos (24 bits restantes).
-     * O layout dos operandos varia de acordo com o opcode.
+     * O layout dos operandos de cada opcode vem da tabela em InstructionSet, a mesma usada
+     * pelo Loader para codificar; aqui é só um acesso à tabela e a extração dos campos.
      *
      * @param instructionWord O inteiro que representa a instrução.
-     * @return Um objeto Instruction decodificado.
+     * @return Um objeto Instruction decodificado, ou null se o opcode for desconhecido.
      */
     private Instruction decode(int instructionWord) {
-        // Extrai o opcode (8 bits mais significativos)
-        int opcode = (instructionWord >>> (32 - Opcodes.OPCODE_BITS)) & Opcodes.OPCODE_MASK;
-        
-        // System.out.println("Decodificando: 0x" + Integer.toHexString(instructionWord) + 
-        //                    " -> Opcode: 0x" + Integer.toHexString(opcode) + 
-        //                    " (" + Opcodes.getInstructionName(opcode) + ")");
-
-        int operand1 = 0;
-        int operand2 = 0;
-        int operand3 = 0;
-
-        // Máscara para 22 bits de valor/endereço: 0x3FFFFF (2^22 - 1)
-        // Máscara para 20 bits de endereço (no JEQ/JGT/JLW): 0xFFFFF (2^20 - 1)
-        // Máscara para 2 bits de registrador: 0x3
-
-        switch (opcode) {
-            // --- Instruções com 2 Registradores (RegA, RegB) ---
-            // Formato: [OPCODE (8b)] [REG_A (2b)] [REG_B (2b)] [0s (20b)]
-            // REG_A nos bits 23-22
-            // REG_B nos bits 21-20
-            case Opcodes.ADD_REG_REG:
-            case Opcodes.SUB_REG_REG:
-            case Opcodes.MOVE_REG_REG:
-            case Opcodes.IMUL: // IMUL também usa 2 regs (para os operandos)
-                operand1 = (instructionWord >> 22) & 0x3; // RegA ID
-                operand2 = (instructionWord >> 20) & 0x3; // RegB ID
-                break;
-
-            // --- Instruções com Memória/Imediato (22 bits) e 1 Registrador (2 bits) ---
-            // Formato: [OPCODE (8b)] [REG (2b)] [VALUE (22b)]
-            // REG nos bits 23-22
-            // VALUE nos bits 21-0
-            case Opcodes.ADD_MEM_REG:   // add <mem> %<regA> -> operand1 = mem_addr, operand2 = regA_id
-            case Opcodes.SUB_MEM_REG:   // sub <mem> %<regA> -> operand1 = mem_addr, operand2 = regA_id
-            case Opcodes.MOVE_MEM_REG:  // move <mem> %<regA> -> operand1 = mem_addr, operand2 = regA_id
-            case Opcodes.MOVE_IMM_REG:  // move imm <val> %<regA> -> operand1 = immediate, operand2 = regA_id
-                operand1 = instructionWord & 0x3FFFFF; // Value/Address (22 bits)
-                operand2 = (instructionWord >> 22) & 0x3; // Reg ID (2 bits)
-                break;
-            
-            case Opcodes.ADD_REG_MEM:   // add %<regA> <mem> -> operand1 = regA_id, operand2 = mem_addr
-            case Opcodes.SUB_REG_MEM:   // sub %<regA> <mem> -> operand1 = regA_id, operand2 = mem_addr
-            case Opcodes.MOVE_REG_MEM:  // move %<regA> <mem> -> operand1 = regA_id, operand2 = mem_addr
-                operand1 = (instructionWord >> 22) & 0x3; // RegA ID (2 bits)
-                operand2 = instructionWord & 0x3FFFFF; // Mem Address (22 bits)
-                break;
-
-            // --- Instruções com 1 Registrador ---
-            // Formato: [OPCODE (8b)] [REG (2b)] [0s (22b)]
-            // REG nos bits 23-22
-            case Opcodes.INC_REG: // inc %<regA> -> operand1 = regA_id
-                operand1 = (instructionWord >> 22) & 0x3; // RegA ID
-                break;
-
-            // --- Instruções com 1 Endereço de Memória (24 bits) ---
-            // Formato: [OPCODE (8b)] [ADDRESS (24b)]
-            // ADDRESS nos bits 23-0
-            case Opcodes.INC_MEM: // inc <mem> -> operand1 = mem_addr
-            case Opcodes.JMP:     // jmp <mem> -> operand1 = mem_addr
-            case Opcodes.JN:      // jn <mem>  -> operand1 = mem_addr
-            case Opcodes.JZ:      // jz <mem>  -> operand1 = mem_addr
-            case Opcodes.JNZ:     // jnz <mem> -> operand1 = mem_addr
-            case Opcodes.CALL:    // call <mem> -> operand1 = mem_addr
-                operand1 = instructionWord & 0xFFFFFF; // Endereço (24 bits)
-                break;
-
-            // --- Instruções com 3 Operandos (RegA, RegB, Endereço - 20 bits) ---
-            // Formato: [OPCODE (8b)] [REG_A (2b)] [REG_B (2b)] [ADDRESS (20b)]
-            // REG_A nos bits 23-22
-            // REG_B nos bits 21-20
-            // ADDRESS nos bits 19-0
-            case Opcodes.JEQ: // jeq %<regA> %<regB> <mem>
-            case Opcodes.JGT: // jgt %<regA> %<regB> <mem>
-            case Opcodes.JLW: // jlw %<regA> %<regB> <mem>
-                operand1 = (instructionWord >> 22) & 0x3; // RegA ID
-                operand2 = (instructionWord >> 20) & 0x3; // RegB ID
-                operand3 = instructionWord & 0xFFFFF; // Address (20 bits)
-                break;
-
-            // --- Instruções sem Operandos ---
-            case Opcodes.RET:
-            case Opcodes.HALT:
-                // Nenhum operando a ser extraído
-                break;
-
-            default:
-                // Instrução não reconhecida
-                System.err.println("DEBUG: Opcode desconhecido durante decodificação: 0x" + Integer.toHexString(opcode));
-                return null; // Retorna null para indicar erro ou instrução desconhecida
+        Instruction instruction = InstructionSet.decode(instructionWord);
+        if (instruction == null && verbose) {
+            // Instrução não reconhecida
+            System.err.println("DEBUG: Opcode desconhecido durante decodificação: 0x"
+                    + Integer.toHexString((instructionWord >>> (32 - Opcodes.OPCODE_BITS)) & Opcodes.OPCODE_MASK));
         }
-        return new Instruction(opcode, operand1, operand2, operand3, instructionWord);
+        return instruction;
     }
 
     /**
@@ -280,193 +665,760 @@ public class CPU {
         //                    " Op3: " + instruction.getOperand3());
 
         int opcode = instruction.getOpcode();
-        Register regA, regB; // Variáveis temporárias para registradores
+        int[] r = regs; // Banco de registradores (acesso direto ao array)
+        int a, b; // IDs dos registradores envolvidos
         int memAddr, memVal; // Variáveis temporárias para endereços e valores de memória
+        int length; // Quantidade de palavras nas instruções de bloco
         int immediate;
 
         switch (opcode) {
             case Opcodes.ADD_REG_REG: // add %<regA> %<regB> || RegB <- RegA + RegB
-                regA = getRegisterById(instruction.getOperand1());
-                regB = getRegisterById(instruction.getOperand2());
-                regB.set(ula.add(bus.transferToInttbus1(regA.get()), bus.transferToInttbus2(regB.get())));
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                r[b] = ula.add(bus.transferToInttbus1(r[a]), bus.transferToInttbus2(r[b]));
                 break;
             case Opcodes.ADD_MEM_REG: // add <mem> %<regA> || RegA <- memória[mem] + RegA
                 memAddr = instruction.getOperand1(); // operand1 é o endereço de memória
-                regA = getRegisterById(instruction.getOperand2()); // operand2 é o ID do registrador
-                memVal = bus.moveData(memory.read(memAddr));
-                regA.set(ula.add(bus.transferToInttbus1(memVal), bus.transferToInttbus2(regA.get())));
+                if ((memAddr = dataAddress(memAddr, FAULT_LOAD)) < 0) {
+                    break;
+                }
+                a = instruction.getOperand2(); // operand2 é o ID do registrador
+                memVal = bus.moveData(readData(memAddr));
+                r[a] = ula.add(bus.transferToInttbus1(memVal), bus.transferToInttbus2(r[a]));
                 break;
             case Opcodes.ADD_REG_MEM: // add %<regA> <mem> || Memória[mem] <- RegA + memória[mem]
-                regA = getRegisterById(instruction.getOperand1()); // operand1 é o ID do registrador
+                a = instruction.getOperand1(); // operand1 é o ID do registrador
                 memAddr = instruction.getOperand2(); // operand2 é o endereço de memória
-                memVal = bus.moveData(memory.read(memAddr));
-                memory.write(memAddr, ula.add(bus.transferToInttbus1(regA.get()), bus.transferToInttbus2(memVal)));
+                if ((memAddr = dataAddress(memAddr, FAULT_STORE)) < 0) {
+                    break;
+                }
+                memVal = bus.moveData(readData(memAddr));
+                writeData(memAddr, ula.add(bus.transferToInttbus1(r[a]), bus.transferToInttbus2(memVal)));
                 break;
             case Opcodes.SUB_REG_REG: // sub %<regA> %<regB> || RegB <- RegA - RegB
-                regA = getRegisterById(instruction.getOperand1());
-                regB = getRegisterById(instruction.getOperand2());
-                regB.set(ula.sub(bus.transferToInttbus1(regA.get()), bus.transferToInttbus2(regB.get())));
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                r[b] = ula.sub(bus.transferToInttbus1(r[a]), bus.transferToInttbus2(r[b]));
                 break;
             case Opcodes.SUB_MEM_REG: // sub <mem> %<regA> || RegA <- memória[mem] - RegA
                 memAddr = instruction.getOperand1();
-                regA = getRegisterById(instruction.getOperand2());
-                memVal = bus.moveData(memory.read(memAddr));
-                regA.set(ula.sub(bus.transferToInttbus1(memVal), bus.transferToInttbus2(regA.get())));
+                if ((memAddr = dataAddress(memAddr, FAULT_LOAD)) < 0) {
+                    break;
+                }
+                a = instruction.getOperand2();
+                memVal = bus.moveData(readData(memAddr));
+                r[a] = ula.sub(bus.transferToInttbus1(memVal), bus.transferToInttbus2(r[a]));
                 break;
             case Opcodes.SUB_REG_MEM: // sub %<regA> <mem> || memória[mem] <- RegA - memória[mem]
-                regA = getRegisterById(instruction.getOperand1());
+                a = instruction.getOperand1();
                 memAddr = instruction.getOperand2();
-                memVal = bus.moveData(memory.read(memAddr));
-                memory.write(memAddr, ula.sub(bus.transferToInttbus1(regA.get()), bus.transferToInttbus2(memVal)));
+                if ((memAddr = dataAddress(memAddr, FAULT_STORE)) < 0) {
+                    break;
+                }
+                memVal = bus.moveData(readData(memAddr));
+                writeData(memAddr, ula.sub(bus.transferToInttbus1(r[a]), bus.transferToInttbus2(memVal)));
                 break;
             case Opcodes.MOVE_MEM_REG: // move <mem> %<regA> || RegA <- memória[mem]
                 memAddr = instruction.getOperand1();
-                regA = getRegisterById(instruction.getOperand2());
-                regA.set(bus.moveData(memory.read(memAddr)));
+                if ((memAddr = dataAddress(memAddr, FAULT_LOAD)) < 0) {
+                    break;
+                }
+                a = instruction.getOperand2();
+                r[a] = bus.moveData(readData(memAddr));
                 break;
             case Opcodes.MOVE_REG_MEM: // move %<regA> <mem> || memória[mem] <- RegA
-                regA = getRegisterById(instruction.getOperand1());
+                a = instruction.getOperand1();
                 memAddr = instruction.getOperand2();
-                memory.write(memAddr, bus.moveData(regA.get()));
+                if ((memAddr = dataAddress(memAddr, FAULT_STORE)) < 0) {
+                    break;
+                }
+                writeData(memAddr, bus.moveData(r[a]));
                 break;
             case Opcodes.MOVE_REG_REG: // move %<regA> %<regB> || RegB <- RegA
-                regA = getRegisterById(instruction.getOperand1());
-                regB = getRegisterById(instruction.getOperand2());
-                regB.set(bus.moveData(regA.get()));
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                r[b] = bus.moveData(r[a]);
                 break;
             case Opcodes.MOVE_IMM_REG: // move imm <val> %<regA> || RegA <- immediate
                 immediate = instruction.getOperand1(); // O valor imediato
-                regA = getRegisterById(instruction.getOperand2()); // O registrador de destino
-                regA.set(bus.moveData(immediate));
+                a = instruction.getOperand2(); // O registrador de destino
+                r[a] = bus.moveData(immediate);
                 break;
             case Opcodes.INC_REG: // inc %<regA> || RegA ++
-                regA = getRegisterById(instruction.getOperand1());
-                regA.set(ula.inc(bus.transferToInttbus1(regA.get())));
+                a = instruction.getOperand1();
+                r[a] = ula.inc(bus.transferToInttbus1(r[a]));
                 break;
             case Opcodes.INC_MEM: // inc <mem> || memória[mem] ++
                 memAddr = instruction.getOperand1();
-                memVal = bus.moveData(memory.read(memAddr));
-                memory.write(memAddr, ula.inc(bus.transferToInttbus1(memVal)));
+                if ((memAddr = dataAddress(memAddr, FAULT_STORE)) < 0) {
+                    break;
+                }
+                memVal = bus.moveData(readData(memAddr));
+                writeData(memAddr, ula.inc(bus.transferToInttbus1(memVal)));
                 break;
             case Opcodes.JMP: // jmp <mem> || PC <- mem (desvio incondicional)
-                PC.set(bus.moveData(instruction.getOperand1()));
+                r[RegisterFile.PC] = bus.moveData(instruction.getOperand1());
                 break;
             case Opcodes.JN: // jn <mem> || se última operação<0 então PC <- mem (desvio condicional)
                 if (flags.isNegative()) {
-                    PC.set(bus.moveData(instruction.getOperand1()));
+                    r[RegisterFile.PC] = bus.moveData(instruction.getOperand1());
                 }
                 break;
             case Opcodes.JZ: // jz <mem> || se última operação=0 então PC <- mem (desvio condicional)
                 if (flags.isZero()) {
-                    PC.set(bus.moveData(instruction.getOperand1()));
+                    r[RegisterFile.PC] = bus.moveData(instruction.getOperand1());
                 }
                 break;
             case Opcodes.JNZ: // jnz <mem> || se última operação|=0 então PC <- mem (desvio condicional)
                 if (!flags.isZero()) {
-                    PC.set(bus.moveData(instruction.getOperand1()));
+                    r[RegisterFile.PC] = bus.moveData(instruction.getOperand1());
                 }
                 break;
             case Opcodes.JEQ: // jeq %<regA> %<regB> <mem> || se RegA==RegB então PC <- mem (desvio condicional)
-                regA = getRegisterById(instruction.getOperand1());
-                regB = getRegisterById(instruction.getOperand2());
-                ula.compare(regA.get(), regB.get()); // Compara e atualiza flags (result = RegA - RegB)
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                ula.compare(r[a], r[b]); // Compara e atualiza flags (result = RegA - RegB)
                 if (flags.isZero()) { // Se RegA - RegB == 0, então RegA == RegB
-                    PC.set(bus.moveData(instruction.getOperand3()));
+                    r[RegisterFile.PC] = bus.moveData(instruction.getOperand3());
                 }
                 break;
             case Opcodes.JGT: // jgt %<regA> %<regB> <mem> || se RegA>RegB então PC <- mem (desvio condicional)
-                regA = getRegisterById(instruction.getOperand1());
-                regB = getRegisterById(instruction.getOperand2());
-                ula.compare(regA.get(), regB.get()); // Compara e atualiza flags (result = RegA - RegB)
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                ula.compare(r[a], r[b]); // Compara e atualiza flags (result = RegA - RegB)
                 // Se RegA > RegB, então RegA - RegB > 0. Nem zero, nem negativo.
                 if (!flags.isZero() && !flags.isNegative()) {
-                    PC.set(bus.moveData(instruction.getOperand3()));
+                    r[RegisterFile.PC] = bus.moveData(instruction.getOperand3());
                 }
                 break;
             case Opcodes.JLW: // jlw %<regA> %<regB> <mem> || se RegA<RegB então PC <- mem (desvio condicional)
-                regA = getRegisterById(instruction.getOperand1());
-                regB = getRegisterById(instruction.getOperand2());
-                ula.compare(regA.get(), regB.get()); // Compara e atualiza flags (result = RegA - RegB)
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                ula.compare(r[a], r[b]); // Compara e atualiza flags (result = RegA - RegB)
                 // Se RegA < RegB, então RegA - RegB < 0. Negativo.
                 if (flags.isNegative()) {
-                    PC.set(bus.moveData(instruction.getOperand3()));
+                    r[RegisterFile.PC] = bus.moveData(instruction.getOperand3());
                 }
                 break;
             case Opcodes.CALL: // call <mem> || PC <- mem (push(PC++) )
                 // PC já foi incrementado no fetch, então é o endereço da *próxima* instrução
-                stack.push(bus.moveData(PC.get())); 
-                PC.set(bus.moveData(instruction.getOperand1())); // Desvia para o endereço da chamada
+                if (stackFull()) {
+                    break;
+                }
+                stack.push(bus.moveData(r[RegisterFile.PC])); 
+                r[RegisterFile.PC] = bus.moveData(instruction.getOperand1()); // Desvia para o endereço da chamada
                 break;
             case Opcodes.RET: // ret || PC <- pop()
-                PC.set(bus.moveData(stack.pop()));
+                if (stackEmpty()) {
+                    break;
+                }
+                r[RegisterFile.PC] = bus.moveData(stack.pop());
+                break;
+            case Opcodes.PUSH_REG: // push %<regA> || push(RegA)
+                if (stackFull()) {
+                    break;
+                }
+                stack.push(bus.moveData(r[instruction.getOperand1()]));
+                break;
+            case Opcodes.POP_REG: // pop %<regA> || RegA <- pop()
+                if (stackEmpty()) {
+                    break;
+                }
+                r[instruction.getOperand1()] = bus.moveData(stack.pop());
                 break;
             case Opcodes.IMUL: // imul %<regA> %<regB>
-                System.out.println("Executando IMUL...");
-                
-                // 1. Salvar contexto atual (REG0-3, PC, FLAGS)
-                saveContext(IMUL_REGS_SAVE_AREA_START);
-
-                // 2. Passar operandos para o microprograma.
-                // A instrução IMUL assembly define os registradores de origem.
-                // Vamos copiá-los para locais de memória fixos onde o microprograma possa acessá-los.
-                // (Isso simula o que aconteceria se o microprograma usasse registradores internos
-                // ou precisasse mover os valores para locais conhecidos).
-                // Exemplo: IMUL %REG0 %REG1 -> multiplicaria REG0 * REG1
-                memory.write(IMUL_OP1_TEMP_ADDR, bus.moveData(getRegisterById(instruction.getOperand1()).get()));
-                memory.write(IMUL_OP2_TEMP_ADDR, bus.moveData(getRegisterById(instruction.getOperand2()).get()));
-
-                // 3. Armazenar o endereço de retorno para depois que o microprograma terminar.
-                // O PC já está apontando para a instrução APÓS o IMUL.
-                memory.write(IMUL_RETURN_PC_SAVE_ADDR, PC.get()); 
-                
-                // 4. Desviar o PC para o início do microprograma IMUL.
-                PC.set(bus.moveData(IMUL_MICROPROGRAM_START));
-                
+                // 1. Troca para o banco de sombra (O(1)). O banco de quem chamou fica intacto,
+                // inclusive o PC, que já aponta para a instrução APÓS o IMUL, e guarda as flags.
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                if (registers.getActiveBank() + 1 >= registers.getBankCount()) {
+                    invalidInstruction("IMUL aninhado além dos bancos de registradores disponíveis.");
+                    break;
+                }
+                int[] caller = r;
+                r = regs = registers.enterBank(flags.pack());
+
+                // 2. Passar operandos para o microprograma nos registradores do novo banco:
+                // REG0 = multiplicando, REG1 = multiplicador.
+                r[0] = bus.moveData(caller[a]);
+                r[1] = bus.moveData(caller[b]);
+
+                // 3. Desviar o PC (do banco de sombra) para o início do microprograma IMUL.
+                r[RegisterFile.PC] = bus.moveData(IMUL_MICROPROGRAM_START);
+
                 // O runCycle() continuará executando as instruções do microprograma.
-                // O microprograma deve, ao final, ler o PC de retorno de IMUL_RETURN_PC_SAVE_ADDR
-                // e fazer um JMP para ele, além de escrever o resultado em IMUL_RESULT_ADDRESS.
+                // O microprograma escreve o resultado em IMUL_RESULT_ADDRESS e termina com MRET.
+                break;
+            case Opcodes.MRET: // mret || volta ao banco de quem chamou (registradores, PC e flags)
+                if (registers.getActiveBank() == 0) {
+                    invalidInstruction("MRET fora de um microprograma.");
+                    break;
+                }
+                r = regs = registers.leaveBank();
+                flags.unpack(r[RegisterFile.FLAGS]);
+                break;
+            case Opcodes.CAS: // cas %<regA> %<regB> <mem> || se memória[mem]==RegA então memória[mem] <- RegB; RegA <- valor antigo
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                memAddr = instruction.getOperand3();
+                if ((memAddr = dataAddress(memAddr, FAULT_STORE)) < 0) {
+                    break;
+                }
+                if (coherence != null) {
+                    coherence.onWrite(coreId, memAddr);
+                }
+                if (caches != null) {
+                    caches.write(memAddr);
+                }
+                invalidateDecodedCode(memAddr);
+                memVal = memory.compareAndSwap(memAddr, r[a], r[b]);
+                ula.compare(memVal, r[a]); // Z = 1 se a troca aconteceu
+                r[a] = bus.moveData(memVal);
+                break;
+            case Opcodes.FAA: // faa %<regA> <mem> || memória[mem] <- memória[mem] + RegA; RegA <- valor antigo
+                a = instruction.getOperand1();
+                memAddr = instruction.getOperand2();
+                if ((memAddr = dataAddress(memAddr, FAULT_STORE)) < 0) {
+                    break;
+                }
+                if (coherence != null) {
+                    coherence.onWrite(coreId, memAddr);
+                }
+                if (caches != null) {
+                    caches.write(memAddr);
+                }
+                invalidateDecodedCode(memAddr);
+                r[a] = bus.moveData(memory.fetchAndAdd(memAddr, r[a]));
+                break;
+            case Opcodes.IRET: // iret || volta do tratador de trap ou de interrupção (registradores, PC e flags)
+                if (inTrap) { // O trap é sempre o mais interno (interrupções esperam o fim dele)
+                    restoreContext(TRAP_SAVE_AREA_START);
+                    inTrap = false;
+                    break;
+                }
+                if (interrupts == null || interrupts.getActive() == InterruptController.NONE) {
+                    invalidInstruction("IRET fora de um tratador de trap ou de interrupção.");
+                    break;
+                }
+                restoreContext(INTERRUPT_SAVE_AREA_START);
+                interrupts.complete();
+                break;
+            case Opcodes.BCOPY: // bcopy %<regA> %<regB> %<regC> || memória[RegB..RegB+RegC) <- memória[RegA..RegA+RegC)
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                length = r[instruction.getOperand3()];
+                if (blockByWord(r[a], length) || memory.overlapsDevice(r[b], length)) {
+                    blockVirtual(opcode, r, a, b, length);
+                    break;
+                }
+                if (blockOutOfBounds(r[a], length, FAULT_LOAD) || blockOutOfBounds(r[b], length, FAULT_STORE)) {
+                    break;
+                }
+                blockAccess(r[a], length, false);
+                blockAccess(r[b], length, true);
+                memory.copy(r[a], r[b], length);
+                break;
+            case Opcodes.BFILL: // bfill %<regA> %<regB> %<regC> || memória[RegB..RegB+RegC) <- RegA
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                length = r[instruction.getOperand3()];
+                if (blockByWord(r[b], length)) {
+                    blockVirtual(opcode, r, a, b, length);
+                    break;
+                }
+                if (blockOutOfBounds(r[b], length, FAULT_STORE)) {
+                    break;
+                }
+                blockAccess(r[b], length, true);
+                memory.fill(r[b], length, r[a]);
+                break;
+            case Opcodes.BADD: // badd %<regA> %<regB> %<regC> || memória[RegB..RegB+RegC) += RegA
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                length = r[instruction.getOperand3()];
+                if (blockByWord(r[b], length)) {
+                    blockVirtual(opcode, r, a, b, length);
+                    break;
+                }
+                if (blockOutOfBounds(r[b], length, FAULT_STORE)) {
+                    break;
+                }
+                blockAccess(r[b], length, true);
+                memory.addBlock(r[b], length, r[a]);
+                break;
+            case Opcodes.BSUM: // bsum %<regA> %<regB> %<regC> || RegB <- soma de memória[RegA..RegA+RegC)
+                a = instruction.getOperand1();
+                b = instruction.getOperand2();
+                length = r[instruction.getOperand3()];
+                if (blockByWord(r[a], length)) {
+                    blockVirtual(opcode, r, a, b, length);
+                    break;
+                }
+                if (blockOutOfBounds(r[a], length, FAULT_LOAD)) {
+                    break;
+                }
+                blockAccess(r[a], length, false);
+                r[b] = bus.moveData(memory.sumBlock(r[a], length));
+                break;
+            case Opcodes.HCALL: // hcall <n> || executa o serviço n do hospedeiro com REG0..REG3
+                hostCall(instruction.getOperand1(), r);
                 break;
             case Opcodes.HALT: // Instrução HALT para parar a CPU
-                stop();
+                stop(STOP_HALT);
                 break;
             default:
-                System.err.println("Instrução não reconhecida ou não implementada durante execução: 0x" + Integer.toHexString(opcode) + " (Raw: 0x" + Integer.toHexString(instruction.getRawInstruction()) + ")");
-                stop();
+                if (verbose) {
+                    System.err.println("Instrução não reconhecida ou não implementada durante execução: 0x" + Integer.toHexString(opcode) + " (Raw: 0x" + Integer.toHexString(instruction.getRawInstruction()) + ")");
+                }
+                stop(STOP_INVALID_INSTRUCTION);
                 break;
         }
     }
 
+    // Operações de bloco: coerência e caches palavra a palavra (só quando os modelos estão
+    // ligados) e descarte do código pré-decodificado que a escrita alcançar
+    private void blockAccess(int address, int length, boolean write) {
+        if (coherence != null) {
+            for (int i = 0; i < length; i++) {
+                if (write) {
+                    coherence.onWrite(coreId, address + i);
+                } else {
+                    coherence.onRead(coreId, address + i);
+                }
+            }
+        }
+        if (caches != null) {
+            for (int i = 0; i < length; i++) {
+                if (write) {
+                    caches.write(address + i);
+                } else {
+                    caches.read(address + i);
+                }
+            }
+        }
+        if (write) {
+            if (decodedProgram != null && decodedProgram.overlaps(address, length)) {
+                decodedProgram = null;
+            }
+            if (decodedMicroprogram != null && decodedMicroprogram.overlaps(address, length)) {
+                decodedMicroprogram = null;
+            }
+        }
+    }
+
+    private void hostCall(int number, int[] r) {
+        HostService service = number < MAX_HOST_SERVICES ? hostServices[number] : null;
+        if (service == null) {
+            if (verbose) {
+                System.err.println("Erro: serviço do hospedeiro não registrado: hcall " + number);
+            }
+            stop(STOP_HOST_SERVICE_ERROR);
+            return;
+        }
+        if (service.accessesMemory() && mmu != null && mmu.isEnabled()) {
+            fault(FAULT_PROTECTION, r[0]); // Endereços físicos: o serviço sairia do espaço do processo
+            return;
+        }
+        stack.flush(); // O serviço acessa a Memory direto: o topo da pilha precisa estar nela
+        try {
+            service.invoke(r, memory);
+        } catch (RuntimeException e) {
+            if (verbose) {
+                System.err.println("Erro no serviço do hospedeiro hcall " + number + ": " + e.getMessage());
+            }
+            stop(STOP_HOST_SERVICE_ERROR);
+        }
+        if (service.writesMemory()) {
+            invalidateDecodedCode();
+        }
+    }
+
+    // --- Acesso a dados (passa pelo modelo de coerência quando ligado) ---
+    private int readData(int address) {
+        if (coherence != null) {
+            coherence.onRead(coreId, address);
+        }
+        if (caches != null) {
+            caches.read(address);
+        }
+        return memory.read(address);
+    }
+
+    private void writeData(int address, int value) {
+        if (coherence != null) {
+            coherence.onWrite(coreId, address);
+        }
+        if (caches != null) {
+            caches.write(address);
+        }
+        invalidateDecodedCode(address);
+        memory.write(address, value);
+    }
+
+    // Código automodificável: a cópia decodificada da faixa escrita deixa de valer
+    private void invalidateDecodedCode(int address) {
+        if (decodedProgram != null && decodedProgram.contains(address)) {
+            decodedProgram = null;
+        }
+        if (decodedMicroprogram != null && decodedMicroprogram.contains(address)) {
+            decodedMicroprogram = null;
+        }
+    }
+
+    /**
+     * Descarta o código pré-decodificado; as próximas instruções são buscadas da memória.
+     * Necessário quando o código foi alterado por fora da CPU (ex: direto na Memory).
+     */
+    public void invalidateDecodedCode() {
+        decodedProgram = null;
+        decodedMicroprogram = null;
+    }
+
+    // Instrução válida usada fora do seu contexto: para a CPU sem lançar exceção
+    private void invalidInstruction(String message) {
+        if (verbose) {
+            System.err.println("Erro: " + message);
+        }
+        stop(STOP_INVALID_INSTRUCTION);
+    }
+
+    // --- Falhas de acesso (traps) ---
+
+    /**
+     * Endereço físico de um acesso a dados, ou -1 se houve falha (o trap já foi tratado).
+     * Sem MMU ligada o caminho rápido é uma comparação; a falha não cria exceções.
+     * Com a MMU ligada, só os acessos do microprograma IMUL (banco de sombra ativo) às suas
+     * áreas não são traduzidos: ele grava o resultado no endereço físico. O programa lê o
+     * resultado pela própria tradução, então precisa mapear a página dessa área.
+     * Um acesso a uma palavra que está só no cache de topo da pilha descarrega o cache antes.
+     */
+    private int dataAddress(int address, int cause) {
+        MMU m = mmu;
+        if (m == null || !m.isEnabled()) {
+            if (address >= 0 && address < memorySize) {
+                if (stack.holds(address)) {
+                    stack.flush();
+                }
+                return address;
+            }
+            fault(cause, address);
+            return -1;
+        }
+        if (registers.getActiveBank() > 0 && address >= IMUL_REGS_SAVE_AREA_START && address <= IMUL_RESULT_ADDRESS) {
+            return address;
+        }
+        int physical = m.translate(address, cause == FAULT_STORE);
+        if (physical < 0) {
+            fault(m.getLastFault(), address);
+        } else if (stack.holds(physical)) {
+            stack.flush();
+        }
+        return physical;
+    }
+
+    // Bloco que não pode usar as operações de bloco da Memory (só RAM): MMU ligada ou faixa
+    // que cruza dispositivos mapeados
+    private boolean blockByWord(int address, int length) {
+        MMU m = mmu;
+        return (m != null && m.isEnabled()) || memory.overlapsDevice(address, length);
+    }
+
+    /**
+     * Instrução de bloco feita palavra a palavra. Com a MMU ligada as páginas virtuais da
+     * faixa podem estar em quadros físicos quaisquer, então cada acesso é traduzido (e contado
+     * no TLB); sem ela, é o caminho das faixas que cruzam dispositivos, que recebem cada
+     * leitura e escrita como um move faria. Uma falta no meio deixa feitas as palavras anteriores.
+     */
+    private void blockVirtual(int opcode, int[] r, int a, int b, int length) {
+        int source = r[a];
+        int destination = r[b];
+        if (length < 0) {
+            fault(opcode == Opcodes.BSUM ? FAULT_LOAD : FAULT_STORE, opcode == Opcodes.BSUM ? source : destination);
+            return;
+        }
+        // Cópia com destino depois da origem é feita de trás para frente (faixas sobrepostas)
+        boolean backward = opcode == Opcodes.BCOPY && destination > source;
+        int sum = 0;
+        for (int n = 0; n < length; n++) {
+            int i = backward ? length - 1 - n : n;
+            int from;
+            int to;
+            switch (opcode) {
+                case Opcodes.BCOPY:
+                    if ((from = dataAddress(source + i, FAULT_LOAD)) < 0 || (to = dataAddress(destination + i, FAULT_STORE)) < 0) {
+                        return;
+                    }
+                    writeData(to, readData(from));
+                    break;
+                case Opcodes.BFILL:
+                    if ((to = dataAddress(destination + i, FAULT_STORE)) < 0) {
+                        return;
+                    }
+                    writeData(to, source);
+                    break;
+                case Opcodes.BADD:
+                    if ((to = dataAddress(destination + i, FAULT_STORE)) < 0) {
+                        return;
+                    }
+                    writeData(to, readData(to) + source);
+                    break;
+                default: // BSUM
+                    if ((from = dataAddress(source + i, FAULT_LOAD)) < 0) {
+                        return;
+                    }
+                    sum += readData(from);
+                    break;
+            }
+        }
+        if (opcode == Opcodes.BSUM) {
+            r[b] = bus.moveData(sum);
+        }
+    }
+
+    // Também descarrega o cache de topo da pilha se o bloco passar por ele
+    private boolean blockOutOfBounds(int address, int length, int cause) {
+        if (length >= 0 && address >= 0 && address <= memorySize - length) {
+            if (stack.overlaps(address, length)) {
+                stack.flush();
+            }
+            return false;
+        }
+        fault(cause, address);
+        return true;
+    }
+
+    private boolean stackFull() {
+        if (!stack.isFull()) {
+            return false;
+        }
+        fault(FAULT_STACK_OVERFLOW, regs[RegisterFile.STK_TOP] - 1);
+        return true;
+    }
+
+    private boolean stackEmpty() {
+        if (!stack.isEmpty()) {
+            return false;
+        }
+        fault(FAULT_STACK_UNDERFLOW, regs[RegisterFile.STK_TOP]);
+        return true;
+    }
+
+    /**
+     * Registra a falha e entra no tratador de trap: o contexto (com o PC já apontando para a
+     * instrução seguinte) vai para a área de trap, seguido do registrador de falha (causa,
+     * endereço, PC da instrução que falhou), e o PC recebe o vetor. O tratador volta com
+     * IRET; para repetir a instrução, ele pode trocar o PC salvo pelo PC da falha.
+     * Sem vetor (0), dentro de outro tratador de trap ou dentro de um microprograma, a CPU
+     * para com o motivo correspondente à causa.
+     */
+    private void fault(int cause, int address) {
+        faultCause = cause;
+        faultAddress = address;
+        faultPc = regs[RegisterFile.PC] - 1;
+        faultCount++;
+        int vector = memory.read(TRAP_VECTOR_ADDRESS);
+        if (vector == 0 || inTrap || registers.getActiveBank() != 0) {
+            if (verbose) {
+                System.err.println("Erro: falha " + cause + " no endereço " + address + " (PC " + faultPc + ") sem tratador.");
+            }
+            stop(stopReasonFor(cause));
+            return;
+        }
+        saveContext(TRAP_SAVE_AREA_START);
+        memory.write(FAULT_REGISTER_ADDRESS, cause);
+        memory.write(FAULT_REGISTER_ADDRESS + 1, address);
+        memory.write(FAULT_REGISTER_ADDRESS + 2, faultPc);
+        inTrap = true;
+        handlerEntries++;
+        regs[RegisterFile.PC] = vector;
+    }
+
+    private static String stopReasonFor(int cause) {
+        switch (cause) {
+            case FAULT_STACK_OVERFLOW:  return STOP_STACK_OVERFLOW;
+            case FAULT_STACK_UNDERFLOW: return STOP_STACK_UNDERFLOW;
+            case FAULT_PAGE:            return STOP_PAGE_FAULT;
+            case FAULT_PROTECTION:      return STOP_PROTECTION_FAULT;
+            default:                    return STOP_MEMORY_OUT_OF_BOUNDS;
+        }
+    }
+
+    /**
+     * Liga uma MMU a esta CPU (null desliga). Com ela ligada (MMU.setEnabled ou o registrador
+     * CONTROL), os endereços de dados das instruções (move, add, sub, inc, cas, faa e as de
+     * bloco) são virtuais. Busca de instruções, pilha, a escrita do resultado pelo
+     * microprograma IMUL e áreas de contexto continuam físicas; o programa lê o resultado do
+     * IMUL por um endereço virtual como qualquer outro. Serviços de hcall que acessam a memória
+     * (HostService.accessesMemory) usariam endereços físicos e por isso geram um trap de
+     * proteção (FAULT_PROTECTION) enquanto a tradução está ligada; MUL e DIV funcionam.
+     */
+    public void setMMU(MMU mmu) {
+        this.mmu = mmu;
+    }
+
+    public MMU getMMU() {
+        return mmu;
+    }
+
+    /**
+     * Liga um modelo de caches a esta CPU (null desliga). Não muda o resultado dos
+     * programas, só conta acertos/faltas e estima ciclos (ver CacheHierarchy).
+     */
+    public void setCacheHierarchy(CacheHierarchy caches) {
+        this.caches = caches;
+    }
+
+    public CacheHierarchy getCacheHierarchy() {
+        return caches;
+    }
+
+    /**
+     * Liga um modelo de temporização (ex: PipelineModel), que recebe cada instrução
+     * executada e estima ciclos e bolhas. null desliga.
+     */
+    public void setTimingModel(TimingModel timing) {
+        this.timing = timing;
+    }
+
+    public TimingModel getTimingModel() {
+        return timing;
+    }
+
+    /**
+     * Liga uma unidade de previsão de desvios que confere cada desvio executado (só
+     * estatísticas; para os erros custarem ciclos, ligue-a ao modelo de temporização).
+     * null desliga.
+     */
+    public void setBranchPredictionUnit(BranchPredictionUnit branchUnit) {
+        this.branchUnit = branchUnit;
+    }
+
+    public BranchPredictionUnit getBranchPredictionUnit() {
+        return branchUnit;
+    }
+
+    /**
+     * Liga/desliga o perfil de execução (contagens por opcode e por PC). Ligado, o relatório
+     * é impresso no HALT (em modo verbose) e fica disponível em getProfiler(); desligar
+     * descarta as contagens.
+     */
+    public void setProfiling(boolean enabled) {
+        if (!enabled) {
+            profiler = null;
+        } else if (profiler == null) {
+            profiler = new Profiler(memory);
+        }
+    }
+
+    public boolean isProfiling() {
+        return profiler != null;
+    }
+
+    /** @return O perfil da execução, ou null se o perfil está desligado. */
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    /** Define o endereço do tratador de trap (0 = nenhum). O vetor fica na memória. */
+    public void setTrapVector(int address) {
+        memory.write(TRAP_VECTOR_ADDRESS, address);
+    }
+
+    /** Endereço do vetor de trap deste núcleo (o registrador de falha vem logo antes). */
+    public int getTrapVectorAddress() {
+        return TRAP_VECTOR_ADDRESS;
+    }
+
+    /** Endereço da causa da falha deste núcleo; o endereço que falhou e o PC vêm em seguida. */
+    public int getFaultRegisterAddress() {
+        return FAULT_REGISTER_ADDRESS;
+    }
+
+    /** Causa da última falha (FAULT_*), FAULT_NONE se não houve nenhuma. */
+    public int getFaultCause() {
+        return faultCause;
+    }
+
+    public int getFaultAddress() {
+        return faultAddress;
+    }
+
+    public int getFaultPc() {
+        return faultPc;
+    }
+
+    public long getFaultCount() {
+        return faultCount;
+    }
+
+    // --- Interrupções ---
+
+    /**
+     * Entrada no tratador: salva o contexto na área de interrupção e desvia para o vetor da
+     * linha aceita. Dentro de um microprograma (banco de sombra ativo) a entrada é adiada
+     * até o MRET, já que o contexto salvo precisa ser o do programa.
+     */
+    private void enterInterrupt() {
+        if (registers.getActiveBank() != 0 || inTrap) {
+            return;
+        }
+        int line = interrupts.accept();
+        if (line == InterruptController.NONE) {
+            return;
+        }
+        saveContext(INTERRUPT_SAVE_AREA_START);
+        handlerEntries++;
+        regs[RegisterFile.PC] = interrupts.getVector(line);
+    }
+
+    /**
+     * Liga um controlador de interrupções a esta CPU (null desliga). O controlador também
+     * precisa ser mapeado na memória (Memory.attach) para ser programado pelo assembly.
+     */
+    public void setInterruptController(InterruptController interrupts) {
+        this.interrupts = interrupts;
+    }
+
+    public InterruptController getInterruptController() {
+        return interrupts;
+    }
+
+    /** Agendador de eventos desta CPU, com o tempo contado em instruções executadas. */
+    public EventScheduler getScheduler() {
+        return scheduler;
+    }
+
     // --- Métodos Auxiliares para IMUL e Context Switching ---
     /**
-     * Salva o estado dos registradores REG0-REG3, PC e FLAGS em uma área da memória.
+     * Salva o estado dos registradores de uso geral, PC e FLAGS em uma área da memória.
+     * Layout: REG0..REGn-1, PC, FLAGS (n + 2 palavras).
      * @param startAddress O endereço inicial da área de salvamento.
      */
     private void saveContext(int startAddress) {
-        memory.write(startAddress, REG0.get());
-        memory.write(startAddress + 1, REG1.get());
-        memory.write(startAddress + 2, REG2.get());
-        memory.write(startAddress + 3, REG3.get());
-        memory.write(startAddress + 4, PC.get());
+        for (int i = 0; i < registerCount; i++) {
+            memory.write(startAddress + i, regs[i]);
+        }
+        memory.write(startAddress + registerCount, regs[RegisterFile.PC]);
         // Salvar flags: compacta Z e N em um int. (N << 1) | Z
-        int packedFlags = (flags.isNegative() ? 1 : 0) << 1 | (flags.isZero() ? 1 : 0);
-        memory.write(startAddress + 5, packedFlags);
-        System.out.println("Contexto salvo em: " + startAddress + " (REGs, PC, Flags)");
+        memory.write(startAddress + registerCount + 1, flags.pack());
+        if (verbose) {
+            System.out.println("Contexto salvo em: " + startAddress + " (REGs, PC, Flags)");
+        }
     }
 
     /**
-     * Restaura o estado dos registradores REG0-REG3, PC e FLAGS de uma área da memória.
+     * Restaura o estado dos registradores de uso geral, PC e FLAGS de uma área da memória.
      * @param startAddress O endereço inicial da área de salvamento.
      */
     private void restoreContext(int startAddress) {
-        REG0.set(memory.read(startAddress));
-        REG1.set(memory.read(startAddress + 1));
-        REG2.set(memory.read(startAddress + 2));
-        REG3.set(memory.read(startAddress + 3));
-        PC.set(memory.read(startAddress + 4)); // PC restaurado para o ponto de retorno
-        int packedFlags = memory.read(startAddress + 5);
-        flags.setNegative(((packedFlags >> 1) & 1) == 1);
-        flags.setZero((packedFlags & 1) == 1);
-        System.out.println("Contexto restaurado de: " + startAddress + " (REGs, PC, Flags)");
+        for (int i = 0; i < registerCount; i++) {
+            regs[i] = memory.read(startAddress + i);
+        }
+        regs[RegisterFile.PC] = memory.read(startAddress + registerCount); // PC restaurado para o ponto de retorno
+        flags.unpack(memory.read(startAddress + registerCount + 1));
+        if (verbose) {
+            System.out.println("Contexto restaurado de: " + startAddress + " (REGs, PC, Flags)");
+        }
     }
 
     // --- Getters para componentes (útil para depuração ou acesso externo) ---
@@ -474,36 +1426,112 @@ public class CPU {
         return memory;
     }
 
+    public int getCoreId() {
+        return coreId;
+    }
+
+    public long getInstructionCount() {
+        return instructionCount;
+    }
+
+    public long getInstructionLimit() {
+        return instructionLimit;
+    }
+
+    /**
+     * Define quantas instruções uma execução (start/begin) pode rodar antes de ser parada.
+     */
+    public void setInstructionLimit(long instructionLimit) {
+        this.instructionLimit = instructionLimit;
+    }
+
+    /**
+     * Registra (ou troca) o serviço chamado por "hcall number" nesta CPU; null remove.
+     */
+    public void registerHostService(int number, HostService service) {
+        if (number < 0 || number >= MAX_HOST_SERVICES) {
+            throw new IllegalArgumentException("Número de serviço do hospedeiro inválido: " + number
+                    + " (0.." + (MAX_HOST_SERVICES - 1) + ")");
+        }
+        hostServices[number] = service;
+    }
+
+    public HostService getHostService(int number) {
+        return number >= 0 && number < MAX_HOST_SERVICES ? hostServices[number] : null;
+    }
+
+    public void setCoherenceModel(CoherenceModel coherence) {
+        this.coherence = coherence;
+    }
+
+    public RegisterFile getRegisters() {
+        return registers;
+    }
+
+    public int getRegisterCount() {
+        return registerCount;
+    }
+
     public Register getPC() {
-        return PC;
+        return registers.view(RegisterFile.PC);
     }
 
+    /**
+     * Retorna uma visão (Register) do registrador de uso geral, para depuração.
+     * O laço de execução não usa estes objetos, acessa o banco diretamente.
+     */
     public Register getRegisterById(int id) {
-        if (id < 0 || id > 3) {
-            throw new IllegalArgumentException("ID de registrador inválido: " + id + ". Esperado 0-3.");
+        checkRegisterId(id);
+        return registers.view(id);
+    }
+
+    public int getRegisterValue(int id) {
+        checkRegisterId(id);
+        return regs[id];
+    }
+
+    public void setRegisterValue(int id, int value) {
+        checkRegisterId(id);
+        regs[id] = value;
+    }
+
+    private void checkRegisterId(int id) {
+        if (id < 0 || id >= registerCount) {
+            throw new IllegalArgumentException("ID de registrador inválido: " + id + ". Esperado 0-" + (registerCount - 1) + ".");
         }
-        return generalPurposeRegisters.get(id);
     }
 
     public Register getStkTOP() {
-        return StkTOP;
+        return registers.view(RegisterFile.STK_TOP);
     }
 
     public Register getStkBOT() {
-        return StkBOT;
+        return registers.view(RegisterFile.STK_BOT);
+    }
+
+    public Stack getStack() {
+        return stack;
+    }
+
+    /**
+     * Define o menor endereço que a pilha pode ocupar; um push abaixo dele é overflow.
+     *
+     * @throws IllegalArgumentException Se o limite estiver fora de [0, StkBOT].
+     */
+    public void setStackLimit(int limitAddress) {
+        stack.setLimit(limitAddress);
     }
     
     // Método para imprimir o estado dos registradores (útil para depuração)
     public void printRegisters() {
-        System.out.println("--- Registers State (PC: " + PC.get() + ") ---");
-        System.out.println("IR:  " + String.format("0x%08X", IR.get()));
-        System.out.println("PC:  " + PC.get());
-        System.out.println("REG0: " + REG0.get());
-        System.out.println("REG1: " + REG1.get());
-        System.out.println("REG2: " + REG2.get());
-        System.out.println("REG3: " + REG3.get());
-        System.out.println("StkTOP: " + StkTOP.get());
-        System.out.println("StkBOT: " + StkBOT.get());
+        System.out.println("--- Registers State (PC: " + regs[RegisterFile.PC] + ") ---");
+        System.out.println("IR:  " + String.format("0x%08X", regs[RegisterFile.IR]));
+        System.out.println("PC:  " + regs[RegisterFile.PC]);
+        for (int i = 0; i < registerCount; i++) {
+            System.out.println("REG" + i + ": " + regs[i]);
+        }
+        System.out.println("StkTOP: " + regs[RegisterFile.STK_TOP]);
+        System.out.println("StkBOT: " + regs[RegisterFile.STK_BOT]);
         System.out.println(flags);
         System.out.println("-----------------");
     }
@@ -515,146 +1543,41 @@ public class CPU {
         CPU cpu = new CPU(memorySize);
         cpu.printRegisters();
 
-        // 1. Carregar um microprograma IMUL (muito simples, apenas um retorno)
-        // Você precisará de um microprograma IMUL REAL que faça a multiplicação!
-        // Exemplo de microprograma IMUL que apenas retorna:
-        // load_return_pc: move <IMUL_RETURN_PC_SAVE_ADDR> %REG0
-        // jmp %REG0
-        //
-        // Para simular, vamos fazer um microprograma dummy que apenas salta de volta.
-        // Na prática, ele faria a multiplicação, salvaria em IMUL_RESULT_ADDRESS
-        // e então retornaria.
-        int[] dummyImulMicroprogram = {
-            (Opcodes.MOVE_MEM_REG << 24) | (0 << 22) | cpu.IMUL_RETURN_PC_SAVE_ADDR, // move IMUL_RETURN_PC_SAVE_ADDR %REG0
-            (Opcodes.JMP << 24) | (0 << 22) // jmp %REG0 (o endereço de salto estaria em REG0)
-            // CUIDADO: Este JMP precisa ser para o valor em REG0.
-            // O formato JMP <mem> usa o operando1 como o endereço literal.
-            // Para pular para um valor em um registrador, você precisaria de uma instrução JMP_REG.
-            // Ou o microprograma IMUL leria o PC de retorno, colocaria no PC, e então um RET.
-            // Vamos mudar para que o microprograma "popule" o PC de retorno diretamente.
-            //
-            // Microprograma IMUL mais realista (Exemplo: REG0 * REG1 -> REG2)
-            // Supondo: operandos em IMUL_OP1_TEMP_ADDR, IMUL_OP2_TEMP_ADDR
-            //           resultado vai para IMUL_RESULT_ADDRESS
-            //           PC de retorno em IMUL_RETURN_PC_SAVE_ADDR
-            //
-            // Pseudo-Assembly do Microprograma IMUL:
-            // imul_start:
-            //   move <IMUL_OP1_TEMP_ADDR> %REG2  ; REG2 = Operando1
-            //   move <IMUL_OP2_TEMP_ADDR> %REG3  ; REG3 = Operando2 (contador/multiplicador)
-            //   move imm 0 %REG1                 ; REG1 = 0 (acumulador para o resultado)
-            //   jz end_imul                      ; Se Operando2 for 0, pula direto para o fim
-            // imul_loop:
-            //   add %REG2 %REG1                  ; REG1 = REG2 + REG1 (acumula Operando1)
-            //   dec %REG3                        ; Decrementa o contador (Operando2)
-            //   jnz imul_loop                    ; Se contador != 0, continua o loop
-            // end_imul:
-            //   move %REG1 <IMUL_RESULT_ADDRESS> ; Salva o resultado em IMUL_RESULT_ADDRESS
-            //   move <IMUL_RETURN_PC_SAVE_ADDR> %REG0 ; REG0 = PC de retorno
-            //   jmp %REG0                        ; Salta de volta para o programa principal
-            //
-            // Codificação desse microprograma (simplificado, você terá que montar o seu):
-            // Assumindo que IMUL_RESULT_ADDRESS e IMUL_RETURN_PC_SAVE_ADDR são endereços válidos
-        };
-
-        // Vamos criar um microprograma IMUL placeholder para teste
-        // Ele apenas copia o primeiro operando para o resultado e retorna.
-        // Você PRECISARÁ substituir isso pelo microprograma de multiplicação real.
-        // O microprograma de verdade terá o laço de soma.
-        int[] placeholderImul = {
-            (Opcodes.MOVE_MEM_REG << 24) | (0 << 22) | cpu.IMUL_OP1_TEMP_ADDR, // move IMUL_OP1_TEMP_ADDR %REG0
-            (Opcodes.MOVE_REG_MEM << 24) | (0 << 22) | cpu.IMUL_RESULT_ADDRESS, // move %REG0 IMUL_RESULT_ADDRESS
-            (Opcodes.MOVE_MEM_REG << 24) | (1 << 22) | cpu.IMUL_RETURN_PC_SAVE_ADDR, // move IMUL_RETURN_PC_SAVE_ADDR %REG1 (use REG1 temporariamente)
-            (Opcodes.JMP << 24) | (1) // JMP para o endereço em REG1. PRECISA DE JMP_REG ou similar para isso.
-                                    // OU FAZER O MICROPROGRAMA ESCREVER DIRETO NO PC!
-                                    // A alternativa mais fácil para o microprograma é:
-                                    // move <IMUL_RETURN_PC_SAVE_ADDR> <PC_REGISTER_ADDRESS_IN_MEMORY_MAP>
-                                    // Mas nosso PC é um objeto Register, não um endereço de memória.
-                                    // Então, o microprograma deve usar um JMP para o endereço LIDO.
-                                    // O JMP na nossa arquitetura é JMP <mem>, onde <mem> é um literal.
-                                    // Vamos fazer o IMUL_RETURN_PC_SAVE_ADDR conter o valor, e o microprograma
-                                    // precisa carregá-lo e então pular para ele.
-                                    // Isso requer JMP_INDIRECT ou JMP para um registrador.
-                                    // Como não temos JMP_REG, o microprograma precisa de uma forma de "voltar".
-                                    // A maneira mais simples é a última instrução do microprograma
-                                    // ser `JMP <valor_do_PC_de_retorno_salvo_anteriormente>`
-                                    // Mas o microprograma NÃO CONHECE o PC de retorno até que a CPU o salve.
-                                    // O microprograma precisa ler IMUL_RETURN_PC_SAVE_ADDR e JMP para ele.
-                                    // Como a CPU.execute() para JMP espera um literal, o microprograma não pode fazer JMP %REG.
-                                    // SOLUÇÃO: O microprograma imul vai para um "ponto de encontro" final,
-                                    // onde a CPU detecta que o microprograma terminou e faz o restoreContext.
-                                    // Ou a instrução final do microprograma IMUL pode ser um tipo de 'RET_IMUL'
-                                    // que a CPU detecta. Vamos adicionar uma instrução especial para isso.
-                                    // Ou podemos simplesmente ter um JMP para um endereço fixo.
-        };
-
-        // ALTERNATIVA: Para o microprograma IMUL, vamos forçar uma instrução "IMUL_END" (0x7F)
-        // que a CPU detecta para restaurar o contexto.
-        // Isso é mais simples do que fazer o microprograma manipular o PC de retorno diretamente
-        // com as instruções de JUMP que temos.
-        
-        // Microprograma IMUL REALISTA (usando REG0 e REG1 para entrada, REG2 para resultado)
-        // Assume que REG0 e REG1 já estão copiados para IMUL_OP1_TEMP_ADDR e IMUL_OP2_TEMP_ADDR.
-        // Resultado em IMUL_RESULT_ADDRESS.
-        // O microprograma opera em REG0 (Multiplicando), REG1 (Multiplicador/Contador), REG2 (Acumulador)
-        // REG0 <--- IMUL_OP1_TEMP_ADDR (Multiplicando)
-        // REG1 <--- IMUL_OP2_TEMP_ADDR (Multiplicador)
-        // REG2 <--- 0 (Acumulador)
-        // REG3 <--- 0 (Constante Zero para comparações)
-        //
-        // imul_microprogram:
-        //  move <IMUL_OP1_TEMP_ADDR> %REG0   ; REG0 = multiplicando
-        //  move <IMUL_OP2_TEMP_ADDR> %REG1   ; REG1 = multiplicador (contador)
-        //  move imm 0 %REG2                 ; REG2 = resultado = 0
-        //  move imm 0 %REG3                 ; REG3 = constante 0
-        //  
-        //  jeq %REG1 %REG3 end_imul_micro  ; se multiplicador (REG1) == 0, salta para o fim
-        //  
-        // imul_loop:
-        //  add %REG0 %REG2                  ; REG2 = REG0 + REG2 (acumula multiplicando)
-        //  inc %REG3                        ; REG3 = REG3 + 1 (contador de loops)
-        //  sub %REG3 %REG1                  ; REG1 <- REG3 - REG1 (subtrai contador do multiplicador original)
-        //  jnz imul_loop                    ; se REG1 != 0, continua (mas isso está errado, deve ser reg3 vs reg1)
+        // 1. Carregar o microprograma IMUL (laço de somas).
+        // Ao entrar, a CPU troca para o banco de sombra com REG0 = multiplicando e
+        // REG1 = multiplicador; o MRET final volta ao banco e ao PC de quem chamou.
         //
-        // Correção da lógica do loop (usando REG1 como contador e decrementando ele):
-        // imul_microprogram:
-        //  move <IMUL_OP1_TEMP_ADDR> %REG0   ; REG0 = multiplicando (multiplicador a ser somado)
-        //  move <IMUL_OP2_TEMP_ADDR> %REG1   ; REG1 = multiplicador (contador)
-        //  move imm 0 %REG2                 ; REG2 = resultado = 0
-        //  
-        //  jz %REG1 end_imul_micro          ; se multiplicador (REG1) == 0, salta para o fim
-        //  
-        // imul_loop:
-        //  add %REG0 %REG2                  ; REG2 = REG0 + REG2 (acumula multiplicando)
-        //  dec %REG1                        ; Decrementa o multiplicador (contador)
-        //  jnz imul_loop                    ; Se REG1 != 0, continua o loop
-        //
-        // end_imul_micro:
-        //  move %REG2 <IMUL_RESULT_ADDRESS> ; Salva o resultado em IMUL_RESULT_ADDRESS
-        //  halt_imul                        ; Nova instrução para indicar o fim do microprograma IMUL
-        //
-        // Adicionando um HALT_IMUL (0x7F) para que a CPU saiba quando restaurar.
-        // Isso é uma extensão da arquitetura, mas simplifica o fluxo.
-
-        // Opcodes e valores precisam ser os que o LOADER geraria!
+        //  move imm 0 %REG2         ; REG2 = resultado = 0
+        //  move imm 0 %REG3         ; REG3 = constante 0
+        //  jeq %REG1 %REG3 end      ; multiplicador == 0 -> fim
+        //  jgt %REG1 %REG3 loop     ; multiplicador > 0 -> laço
+        //  sub %REG3 %REG1          ; REG1 = 0 - REG1 (multiplicador negativo)
+        //  sub %REG3 %REG0          ; REG0 = 0 - REG0
+        // loop:
+        //  add %REG0 %REG2          ; REG2 += REG0
+        //  move imm 1 %REG3
+        //  sub %REG1 %REG3          ; REG3 = REG1 - 1
+        //  move %REG3 %REG1         ; REG1-- (move não altera as flags do sub)
+        //  jnz loop
+        // end:
+        //  move %REG2 <IMUL_RESULT_ADDRESS>
+        //  mret
+        int loop = cpu.IMUL_MICROPROGRAM_START + 6;
+        int end = cpu.IMUL_MICROPROGRAM_START + 11;
         int[] actualImulMicroprogram = {
-            (Opcodes.MOVE_MEM_REG << 24) | (0 << 22) | cpu.IMUL_OP1_TEMP_ADDR,   // move IMUL_OP1_TEMP_ADDR %REG0
-            (Opcodes.MOVE_MEM_REG << 24) | (1 << 22) | cpu.IMUL_OP2_TEMP_ADDR,   // move IMUL_OP2_TEMP_ADDR %REG1
-            (Opcodes.MOVE_IMM_REG << 24) | (2 << 22) | 0,                       // move imm 0 %REG2 (resultado)
-
-            // Loop para multiplicação (laço de somas)
-            // JZ %REG1 imul_end_address (pula se REG1 for 0)
-            (Opcodes.JZ << 24) | (cpu.IMUL_MICROPROGRAM_START + 7), // JZ REG1 para end_imul_micro (PC+7)
-                                                                    // Hardcoded jump target, idealmente seria via label do assembler
-
-            // imul_loop_start: (PC atual + 4)
-            (Opcodes.ADD_REG_REG << 24) | (0 << 22) | (2 << 20), // add %REG0 %REG2 (REG2 += REG0)
-            (Opcodes.INC_REG << 24) | (1 << 22),              // dec %REG1 (decrementa contador)
-            (Opcodes.JNZ << 24) | (cpu.IMUL_MICROPROGRAM_START + 4), // jnz imul_loop_start (volta se REG1 != 0)
-
-            // imul_end_micro: (PC atual + 7)
-            (Opcodes.MOVE_REG_MEM << 24) | (2 << 22) | cpu.IMUL_RESULT_ADDRESS, // move %REG2 IMUL_RESULT_ADDRESS
-            Opcodes.HALT // Use HALT como instrução para retornar do microprograma, a CPU vai restaurar o contexto
+            InstructionSet.encode(Opcodes.MOVE_IMM_REG, 0, 2),
+            InstructionSet.encode(Opcodes.MOVE_IMM_REG, 0, 3),
+            InstructionSet.encode(Opcodes.JEQ, 1, 3, end),
+            InstructionSet.encode(Opcodes.JGT, 1, 3, loop),
+            InstructionSet.encode(Opcodes.SUB_REG_REG, 3, 1),
+            InstructionSet.encode(Opcodes.SUB_REG_REG, 3, 0),
+            InstructionSet.encode(Opcodes.ADD_REG_REG, 0, 2),                        // loop
+            InstructionSet.encode(Opcodes.MOVE_IMM_REG, 1, 3),
+            InstructionSet.encode(Opcodes.SUB_REG_REG, 1, 3),
+            InstructionSet.encode(Opcodes.MOVE_REG_REG, 3, 1),
+            InstructionSet.encode(Opcodes.JNZ, loop),
+            InstructionSet.encode(Opcodes.MOVE_REG_MEM, 2, cpu.IMUL_RESULT_ADDRESS),  // end
+            InstructionSet.encode(Opcodes.MRET)
         };
         cpu.loadImulMicroprogram(actualImulMicroprogram);
 
@@ -666,11 +1589,11 @@ public class CPU {
         // move <IMUL_RESULT_ADDRESS> %REG2 ; REG2 = 15
         // halt
         int[] program = {
-            (Opcodes.MOVE_IMM_REG << 24) | (0 << 22) | 5,  // move imm 5 %REG0
-            (Opcodes.MOVE_IMM_REG << 24) | (1 << 22) | 3,  // move imm 3 %REG1
-            (Opcodes.IMUL << 24) | (0 << 22) | (1 << 20),  // imul %REG0 %REG1
-            (Opcodes.MOVE_MEM_REG << 24) | (2 << 22) | cpu.IMUL_RESULT_ADDRESS, // move IMUL_RESULT_ADDRESS %REG2
-            Opcodes.HALT                                 // halt
+            InstructionSet.encode(Opcodes.MOVE_IMM_REG, 5, 0),  // move imm 5 %REG0
+            InstructionSet.encode(Opcodes.MOVE_IMM_REG, 3, 1),  // move imm 3 %REG1
+            InstructionSet.encode(Opcodes.IMUL, 0, 1),  // imul %REG0 %REG1
+            InstructionSet.encode(Opcodes.MOVE_MEM_REG, cpu.IMUL_RESULT_ADDRESS, 2), // move IMUL_RESULT_ADDRESS %REG2
+            InstructionSet.encode(Opcodes.HALT)                                 // halt
         };
 
         // O programa principal começa após o microprograma IMUL
@@ -0,0 +1,69 @@
+package core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool de CPUs reutilizáveis, seguro para uso por várias threads.
+ *
+ * acquire() entrega uma CPU no estado inicial (microprograma IMUL instalado, registradores
+ * e memória zerados); release() faz reset() e a devolve ao pool. Assim o custo de criar
+ * Memory, registradores e pilha é pago uma vez por CPU, não uma vez por execução.
+ * Quando o pool está vazio, acquire() cria uma CPU nova; quando está cheio, release()
+ * simplesmente descarta a CPU devolvida.
+ */
+public class CPUPool {
+    private final int memorySize;
+    private final int registerCount;
+    private final int[] imulMicroprogram; // Instalado em toda CPU criada pelo pool (pode ser null)
+    private final BlockingQueue<CPU> idle;
+
+    /**
+     * @param memorySize       Tamanho da memória de cada CPU.
+     * @param registerCount    Registradores de uso geral de cada CPU.
+     * @param imulMicroprogram Microprograma IMUL a instalar (null para nenhum).
+     * @param maxIdle          Máximo de CPUs guardadas no pool.
+     */
+    public CPUPool(int memorySize, int registerCount, int[] imulMicroprogram, int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("Tamanho do pool deve ser positivo: " + maxIdle);
+        }
+        this.memorySize = memorySize;
+        this.registerCount = registerCount;
+        this.imulMicroprogram = imulMicroprogram;
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * @return Uma CPU pronta para carregar um programa (verbose desligado).
+     */
+    public CPU acquire() {
+        CPU cpu = idle.poll();
+        if (cpu == null) {
+            cpu = new CPU(memorySize, registerCount);
+            cpu.setVerbose(false);
+            if (imulMicroprogram != null) {
+                cpu.loadImulMicroprogram(imulMicroprogram);
+            }
+        }
+        return cpu;
+    }
+
+    /**
+     * Devolve uma CPU obtida por acquire(). Ela é resetada antes de voltar ao pool.
+     * Não use a CPU depois de devolvê-la. Se ela estiver numa runAsync cancelada, espera a
+     * thread de simulação parar (CPU.whenStopped) antes do reset.
+     */
+    public void release(CPU cpu) {
+        cpu.whenStopped().join();
+        if (cpu.isRunning()) {
+            throw new IllegalStateException("CPU devolvida ao pool ainda em execução.");
+        }
+        cpu.reset();
+        idle.offer(cpu); // Pool cheio: a CPU é descartada
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,289 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Um nível de cache associativo por conjuntos, só de temporização: guarda quais linhas
+ * estariam no cache (tags), não os dados, que continuam todos na Memory. Cada acesso
+ * devolve a latência estimada em ciclos, somando a do próximo nível nas faltas.
+ *
+ * Política de escrita:
+ *  - WRITE_BACK: escrita com alocação; a linha fica suja e só vai para o próximo nível
+ *    quando é substituída (write-back, custo somado ao acesso que a substituiu);
+ *  - WRITE_THROUGH: toda escrita vai também para o próximo nível; falta de escrita não
+ *    aloca a linha.
+ *
+ * Substituição: LRU (usada há mais tempo), PLRU (árvore de bits por conjunto, exige
+ * associatividade potência de 2) ou RANDOM.
+ */
+public class Cache {
+    public static final int REPLACE_LRU = 0;
+    public static final int REPLACE_PLRU = 1;
+    public static final int REPLACE_RANDOM = 2;
+
+    public static final int WRITE_BACK = 0;
+    public static final int WRITE_THROUGH = 1;
+
+    private final String name;
+    private final int sets;
+    private final int ways;
+    private final int lineShift;
+    private final int replacement;
+    private final int writePolicy;
+    private final int hitLatency;
+
+    private Cache next;            // Próximo nível (null = memória)
+    private int memoryLatency;     // Latência da memória quando não há próximo nível
+
+    // Linhas (struct-of-arrays), índice = conjunto * ways + way
+    private final int[] tag;       // Número da linha (endereço / palavras por linha)
+    private final boolean[] valid;
+    private final boolean[] dirty;
+    private final long[] lastUse;  // LRU
+    private final int[] plruBits;  // PLRU: árvore de ways - 1 bits por conjunto
+    private long clock;
+    private int random = 0x6B43A9B5;
+
+    // Estatísticas
+    private long readHits;
+    private long readMisses;
+    private long writeHits;
+    private long writeMisses;
+    private long evictions;
+    private long writebacks;
+    private long cycles;
+
+    /**
+     * @param name        Nome do nível nos relatórios (ex: "L1D").
+     * @param sizeWords   Capacidade em palavras.
+     * @param ways        Associatividade.
+     * @param lineWords   Palavras por linha (potência de 2).
+     * @param replacement REPLACE_LRU, REPLACE_PLRU ou REPLACE_RANDOM.
+     * @param writePolicy WRITE_BACK ou WRITE_THROUGH.
+     * @param hitLatency  Ciclos de um acerto neste nível.
+     */
+    public Cache(String name, int sizeWords, int ways, int lineWords, int replacement, int writePolicy, int hitLatency) {
+        if (lineWords <= 0 || Integer.bitCount(lineWords) != 1) {
+            throw new IllegalArgumentException("Palavras por linha deve ser potência de 2: " + lineWords);
+        }
+        if (ways <= 0 || sizeWords % (ways * lineWords) != 0) {
+            throw new IllegalArgumentException("Tamanho " + sizeWords + " não é múltiplo de vias x linha (" + ways + " x " + lineWords + ")");
+        }
+        int setCount = sizeWords / (ways * lineWords);
+        if (setCount <= 0 || Integer.bitCount(setCount) != 1) {
+            throw new IllegalArgumentException("Quantidade de conjuntos deve ser potência de 2: " + setCount);
+        }
+        if (replacement == REPLACE_PLRU && (Integer.bitCount(ways) != 1 || ways > 32)) {
+            throw new IllegalArgumentException("PLRU exige associatividade potência de 2 até 32: " + ways);
+        }
+        if (replacement < REPLACE_LRU || replacement > REPLACE_RANDOM) {
+            throw new IllegalArgumentException("Política de substituição desconhecida: " + replacement);
+        }
+        if (writePolicy != WRITE_BACK && writePolicy != WRITE_THROUGH) {
+            throw new IllegalArgumentException("Política de escrita desconhecida: " + writePolicy);
+        }
+        this.name = name;
+        this.sets = setCount;
+        this.ways = ways;
+        this.lineShift = Integer.numberOfTrailingZeros(lineWords);
+        this.replacement = replacement;
+        this.writePolicy = writePolicy;
+        this.hitLatency = hitLatency;
+        int lines = setCount * ways;
+        this.tag = new int[lines];
+        this.valid = new boolean[lines];
+        this.dirty = new boolean[lines];
+        this.lastUse = new long[lines];
+        this.plruBits = new int[setCount];
+    }
+
+    /** Define o que está depois deste nível: outro cache, ou a memória com a latência dada. */
+    void connect(Cache next, int memoryLatency) {
+        this.next = next;
+        this.memoryLatency = memoryLatency;
+    }
+
+    /**
+     * Acesso a um endereço físico.
+     *
+     * @return Latência estimada em ciclos.
+     */
+    public int access(int address, boolean write) {
+        int line = address >>> lineShift;
+        int set = line & (sets - 1);
+        int first = set * ways;
+        int cost = hitLatency;
+        for (int w = 0; w < ways; w++) {
+            int e = first + w;
+            if (valid[e] && tag[e] == line) { // Acerto
+                touch(set, w);
+                if (write) {
+                    writeHits++;
+                    if (writePolicy == WRITE_BACK) {
+                        dirty[e] = true;
+                    } else {
+                        cost += below(address, true);
+                    }
+                } else {
+                    readHits++;
+                }
+                cycles += cost;
+                return cost;
+            }
+        }
+        // Falta
+        if (write) {
+            writeMisses++;
+            if (writePolicy == WRITE_THROUGH) { // Sem alocação: a escrita só passa adiante
+                cost += below(address, true);
+                cycles += cost;
+                return cost;
+            }
+        } else {
+            readMisses++;
+        }
+        cost += below(address, false); // Traz a linha do próximo nível
+        int w = victim(set);
+        int e = first + w;
+        if (valid[e]) {
+            evictions++;
+            if (dirty[e]) {
+                writebacks++;
+                cost += below(tag[e] << lineShift, true);
+            }
+        }
+        tag[e] = line;
+        valid[e] = true;
+        dirty[e] = write && writePolicy == WRITE_BACK;
+        touch(set, w);
+        cycles += cost;
+        return cost;
+    }
+
+    private int below(int address, boolean write) {
+        return next != null ? next.access(address, write) : memoryLatency;
+    }
+
+    private int victim(int set) {
+        int first = set * ways;
+        for (int w = 0; w < ways; w++) {
+            if (!valid[first + w]) {
+                return w;
+            }
+        }
+        switch (replacement) {
+            case REPLACE_PLRU: {
+                // Desce a árvore seguindo os bits (0 = esquerda é a menos usada)
+                int bits = plruBits[set];
+                int node = 0;
+                int levels = Integer.numberOfTrailingZeros(ways);
+                for (int l = 0; l < levels; l++) {
+                    node = 2 * node + 1 + ((bits >>> node) & 1);
+                }
+                return node - (ways - 1);
+            }
+            case REPLACE_RANDOM:
+                random ^= random << 13;
+                random ^= random >>> 17;
+                random ^= random << 5;
+                return Math.floorMod(random, ways);
+            default: { // LRU
+                int oldest = 0;
+                for (int w = 1; w < ways; w++) {
+                    if (lastUse[first + w] < lastUse[first + oldest]) {
+                        oldest = w;
+                    }
+                }
+                return oldest;
+            }
+        }
+    }
+
+    private void touch(int set, int way) {
+        if (replacement == REPLACE_LRU) {
+            lastUse[set * ways + way] = ++clock;
+        } else if (replacement == REPLACE_PLRU) {
+            // Aponta cada nó do caminho para o lado oposto ao acessado
+            int bits = plruBits[set];
+            int node = way + ways - 1;
+            while (node > 0) {
+                int parent = (node - 1) >>> 1;
+                boolean right = node == 2 * parent + 2;
+                bits = right ? bits & ~(1 << parent) : bits | (1 << parent);
+                node = parent;
+            }
+            plruBits[set] = bits;
+        }
+    }
+
+    /** Invalida todas as linhas (sem write-back) e zera as estatísticas. */
+    public void reset() {
+        Arrays.fill(valid, false);
+        Arrays.fill(dirty, false);
+        Arrays.fill(plruBits, 0);
+        readHits = 0;
+        readMisses = 0;
+        writeHits = 0;
+        writeMisses = 0;
+        evictions = 0;
+        writebacks = 0;
+        cycles = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getHitLatency() {
+        return hitLatency;
+    }
+
+    public long getHits() {
+        return readHits + writeHits;
+    }
+
+    public long getMisses() {
+        return readMisses + writeMisses;
+    }
+
+    public long getReadHits() {
+        return readHits;
+    }
+
+    public long getReadMisses() {
+        return readMisses;
+    }
+
+    public long getWriteHits() {
+        return writeHits;
+    }
+
+    public long getWriteMisses() {
+        return writeMisses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getWritebacks() {
+        return writebacks;
+    }
+
+    /** Ciclos gastos pelos acessos que começaram neste nível (inclui os níveis abaixo). */
+    public long getCycles() {
+        return cycles;
+    }
+
+    public double getMissRate() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : (double) getMisses() / total;
+    }
+
+    public void printStatistics() {
+        System.out.printf("  %-4s %d conjuntos x %d vias x %d palavras: leituras %d/%d, escritas %d/%d (acertos/faltas), "
+                        + "taxa de falta %.4f, %d substituições, %d write-backs%n",
+                          name, sets, ways, 1 << lineShift, readHits, readMisses, writeHits, writeMisses,
+                          getMissRate(), evictions, writebacks);
+    }
+}
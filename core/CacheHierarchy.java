@@ -0,0 +1,133 @@
+package core;
+
+/**
+ * Hierarquia de caches entre a CPU e a Memory: L1 de instruções e L1 de dados separados,
+ * L2 unificado e a memória. Só temporização (ver Cache): os dados continuam na Memory e
+ * o resultado dos programas não muda; o que muda são os contadores e a estimativa de ciclos.
+ *
+ * Estimativa de ciclos: cada busca de instrução custa a latência do L1I (um acerto = um
+ * ciclo por instrução com as latências padrão) e cada acesso a dados soma a latência do
+ * L1D, inclusive as faltas e write-backs propagados até a memória. Não há sobreposição
+ * entre acessos (sem pipeline nem buffers de escrita).
+ *
+ * Acessos modelados: busca de instruções, leituras e escritas de dados das instruções
+ * (inclusive cas/faa e as de bloco, palavra a palavra). A pilha não passa pela hierarquia:
+ * o seu topo já fica no cache da Stack.
+ */
+public class CacheHierarchy {
+    public static final int DEFAULT_MEMORY_LATENCY = 100;
+
+    private final Cache l1i;
+    private final Cache l1d;
+    private final Cache l2;
+    private final int memoryLatency;
+
+    // Contadores de acessos que entraram pela CPU
+    private long fetches;
+    private long reads;
+    private long writes;
+
+    /**
+     * @param l1i           L1 de instruções.
+     * @param l1d           L1 de dados.
+     * @param l2            L2 unificado, ou null para ligar os L1 direto na memória.
+     * @param memoryLatency Ciclos de um acesso à memória.
+     */
+    public CacheHierarchy(Cache l1i, Cache l1d, Cache l2, int memoryLatency) {
+        this.l1i = l1i;
+        this.l1d = l1d;
+        this.l2 = l2;
+        this.memoryLatency = memoryLatency;
+        l1i.connect(l2, memoryLatency);
+        l1d.connect(l2, memoryLatency);
+        if (l2 != null) {
+            l2.connect(null, memoryLatency);
+        }
+    }
+
+    /**
+     * Configuração padrão: L1I e L1D de 256 palavras, 2 vias, linhas de 8 palavras, 1 ciclo;
+     * L2 de 4096 palavras, 8 vias, 10 ciclos; memória a 100 ciclos. Todos LRU e write-back.
+     */
+    public static CacheHierarchy createDefault() {
+        return new CacheHierarchy(
+                new Cache("L1I", 256, 2, 8, Cache.REPLACE_LRU, Cache.WRITE_BACK, 1),
+                new Cache("L1D", 256, 2, 8, Cache.REPLACE_LRU, Cache.WRITE_BACK, 1),
+                new Cache("L2", 4096, 8, 8, Cache.REPLACE_LRU, Cache.WRITE_BACK, 10),
+                DEFAULT_MEMORY_LATENCY);
+    }
+
+    /** Busca de instrução no endereço físico dado. */
+    public int fetch(int address) {
+        fetches++;
+        return l1i.access(address, false);
+    }
+
+    /** Leitura de dados no endereço físico dado. */
+    public int read(int address) {
+        reads++;
+        return l1d.access(address, false);
+    }
+
+    /** Escrita de dados no endereço físico dado. */
+    public int write(int address) {
+        writes++;
+        return l1d.access(address, true);
+    }
+
+    /** Ciclos estimados de todas as buscas e acessos a dados até agora. */
+    public long getEstimatedCycles() {
+        return l1i.getCycles() + l1d.getCycles();
+    }
+
+    /** Invalida todos os níveis e zera os contadores. */
+    public void reset() {
+        l1i.reset();
+        l1d.reset();
+        if (l2 != null) {
+            l2.reset();
+        }
+        fetches = 0;
+        reads = 0;
+        writes = 0;
+    }
+
+    public Cache getL1I() {
+        return l1i;
+    }
+
+    public Cache getL1D() {
+        return l1d;
+    }
+
+    public Cache getL2() {
+        return l2;
+    }
+
+    public int getMemoryLatency() {
+        return memoryLatency;
+    }
+
+    public long getFetches() {
+        return fetches;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    public void printStatistics() {
+        System.out.println("Caches: " + fetches + " buscas, " + reads + " leituras, " + writes + " escritas");
+        l1i.printStatistics();
+        l1d.printStatistics();
+        if (l2 != null) {
+            l2.printStatistics();
+        }
+        long cycles = getEstimatedCycles();
+        System.out.printf("  Ciclos estimados: %d (%.2f por instrução)%n", cycles, fetches == 0 ? 0.0 : (double) cycles / fetches);
+    }
+}
@@ -0,0 +1,136 @@
+package core;
+
+/**
+ * Modelo simplificado de custo de coerência entre núcleos que compartilham uma Memory.
+ *
+ * Não altera os dados (a Memory continua sendo a única cópia); apenas acompanha, por
+ * linha de memória, quais núcleos têm uma cópia (sharers) e qual núcleo tem a linha
+ * modificada (owner), no estilo de um protocolo MSI:
+ *  - leitura de uma linha que está modificada por outro núcleo: transferência;
+ *  - escrita em uma linha com cópias em outros núcleos: invalidação de cada cópia;
+ *  - acessos a linhas que o núcleo já tem no estado certo custam só HIT_COST.
+ * Instruções atômicas (CAS/FAA) contam como escrita.
+ *
+ * O estado das linhas é protegido por travas listradas (uma trava para várias linhas),
+ * para que núcleos rodando em threads diferentes possam atualizá-lo ao mesmo tempo.
+ * Os contadores de cada núcleo só são alterados pelo próprio núcleo.
+ */
+public class CoherenceModel {
+    public static final int MAX_CORES = 64; // Limite do bitmask de sharers (long)
+    public static final int DEFAULT_LINE_WORDS = 8;
+
+    // Custos em ciclos (valores ilustrativos)
+    public static final int HIT_COST = 1;
+    public static final int TRANSFER_COST = 40;
+    public static final int INVALIDATE_COST = 10;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final int lineShift;  // log2(palavras por linha)
+    private final int[] owner;    // Núcleo com a linha modificada, ou -1
+    private final long[] sharers; // Bit i ligado = núcleo i tem cópia da linha
+    private final Object[] locks;
+
+    // Contadores por núcleo
+    private final long[] accesses;
+    private final long[] transfers;
+    private final long[] invalidations;
+    private final long[] cost;
+
+    /**
+     * @param memoryWords Tamanho da memória em palavras.
+     * @param lineWords   Palavras por linha (potência de 2).
+     * @param cores       Quantidade de núcleos (até MAX_CORES).
+     */
+    public CoherenceModel(int memoryWords, int lineWords, int cores) {
+        if (lineWords <= 0 || Integer.bitCount(lineWords) != 1) {
+            throw new IllegalArgumentException("Tamanho de linha deve ser potência de 2: " + lineWords);
+        }
+        if (cores <= 0 || cores > MAX_CORES) {
+            throw new IllegalArgumentException("Quantidade de núcleos deve estar entre 1 e " + MAX_CORES + ": " + cores);
+        }
+        this.lineShift = Integer.numberOfTrailingZeros(lineWords);
+        int lines = (memoryWords + lineWords - 1) >> lineShift;
+        this.owner = new int[lines];
+        java.util.Arrays.fill(owner, -1);
+        this.sharers = new long[lines];
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.accesses = new long[cores];
+        this.transfers = new long[cores];
+        this.invalidations = new long[cores];
+        this.cost = new long[cores];
+    }
+
+    public void onRead(int core, int address) {
+        int line = address >>> lineShift;
+        if (line >= owner.length) {
+            return; // Fora da memória: a própria Memory vai acusar o erro
+        }
+        long bit = 1L << core;
+        long c = HIT_COST;
+        synchronized (locks[line & (LOCK_STRIPES - 1)]) {
+            int o = owner[line];
+            if (o != -1 && o != core) {
+                // Linha modificada em outro núcleo: ele devolve os dados e vira apenas sharer
+                owner[line] = -1;
+                transfers[core]++;
+                c += TRANSFER_COST;
+            }
+            sharers[line] |= bit;
+        }
+        accesses[core]++;
+        cost[core] += c;
+    }
+
+    public void onWrite(int core, int address) {
+        int line = address >>> lineShift;
+        if (line >= owner.length) {
+            return;
+        }
+        long bit = 1L << core;
+        long c = HIT_COST;
+        synchronized (locks[line & (LOCK_STRIPES - 1)]) {
+            if (owner[line] != core) {
+                long others = sharers[line] & ~bit;
+                if (owner[line] != -1) {
+                    transfers[core]++;
+                    c += TRANSFER_COST;
+                }
+                int n = Long.bitCount(others);
+                invalidations[core] += n;
+                c += (long) n * INVALIDATE_COST;
+                owner[line] = core;
+                sharers[line] = bit;
+            }
+        }
+        accesses[core]++;
+        cost[core] += c;
+    }
+
+    public long getAccesses(int core) {
+        return accesses[core];
+    }
+
+    public long getTransfers(int core) {
+        return transfers[core];
+    }
+
+    public long getInvalidations(int core) {
+        return invalidations[core];
+    }
+
+    public long getCost(int core) {
+        return cost[core];
+    }
+
+    public void printStatistics() {
+        System.out.println("--- Coerência (custo estimado por núcleo) ---");
+        for (int i = 0; i < cost.length; i++) {
+            System.out.printf("Núcleo %d: acessos=%d transferências=%d invalidações=%d custo=%d ciclos%n",
+                              i, accesses[i], transfers[i], invalidations[i], cost[i]);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package core;
+
+import model.Instruction;
+
+/**
+ * Imagem de código já decodificada: as palavras originais, a Instruction de cada uma e
+ * os limites de bloco básico. É imutável (Instruction não tem setters), então uma mesma
+ * instância é compartilhada, somente leitura, por todas as CPUs que carregam o mesmo
+ * programa no mesmo endereço (ver DecodedProgramCache).
+ *
+ * Um bloco básico começa no início da imagem, em cada destino de desvio dentro da imagem
+ * e logo depois de cada instrução que transfere o controle (desvios, CALL/RET, IMUL/MRET, IRET,
+ * HALT).
+ */
+public final class DecodedProgram {
+    private final int base;
+    private final int[] words;
+    private final Instruction[] instructions; // null onde a palavra não é uma instrução válida
+    private final boolean[] blockStart;
+    private final int blockCount;
+
+    DecodedProgram(int[] image, int base) {
+        this.base = base;
+        this.words = image.clone();
+        this.instructions = new Instruction[words.length];
+        this.blockStart = new boolean[words.length];
+        for (int i = 0; i < words.length; i++) {
+            instructions[i] = InstructionSet.decode(words[i]);
+        }
+
+        // Limites de bloco
+        if (words.length > 0) {
+            blockStart[0] = true;
+        }
+        for (int i = 0; i < words.length; i++) {
+            Instruction in = instructions[i];
+            if (in == null || !endsBlock(in.getOpcode())) {
+                continue;
+            }
+            if (i + 1 < words.length) {
+                blockStart[i + 1] = true;
+            }
+            int target = branchTarget(in);
+            if (target >= base && target < base + words.length) {
+                blockStart[target - base] = true;
+            }
+        }
+        int count = 0;
+        for (boolean b : blockStart) {
+            if (b) {
+                count++;
+            }
+        }
+        this.blockCount = count;
+    }
+
+    private static boolean endsBlock(int opcode) {
+        switch (opcode) {
+            case Opcodes.JMP: case Opcodes.JN: case Opcodes.JZ: case Opcodes.JNZ:
+            case Opcodes.JEQ: case Opcodes.JGT: case Opcodes.JLW:
+            case Opcodes.CALL: case Opcodes.RET:
+            case Opcodes.IMUL: case Opcodes.MRET: case Opcodes.IRET:
+            case Opcodes.HALT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Endereço de destino de um desvio direto, ou -1 (RET, MRET, IRET, HALT, IMUL)
+    private static int branchTarget(Instruction in) {
+        switch (in.getOpcode()) {
+            case Opcodes.JMP: case Opcodes.JN: case Opcodes.JZ: case Opcodes.JNZ: case Opcodes.CALL:
+                return in.getOperand1();
+            case Opcodes.JEQ: case Opcodes.JGT: case Opcodes.JLW:
+                return in.getOperand3();
+            default:
+                return -1;
+        }
+    }
+
+    public int getBase() {
+        return base;
+    }
+
+    public int length() {
+        return words.length;
+    }
+
+    public boolean contains(int address) {
+        return address >= base && address - base < words.length;
+    }
+
+    /** Se a faixa [address, address + length) tem alguma palavra da imagem. */
+    public boolean overlaps(int address, int length) {
+        return length > 0 && address < base + words.length && base < address + length;
+    }
+
+    /** Palavra original no endereço (que deve estar em contains()). */
+    public int wordAt(int address) {
+        return words[address - base];
+    }
+
+    /** Instruction decodificada no endereço, ou null se a palavra não for válida. */
+    public Instruction instructionAt(int address) {
+        return instructions[address - base];
+    }
+
+    public boolean isBlockStart(int address) {
+        return contains(address) && blockStart[address - base];
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    // Usado pelo cache para confirmar que a imagem é a mesma (não só o mesmo hash)
+    boolean matches(int[] image, int base) {
+        return this.base == base && java.util.Arrays.equals(words, image);
+    }
+}
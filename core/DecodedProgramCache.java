@@ -0,0 +1,53 @@
+package core;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache, compartilhado por todo o processo, de programas já decodificados.
+ *
+ * A chave é o endereço de carga mais um hash do conteúdo da imagem; colisões de hash são
+ * resolvidas comparando o conteúdo, então duas imagens diferentes nunca compartilham
+ * uma entrada. Pode ser usado por várias threads ao mesmo tempo: na corrida, duas threads
+ * podem decodificar a mesma imagem, mas só uma das cópias fica no cache.
+ *
+ * O cache não tem política de substituição: ao passar de MAX_ENTRIES imagens ele é
+ * simplesmente esvaziado (as CPUs que já têm a sua instância continuam usando-a).
+ */
+public final class DecodedProgramCache {
+    public static final int MAX_ENTRIES = 4096;
+
+    // hash (conteúdo, tamanho e endereço) -> programa; numa colisão, rara, fica a primeira imagem
+    private static final ConcurrentHashMap<Long, DecodedProgram> CACHE = new ConcurrentHashMap<>();
+
+    private DecodedProgramCache() {
+    }
+
+    /**
+     * @return O programa decodificado para esta imagem carregada neste endereço.
+     */
+    public static DecodedProgram get(int[] image, int base) {
+        long key = ((long) Arrays.hashCode(image) << 32) ^ (base & 0xFFFFFFFFL) ^ ((long) image.length << 20);
+        DecodedProgram program = CACHE.get(key);
+        if (program != null) {
+            if (program.matches(image, base)) {
+                return program;
+            }
+            return new DecodedProgram(image, base); // Colisão de hash: decodifica só para esta CPU
+        }
+        program = new DecodedProgram(image, base);
+        if (CACHE.size() >= MAX_ENTRIES) {
+            CACHE.clear();
+        }
+        DecodedProgram previous = CACHE.putIfAbsent(key, program);
+        return previous != null && previous.matches(image, base) ? previous : program;
+    }
+
+    public static int size() {
+        return CACHE.size();
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+}
@@ -0,0 +1,31 @@
+package core;
+
+/**
+ * Dispositivo mapeado em memória (MMIO).
+ *
+ * Depois de Memory.attach(base, dispositivo), leituras e escritas da CPU nos endereços
+ * [base, base + size()) são desviadas para read/write do dispositivo, com o deslocamento
+ * relativo à base. Os dispositivos podem ser acessados por outras threads (ex: a thread
+ * de transferência do DMA), então os seus registradores devem ser seguros para isso.
+ */
+public interface Device {
+
+    /** Quantidade de palavras (registradores) que o dispositivo ocupa no mapa de memória. */
+    int size();
+
+    /** Leitura do registrador no deslocamento offset (0 <= offset < size()). */
+    int read(int offset);
+
+    /**
+     * Escrita no registrador no deslocamento offset (0 <= offset < size()).
+     *
+     * read e write são chamados pela CPU com valores vindos do programa e não devem lançar
+     * exceção por causa deles: a CPU não os converte em traps. Falhas (faixa inválida, erro de
+     * E/S, comando recusado) vão para um registrador de status ou de erro do dispositivo.
+     */
+    void write(int offset, int value);
+
+    /** Volta ao estado inicial; chamado por Memory.reset(). */
+    default void reset() {
+    }
+}
@@ -0,0 +1,205 @@
+package core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Controlador de DMA: copia ou preenche blocos de memória enquanto a CPU continua
+ * executando. É controlado por registradores mapeados em memória (ver Device):
+ *
+ *   base + 0  SRC     endereço de origem (COPY) ou valor a gravar (FILL)
+ *   base + 1  DST     endereço de destino
+ *   base + 2  LENGTH  quantidade de palavras
+ *   base + 3  CONTROL escrever CMD_COPY ou CMD_FILL inicia a transferência
+ *   base + 4  STATUS  STATUS_IDLE, STATUS_BUSY, STATUS_DONE ou STATUS_ERROR (somente leitura)
+ *   base + 5  REJECTED comandos recusados desde o último reset (somente leitura)
+ *
+ * Exemplo em assembly (DMA mapeado em 900, copiando 64 palavras de 400 para 600):
+ *   move imm 400 %reg0
+ *   move %reg0 900
+ *   move imm 600 %reg0
+ *   move %reg0 901
+ *   move imm 64 %reg0
+ *   move %reg0 902
+ *   move imm 1 %reg0
+ *   move %reg0 903      ; inicia
+ *   ...                 ; a CPU continua executando
+ *   espera:
+ *   move 904 %reg1
+ *   move imm 2 %reg2
+ *   jeq %reg1 %reg2 pronto
+ *   jmp espera
+ *
+ * A transferência é feita de uma vez (Memory.copy/fill, ou seja, System.arraycopy) numa
+ * thread do controlador. Um comando recusado (DMA ocupado ou comando desconhecido) não
+ * inicia nada e soma 1 em REJECTED; com o DMA ocupado, STATUS continua BUSY até a
+ * transferência em andamento terminar, para que quem espera por ela não a dê por encerrada.
+ *
+ * Modelo de ordenação em relação às escritas da própria CPU:
+ *  - tudo que a CPU escreveu antes de escrever em CONTROL é visto pela transferência;
+ *  - tudo que a transferência escreveu é visto pela CPU depois que ela lê STATUS_DONE
+ *    (STATUS é volátil: a gravação de DONE publica os dados copiados);
+ *  - enquanto STATUS é BUSY, o conteúdo das faixas de origem e destino é indefinido para
+ *    a CPU: uma leitura pode ver o valor antigo ou o novo, e uma escrita da CPU no destino
+ *    pode ser sobrescrita pela transferência. Programas devem esperar DONE (ou a
+ *    interrupção de fim) antes de tocar nessas faixas.
+ * A transferência acessa só a RAM (não passa por outros dispositivos) e não invalida o
+ * código pré-decodificado de CPUs; DMA sobre código em execução não é suportado.
+ */
+public class DmaController implements Device {
+    public static final int REG_SRC = 0;
+    public static final int REG_DST = 1;
+    public static final int REG_LENGTH = 2;
+    public static final int REG_CONTROL = 3;
+    public static final int REG_STATUS = 4;
+    public static final int REG_REJECTED = 5;
+    public static final int REGISTER_COUNT = 6;
+
+    public static final int CMD_COPY = 1;
+    public static final int CMD_FILL = 2;
+
+    public static final int STATUS_IDLE = 0;
+    public static final int STATUS_BUSY = 1;
+    public static final int STATUS_DONE = 2;
+    public static final int STATUS_ERROR = 3;
+
+    private final Memory memory;
+    private final ExecutorService engine;
+
+    private volatile int source;
+    private volatile int destination;
+    private volatile int length;
+    private volatile int status = STATUS_IDLE;
+    private volatile int rejected;
+    private volatile Runnable completionListener;
+
+    // Estatísticas
+    private volatile long transfers;
+    private volatile long wordsMoved;
+
+    public DmaController(Memory memory) {
+        this.memory = memory;
+        this.engine = Executors.newSingleThreadExecutor(task -> {
+            Thread t = new Thread(task, "dma");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Define quem é avisado ao fim de cada transferência (ex: um pedido de interrupção).
+     * Chamado na thread do DMA, depois de STATUS já ser DONE ou ERROR.
+     */
+    public void setCompletionListener(Runnable listener) {
+        this.completionListener = listener;
+    }
+
+    @Override
+    public int size() {
+        return REGISTER_COUNT;
+    }
+
+    @Override
+    public int read(int offset) {
+        switch (offset) {
+            case REG_SRC:     return source;
+            case REG_DST:     return destination;
+            case REG_LENGTH:  return length;
+            case REG_CONTROL: return 0;
+            case REG_REJECTED: return rejected;
+            default:          return status;
+        }
+    }
+
+    @Override
+    public void write(int offset, int value) {
+        switch (offset) {
+            case REG_SRC:     source = value; break;
+            case REG_DST:     destination = value; break;
+            case REG_LENGTH:  length = value; break;
+            case REG_CONTROL: start(value); break;
+            default:          break; // STATUS e REJECTED são somente leitura
+        }
+    }
+
+    // Sincronizado: duas CPUs escrevendo em CONTROL não iniciam duas transferências
+    private synchronized void start(int command) {
+        if (status == STATUS_BUSY || (command != CMD_COPY && command != CMD_FILL)) {
+            rejected++;
+            if (status != STATUS_BUSY) {
+                status = STATUS_ERROR;
+            }
+            return;
+        }
+        final int src = source;
+        final int dst = destination;
+        final int len = length;
+        status = STATUS_BUSY;
+        engine.execute(() -> {
+            int result = STATUS_DONE;
+            try {
+                if (command == CMD_COPY) {
+                    memory.copy(src, dst, len);
+                } else {
+                    memory.fill(dst, len, src);
+                }
+                wordsMoved += len;
+            } catch (IndexOutOfBoundsException e) {
+                result = STATUS_ERROR;
+            }
+            transfers++;
+            status = result; // Escrita volátil: publica os dados da transferência
+            Runnable listener = completionListener;
+            if (listener != null) {
+                listener.run();
+            }
+        });
+    }
+
+    /**
+     * Pede interrupção na linha dada do controlador ao fim de cada transferência.
+     */
+    public void setCompletionInterrupt(InterruptController interrupts, int line) {
+        setCompletionListener(() -> interrupts.raise(line));
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Espera a transferência em andamento terminar (útil para quem controla o DMA pelo Java).
+     */
+    public void awaitIdle() {
+        while (status == STATUS_BUSY) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void reset() {
+        awaitIdle();
+        source = 0;
+        destination = 0;
+        length = 0;
+        status = STATUS_IDLE;
+        rejected = 0;
+    }
+
+    public long getTransfers() {
+        return transfers;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public long getWordsMoved() {
+        return wordsMoved;
+    }
+
+    /** Encerra a thread do controlador. */
+    public void shutdown() {
+        engine.shutdown();
+    }
+}
@@ -0,0 +1,209 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Agendador de eventos por tempo simulado (contagem de instruções da CPU), implementado
+ * como uma roda de tempo hierárquica (timing wheel).
+ *
+ * São LEVELS níveis de 64 posições. Um evento vai para o nível dado pelo grupo de 6 bits
+ * mais alto em que o seu instante difere do instante atual, na posição indicada por esses
+ * bits: o nível 0 guarda eventos dos próximos instantes do bloco de 64 atual, o nível 1
+ * os dos próximos blocos de 64 dentro do bloco de 4096 atual, e assim por diante. Quando
+ * o tempo chega ao início de uma posição de nível > 0, os eventos dela descem de nível
+ * (cascata). Eventos além do alcance da roda (2^24 instantes) ficam numa lista de espera
+ * até entrarem no alcance.
+ *
+ * Cada nível tem um mapa de bits das posições ocupadas, então o próximo instante em que
+ * algo acontece é achado com numberOfTrailingZeros, sem percorrer posições vazias.
+ * A CPU só compara a sua contagem de instruções com nextDeadline a cada instrução (O(1));
+ * o trabalho de verdade só acontece em advance(), quando há algo vencido.
+ *
+ * Não é seguro para várias threads: é usado só pela thread da CPU (inclusive pelos
+ * dispositivos quando a CPU escreve nos seus registradores).
+ */
+public class EventScheduler {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+
+    /** Um evento agendado; pode ser cancelado antes de disparar. */
+    public static final class Event {
+        private final Action action;
+        private long when;
+        private boolean cancelled;
+        private Event next; // Lista encadeada da posição da roda
+
+        Event(long when, Action action) {
+            this.when = when;
+            this.action = action;
+        }
+
+        public long getWhen() {
+            return when;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /** O que fazer quando o evento vence. */
+    public interface Action {
+        void fire(long now);
+    }
+
+    private final Event[][] wheel = new Event[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS]; // Bit i = posição i do nível tem eventos
+    private final List<Event> overflow = new ArrayList<>();
+
+    private long current;                       // Último instante processado
+    long nextDeadline = Long.MAX_VALUE;         // Lido diretamente pela CPU a cada instrução
+    private long fired;
+
+    /**
+     * Agenda uma ação para o instante when. Se when já passou (ou é o instante atual), ela
+     * dispara no próximo advance().
+     */
+    public Event schedule(long when, Action action) {
+        Event event = new Event(Math.max(when, current + 1), action);
+        insert(event);
+        return event;
+    }
+
+    private void insert(Event event) {
+        long when = event.when;
+        long diff = when ^ current;
+        int level = (63 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+        if (level >= LEVELS) {
+            overflow.add(event);
+            nextDeadline = Math.min(nextDeadline, overflowBoundary());
+            return;
+        }
+        int slot = (int) (when >>> (SLOT_BITS * level)) & (SLOTS - 1);
+        event.next = wheel[level][slot];
+        wheel[level][slot] = event;
+        occupied[level] |= 1L << slot;
+        // Para nível > 0 o prazo é o início da posição (quando os eventos descem de nível)
+        long start = level == 0 ? when : (when >>> (SLOT_BITS * level)) << (SLOT_BITS * level);
+        nextDeadline = Math.min(nextDeadline, start);
+    }
+
+    // Início do próximo bloco de 2^24 instantes, quando a lista de espera é reavaliada
+    private long overflowBoundary() {
+        return ((current >>> (SLOT_BITS * LEVELS)) + 1) << (SLOT_BITS * LEVELS);
+    }
+
+    /**
+     * Processa tudo o que vence até now (inclusive), em ordem de tempo.
+     */
+    public void advance(long now) {
+        long t;
+        while ((t = nextTime()) <= now) {
+            current = t;
+            process(t);
+        }
+        if (now > current) {
+            current = now;
+        }
+        nextDeadline = nextTime();
+    }
+
+    // Próximo instante em que algo acontece: disparo (nível 0), cascata (nível > 0) ou
+    // reavaliação da lista de espera
+    private long nextTime() {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            long index = current >>> shift;
+            int position = (int) index & (SLOTS - 1);
+            long later = position == SLOTS - 1 ? 0 : occupied[level] & (-1L << (position + 1));
+            if (later != 0) {
+                long slot = (index & ~(long) (SLOTS - 1)) | Long.numberOfTrailingZeros(later);
+                return slot << shift;
+            }
+        }
+        return overflow.isEmpty() ? Long.MAX_VALUE : overflowBoundary();
+    }
+
+    private void process(long t) {
+        if (!overflow.isEmpty() && (t & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+            List<Event> waiting = new ArrayList<>(overflow);
+            overflow.clear();
+            for (Event e : waiting) {
+                insert(e);
+            }
+        }
+        // Cascata: do nível mais alto para o mais baixo, nas posições que começam em t
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = SLOT_BITS * level;
+            if ((t & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            int slot = (int) (t >>> shift) & (SLOTS - 1);
+            Event e = takeSlot(level, slot);
+            while (e != null) {
+                Event next = e.next;
+                e.next = null;
+                if (!e.cancelled) {
+                    insertOrFire(e, t);
+                }
+                e = next;
+            }
+        }
+        int slot = (int) t & (SLOTS - 1);
+        Event e = takeSlot(0, slot);
+        while (e != null) {
+            Event next = e.next;
+            e.next = null;
+            if (!e.cancelled) {
+                fired++;
+                e.action.fire(t);
+            }
+            e = next;
+        }
+    }
+
+    private void insertOrFire(Event e, long t) {
+        if (e.when <= t) {
+            fired++;
+            e.action.fire(t);
+        } else {
+            insert(e);
+        }
+    }
+
+    private Event takeSlot(int level, int slot) {
+        Event head = wheel[level][slot];
+        wheel[level][slot] = null;
+        occupied[level] &= ~(1L << slot);
+        return head;
+    }
+
+    /** Remove todos os eventos e volta o tempo a zero. */
+    public void clear() {
+        for (Event[] level : wheel) {
+            java.util.Arrays.fill(level, null);
+        }
+        java.util.Arrays.fill(occupied, 0);
+        overflow.clear();
+        current = 0;
+        nextDeadline = Long.MAX_VALUE;
+    }
+
+    public long getCurrentTime() {
+        return current;
+    }
+
+    public long getNextDeadline() {
+        return nextDeadline;
+    }
+
+    public long getFiredCount() {
+        return fired;
+    }
+}
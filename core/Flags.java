@@ -1,45 +1,84 @@
 package core;
 
+/**
+ * Flags Z (Zero) e N (Negative) com avaliação preguiçosa.
+ *
+ * A ULA apenas registra o resultado da última operação; Z e N são calculados a partir
+ * dele somente quando alguém pergunta (desvios condicionais, saveContext, depuração).
+ * Assim, código aritmético que nunca testa as flags não paga pela atualização delas.
+ * Quando as flags são forçadas (setZero/setNegative ou unpack), o estado passa a ser
+ * explícito até a próxima operação da ULA.
+ */
 public class Flags {
-    private boolean zero;     // Z flag: true if the result of the last operation was zero
-    private boolean negative; // N flag: true if the result of the last operation was negative
+    private int lastResult;   // Resultado da última operação aritmética ou lógica
+    private boolean explicit; // true quando Z/N foram forçados e não derivam de lastResult
+    private boolean zero;     // Z flag explícita (válida apenas se explicit)
+    private boolean negative; // N flag explícita (válida apenas se explicit)
 
     public Flags() {
         // Inicializa todas as flags como false (estado padrão)
         this.zero = false;
         this.negative = false;
+        this.explicit = true;
     }
 
     /**
-     * Atualiza as flags Z (Zero) e N (Negative) com base em um resultado de operação.
+     * Registra o resultado de uma operação. Z e N serão derivados dele sob demanda.
      *
      * @param result O resultado da última operação aritmética ou lógica.
      */
     public void updateFlags(int result) {
-        this.zero = (result == 0);
-        this.negative = (result < 0);
+        this.lastResult = result;
+        this.explicit = false;
     }
 
-    // --- Getters para as flags ---
+    // --- Getters para as flags (materializam Z e N a partir do último resultado) ---
     public boolean isZero() {
-        return zero;
+        return explicit ? zero : lastResult == 0;
     }
 
     public boolean isNegative() {
-        return negative;
+        return explicit ? negative : lastResult < 0;
     }
 
     // --- Setters (podem ser usados para resetar ou forçar um estado, se necessário) ---
     public void setZero(boolean zero) {
+        materialize();
         this.zero = zero;
     }
 
     public void setNegative(boolean negative) {
+        materialize();
         this.negative = negative;
     }
 
+    /**
+     * Compacta as flags em um int no formato (N << 1) | Z, usado ao salvar contexto.
+     */
+    public int pack() {
+        return (isNegative() ? 1 : 0) << 1 | (isZero() ? 1 : 0);
+    }
+
+    /**
+     * Restaura as flags a partir do formato compactado por pack().
+     */
+    public void unpack(int packedFlags) {
+        this.negative = ((packedFlags >> 1) & 1) == 1;
+        this.zero = (packedFlags & 1) == 1;
+        this.explicit = true;
+    }
+
+    // Converte o estado derivado do último resultado em flags explícitas
+    private void materialize() {
+        if (!explicit) {
+            this.zero = lastResult == 0;
+            this.negative = lastResult < 0;
+            this.explicit = true;
+        }
+    }
+
     @Override
     public String toString() {
-        return "Flags [Z=" + zero + ", N=" + negative + "]";
+        return "Flags [Z=" + isZero() + ", N=" + isNegative() + "]";
     }
-}
\ No newline at end of file
+}
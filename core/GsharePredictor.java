@@ -0,0 +1,60 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Preditor gshare: contadores de 2 bits indexados pelo PC em ou-exclusivo com o histórico
+ * global (o resultado dos últimos historyBits desvios, o mais recente no bit 0). Desvios
+ * cujo resultado depende dos anteriores (laços aninhados curtos, if encadeados) ganham
+ * contadores diferentes para cada padrão recente.
+ */
+public class GsharePredictor implements BranchPredictor {
+    private final byte[] counters;
+    private final int mask;
+    private final int historyMask;
+    private int history;
+
+    /**
+     * @param indexBits   log2 da quantidade de contadores.
+     * @param historyBits Desvios lembrados no histórico global (até indexBits).
+     */
+    public GsharePredictor(int indexBits, int historyBits) {
+        if (indexBits < 0 || indexBits > 24) {
+            throw new IllegalArgumentException("Tamanho de tabela inválido: 2^" + indexBits);
+        }
+        if (historyBits < 0 || historyBits > indexBits) {
+            throw new IllegalArgumentException("Histórico deve ter de 0 a " + indexBits + " bits: " + historyBits);
+        }
+        this.counters = new byte[1 << indexBits];
+        this.mask = counters.length - 1;
+        this.historyMask = (1 << historyBits) - 1;
+        reset();
+    }
+
+    private int index(int pc) {
+        return (pc ^ history) & mask;
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        return counters[index(pc)] >= 2;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        int i = index(pc);
+        counters[i] = BimodalPredictor.train(counters[i], taken);
+        history = ((history << 1) | (taken ? 1 : 0)) & historyMask;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(counters, BimodalPredictor.WEAKLY_NOT_TAKEN);
+        history = 0;
+    }
+
+    @Override
+    public String getName() {
+        return "gshare (" + counters.length + " contadores, histórico de " + Integer.bitCount(historyMask) + ")";
+    }
+}
@@ -0,0 +1,39 @@
+package core;
+
+/**
+ * Serviço do hospedeiro chamado pela instrução "hcall n": uma rotina em Java que roda no
+ * lugar de uma sub-rotina do programa convidado (ver HostServices para os serviços
+ * embutidos e CPU.registerHostService para registrar outros).
+ *
+ * Convenção: argumentos em REG0..REG3, resultados em REG0 (e REG1 quando há dois).
+ * O serviço não deve mexer em outras posições de regs (PC, pilha...). As flags não mudam.
+ * Exceções de tempo de execução (argumento inválido, endereço fora da memória) param a
+ * CPU com CPU.STOP_HOST_SERVICE_ERROR.
+ */
+@FunctionalInterface
+public interface HostService {
+
+    /**
+     * @param regs   Registradores do banco ativo (REG0 = regs[0]...).
+     * @param memory Memória da CPU.
+     */
+    void invoke(int[] regs, Memory memory);
+
+    /**
+     * Se o serviço pode escrever na memória. Quando sim, a CPU descarta o código
+     * pré-decodificado depois da chamada (o serviço pode ter escrito sobre código).
+     */
+    default boolean writesMemory() {
+        return true;
+    }
+
+    /**
+     * Se o serviço acessa a memória pelos endereços que recebe nos registradores. Esses
+     * endereços são tratados como físicos, então com a MMU ligada a CPU não chama o serviço
+     * e gera um trap (CPU.FAULT_PROTECTION): o programa não sai do seu espaço de
+     * endereçamento por um hcall.
+     */
+    default boolean accessesMemory() {
+        return true;
+    }
+}
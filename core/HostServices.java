@@ -0,0 +1,113 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Serviços embutidos do "hcall", registrados em toda CPU nova:
+ *
+ *   hcall 0  MEMCPY    copia REG2 palavras de REG1 para REG0 (as faixas podem se sobrepor)
+ *   hcall 1  MEMSET    preenche REG2 palavras a partir de REG0 com o valor REG1
+ *   hcall 2  MUL       REG0 * REG1: parte baixa em REG0, parte alta em REG1
+ *   hcall 3  DIV       REG0 / REG1: quociente em REG0, resto em REG1 (divisor 0 é erro)
+ *   hcall 4  CHECKSUM  CRC-32 das REG1 palavras a partir de REG0 (big-endian) em REG0
+ *
+ * MEMCPY, MEMSET e CHECKSUM acessam só a RAM (como o DMA), de uma vez; por isso custam uma
+ * instrução, em vez de um laço de várias instruções por palavra. O bloco do CHECKSUM é
+ * validado antes de qualquer alocação e lido em pedaços de CHECKSUM_CHUNK_WORDS palavras,
+ * num buffer de cada CPU, então um tamanho vindo do programa não decide quanta memória do
+ * hospedeiro é alocada.
+ *
+ * MEMCPY, MEMSET e CHECKSUM usam endereços físicos; com a MMU ligada, chamá-los gera um trap
+ * de proteção (ver HostService.accessesMemory). MUL e DIV só usam registradores.
+ */
+public final class HostServices {
+    public static final int MEMCPY = 0;
+    public static final int MEMSET = 1;
+    public static final int MUL = 2;
+    public static final int DIV = 3;
+    public static final int CHECKSUM = 4;
+
+    public static final int CHECKSUM_CHUNK_WORDS = 1024;
+
+    private HostServices() {
+    }
+
+    /** Registra os serviços embutidos na CPU. */
+    public static void installDefaults(CPU cpu) {
+        cpu.registerHostService(MEMCPY, (r, memory) -> memory.copy(r[1], r[0], r[2]));
+        cpu.registerHostService(MEMSET, (r, memory) -> memory.fill(r[0], r[2], r[1]));
+        cpu.registerHostService(MUL, registersOnly((r, memory) -> {
+            long product = (long) r[0] * r[1];
+            r[0] = (int) product;
+            r[1] = (int) (product >>> 32);
+        }));
+        cpu.registerHostService(DIV, registersOnly((r, memory) -> {
+            if (r[1] == 0) {
+                throw new IllegalArgumentException("Divisão por zero no hcall DIV");
+            }
+            int quotient = r[0] / r[1];
+            r[1] = r[0] % r[1];
+            r[0] = quotient;
+        }));
+        // Buffers do CHECKSUM: um par por CPU, reaproveitado a cada chamada
+        int[] words = new int[CHECKSUM_CHUNK_WORDS];
+        ByteBuffer bytes = ByteBuffer.allocate(CHECKSUM_CHUNK_WORDS * Integer.BYTES);
+        cpu.registerHostService(CHECKSUM, pure((r, memory) -> checksum(r, memory, words, bytes)));
+    }
+
+    private static void checksum(int[] r, Memory memory, int[] words, ByteBuffer bytes) {
+        int address = r[0];
+        int length = r[1];
+        if (!memory.isValidBlock(address, length)) {
+            throw new IllegalArgumentException("Bloco fora da memória no hcall CHECKSUM: [" + address + ", "
+                                               + address + " + " + length + ")");
+        }
+        CRC32 crc = new CRC32();
+        for (int done = 0; done < length; ) {
+            int n = Math.min(length - done, words.length);
+            memory.readBlock(address + done, words, 0, n);
+            bytes.clear();
+            bytes.asIntBuffer().put(words, 0, n);
+            bytes.limit(n * Integer.BYTES);
+            crc.update(bytes);
+            done += n;
+        }
+        r[0] = (int) crc.getValue();
+    }
+
+    // Serviço que não escreve na memória (não invalida o código pré-decodificado)
+    private static HostService pure(HostService service) {
+        return new HostService() {
+            @Override
+            public void invoke(int[] regs, Memory memory) {
+                service.invoke(regs, memory);
+            }
+
+            @Override
+            public boolean writesMemory() {
+                return false;
+            }
+        };
+    }
+
+    // Serviço que não toca a memória (pode ser chamado com a MMU ligada)
+    private static HostService registersOnly(HostService service) {
+        return new HostService() {
+            @Override
+            public void invoke(int[] regs, Memory memory) {
+                service.invoke(regs, memory);
+            }
+
+            @Override
+            public boolean writesMemory() {
+                return false;
+            }
+
+            @Override
+            public boolean accessesMemory() {
+                return false;
+            }
+        };
+    }
+}
@@ -0,0 +1,212 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Porta de entrada FIFO mapeada em memória: o programa lê, palavra por palavra ou em blocos,
+ * um fluxo de inteiros de 32 bits (big-endian) vindo de um canal NIO (arquivo, pipe...).
+ *
+ *   base + 0  DATA    leitura retira a próxima palavra (0 se a entrada acabou)
+ *   base + 1  STATUS  1 se há palavra para ler, 0 no fim da entrada
+ *   base + 2  COUNT   palavras entregues até agora (somente leitura)
+ *   base + 3  DST     endereço de destino das leituras em bloco
+ *   base + 4  BLOCK   escrever n lê até n palavras para a memória a partir de DST;
+ *                     ler devolve quantas palavras a última leitura em bloco trouxe
+ *   base + 5  ERROR   última falha (ERROR_NONE, ERROR_RANGE, ERROR_IO); escrever limpa
+ *
+ * Nada que o programa faça na porta gera exceção Java: um bloco com tamanho negativo ou
+ * que sai da memória é recusado antes de consumir a entrada (ERROR_RANGE, BLOCK = 0), e
+ * uma falha de leitura do canal (ERROR_IO) faz a porta se comportar como sem dados até a
+ * próxima tentativa.
+ *
+ * O canal é lido em blocos grandes para um ByteBuffer direto (uma chamada read por
+ * BUFFER_BYTES, não por palavra), então arquivos maiores que a memória simulada passam
+ * pela porta sem serem carregados de uma vez. Bytes finais que não completam uma palavra
+ * são ignorados.
+ *
+ * Exemplo em assembly (porta em 960, somando a entrada inteira em %reg2; %reg0 = 0):
+ *   laco:
+ *   move 961 %reg1
+ *   jeq %reg1 %reg0 fim ; acabou a entrada
+ *   move 960 %reg1
+ *   add %reg1 %reg2
+ *   jmp laco
+ *   fim:
+ *
+ * A leitura em bloco grava direto na RAM (como o DMA): não passa por outros dispositivos
+ * nem invalida código pré-decodificado.
+ */
+public class InputPort implements Device {
+    public static final int REG_DATA = 0;
+    public static final int REG_STATUS = 1;
+    public static final int REG_COUNT = 2;
+    public static final int REG_DST = 3;
+    public static final int REG_BLOCK = 4;
+    public static final int REG_ERROR = 5;
+    public static final int REGISTER_COUNT = 6;
+
+    public static final int ERROR_NONE = 0;
+    public static final int ERROR_RANGE = 1; // Bloco com tamanho negativo ou fora da memória
+    public static final int ERROR_IO = 2;    // Falha de leitura no canal
+
+    public static final int DEFAULT_BUFFER_BYTES = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final Memory memory;
+    private final ByteBuffer buffer;
+    private final int[] scratch; // Palavras de uma leitura em bloco, antes de irem para a memória
+    private boolean endOfInput;
+
+    private int destination;
+    private int lastBlock;
+    private int error = ERROR_NONE;
+    private long delivered;
+    private long channelReads;
+
+    /**
+     * @param channel    Origem dos dados (FileChannel, Pipe.SourceChannel...).
+     * @param memory     Memória que recebe as leituras em bloco.
+     * @param bufferBytes Tamanho do buffer (múltiplo de 4).
+     */
+    public InputPort(ReadableByteChannel channel, Memory memory, int bufferBytes) {
+        if (bufferBytes < Integer.BYTES || bufferBytes % Integer.BYTES != 0) {
+            throw new IllegalArgumentException("Buffer da porta deve ser múltiplo de 4 bytes: " + bufferBytes);
+        }
+        this.channel = channel;
+        this.memory = memory;
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        this.buffer.flip(); // Começa vazio (modo leitura)
+        this.scratch = new int[bufferBytes / Integer.BYTES];
+    }
+
+    public InputPort(ReadableByteChannel channel, Memory memory) {
+        this(channel, memory, DEFAULT_BUFFER_BYTES);
+    }
+
+    /** Abre um arquivo como entrada da porta. */
+    public static InputPort open(Path file, Memory memory) throws IOException {
+        return new InputPort(FileChannel.open(file, StandardOpenOption.READ), memory);
+    }
+
+    @Override
+    public int size() {
+        return REGISTER_COUNT;
+    }
+
+    @Override
+    public synchronized int read(int offset) {
+        switch (offset) {
+            case REG_DATA:   return fill() ? take() : 0;
+            case REG_STATUS: return fill() ? 1 : 0;
+            case REG_COUNT:  return (int) delivered;
+            case REG_DST:    return destination;
+            case REG_ERROR:  return error;
+            default:         return lastBlock;
+        }
+    }
+
+    @Override
+    public synchronized void write(int offset, int value) {
+        switch (offset) {
+            case REG_DST:   destination = value; break;
+            case REG_BLOCK:
+                if (memory.isValidBlock(destination, value)) {
+                    lastBlock = transfer(destination, value);
+                } else {
+                    error = ERROR_RANGE;
+                    lastBlock = 0;
+                }
+                break;
+            case REG_ERROR: error = ERROR_NONE; break;
+            default:        break; // Os demais são somente leitura
+        }
+    }
+
+    private int take() {
+        delivered++;
+        return buffer.getInt();
+    }
+
+    /**
+     * Lê até length palavras da entrada para a memória a partir de address.
+     *
+     * @return Quantas palavras foram lidas (menos que length no fim da entrada ou numa
+     *         falha de leitura, que fica em ERROR).
+     * @throws IndexOutOfBoundsException Se o bloco sair da memória (nada é consumido).
+     */
+    public synchronized int readBlock(int address, int length) {
+        if (!memory.isValidBlock(address, length)) {
+            throw new IndexOutOfBoundsException("Bloco fora da memória: [" + address + ", " + address + " + " + length + ")");
+        }
+        return transfer(address, length);
+    }
+
+    // Leitura em bloco com a faixa já validada
+    private int transfer(int address, int length) {
+        int total = 0;
+        while (total < length && fill()) {
+            int n = Math.min(Math.min(length - total, buffer.remaining() / Integer.BYTES), scratch.length);
+            buffer.asIntBuffer().get(scratch, 0, n);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            memory.writeBlock(address + total, scratch, 0, n);
+            total += n;
+        }
+        delivered += total;
+        return total;
+    }
+
+    // Garante ao menos uma palavra inteira no buffer; false no fim da entrada ou numa falha
+    private boolean fill() {
+        if (buffer.remaining() >= Integer.BYTES) {
+            return true;
+        }
+        if (endOfInput) {
+            return false;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < Integer.BYTES) {
+                channelReads++;
+                if (channel.read(buffer) < 0) {
+                    endOfInput = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            error = ERROR_IO; // O que já estava no buffer continua lá
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= Integer.BYTES;
+    }
+
+    /** Zera os contadores; a posição no canal não volta (um pipe não pode ser relido). */
+    @Override
+    public synchronized void reset() {
+        destination = 0;
+        lastBlock = 0;
+        delivered = 0;
+        error = ERROR_NONE;
+    }
+
+    public synchronized int getError() {
+        return error;
+    }
+
+    public synchronized long getDeliveredWords() {
+        return delivered;
+    }
+
+    public synchronized long getChannelReads() {
+        return channelReads;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,444 @@
+package core;
+
+import model.Instruction;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Especificação única do conjunto de instruções (ISA).
+ *
+ * Cada opcode é declarado uma só vez com seu mnemônico e a lista de tipos de operando,
+ * na ordem em que aparecem no assembly. A partir dessa tabela são gerados os arrays
+ * primitivos usados tanto pelo Loader (codificação) quanto pela CPU (decodificação),
+ * de forma que os dois lados não podem divergir.
+ *
+ * Regra de layout da palavra de 32 bits:
+ *   [OPCODE (8b)] [campos de registrador, do bit mais alto para o mais baixo] [valor (bits restantes)]
+ * Os registradores ocupam REG_BITS cada, na ordem em que aparecem; o único campo de
+ * memória/imediato (se existir) ocupa todos os bits menos significativos que sobrarem.
+ * Exemplos (REG_BITS = 4, até 16 registradores de uso geral):
+ *   add %reg %reg      -> REG_A bits 23-20, REG_B bits 19-16
+ *   move mem %reg      -> REG bits 23-20, MEM bits 19-0
+ *   jeq %reg %reg mem  -> REG_A bits 23-20, REG_B bits 19-16, MEM bits 15-0
+ *   jmp mem            -> MEM bits 23-0
+ * Endereços (mem) são sem sinal; imediatos (imm) são em complemento de 2 e têm o sinal
+ * estendido na decodificação (move imm -3 com 20 bits guarda 0xFFFFD e lê -3).
+ * encode rejeita valores que não cabem no campo, em vez de truncá-los.
+ */
+public final class InstructionSet {
+
+    // --- Tipos de operando ---
+    public static final int KIND_REG = 1; // %regN
+    public static final int KIND_MEM = 2; // endereço literal ou label
+    public static final int KIND_IMM = 3; // imm <valor>
+
+    public static final int MAX_OPERANDS = 3;
+    public static final int OPERAND_BITS = 32 - Opcodes.OPCODE_BITS; // 24 bits para operandos
+    public static final int REG_BITS = 4; // Até 16 registradores de uso geral (ver RegisterFile)
+    public static final int REG_MASK = (1 << REG_BITS) - 1;
+
+    // --- Dependências entre instruções ---
+    // Máscaras de registradores: bit = índice em RegisterFile (REG0..REGn, STK_TOP, FLAGS...)
+    public static final int DEP_FLAGS = 1 << RegisterFile.FLAGS;
+    public static final int DEP_STACK = 1 << RegisterFile.STK_TOP;
+    private static final int OP_A = 1; // Posições dos operandos nas tabelas de dependência
+    private static final int OP_B = 2;
+    private static final int OP_C = 4;
+
+    // Efeitos de cada opcode além dos registradores
+    public static final int EFFECT_LOAD = 1;    // Lê a memória de dados
+    public static final int EFFECT_STORE = 2;   // Escreve a memória de dados
+    public static final int EFFECT_BRANCH = 4;  // Desvio condicional
+    public static final int EFFECT_JUMP = 8;    // Desvio incondicional (inclusive call/ret)
+    public static final int EFFECT_SERIAL = 16; // Troca de banco/contexto ou efeitos fora da CPU: esvazia o pipeline
+
+    private static final int TABLE_SIZE = 1 << Opcodes.OPCODE_BITS;
+
+    // --- Tabelas geradas (indexadas por opcode; campos indexados por opcode * MAX_OPERANDS + i) ---
+    private static final boolean[] DEFINED = new boolean[TABLE_SIZE];
+    private static final int[] OPERAND_COUNT = new int[TABLE_SIZE];
+    private static final int[] FIELD_KIND = new int[TABLE_SIZE * MAX_OPERANDS];
+    private static final int[] FIELD_SHIFT = new int[TABLE_SIZE * MAX_OPERANDS];
+    private static final int[] FIELD_MASK = new int[TABLE_SIZE * MAX_OPERANDS];  // Largura do campo
+    private static final int[] FIELD_LEFT = new int[TABLE_SIZE * MAX_OPERANDS];  // Leva o campo ao topo da palavra
+    private static final int[] FIELD_RIGHT = new int[TABLE_SIZE * MAX_OPERANDS]; // Traz de volta estendendo o sinal
+    private static final int[] FIELD_VALUE = new int[TABLE_SIZE * MAX_OPERANDS]; // Máscara final (-1 nos imediatos)
+    private static final String[] MNEMONIC = new String[TABLE_SIZE];
+    private static final String[] SYNTAX = new String[TABLE_SIZE];
+
+    // Dependências (modelos de temporização): operandos lidos/escritos (bit i = operando i),
+    // registradores implícitos (bit = índice em RegisterFile) e efeitos EFFECT_*
+    private static final int[] READ_OPERANDS = new int[TABLE_SIZE];
+    private static final int[] WRITE_OPERANDS = new int[TABLE_SIZE];
+    private static final int[] IMPLICIT_READS = new int[TABLE_SIZE];
+    private static final int[] IMPLICIT_WRITES = new int[TABLE_SIZE];
+    private static final int[] EFFECTS = new int[TABLE_SIZE];
+
+    // Usados apenas na montagem (fora do caminho quente da CPU)
+    private static final Map<String, Integer> BY_SYNTAX = new HashMap<>();
+    private static final Map<String, Integer> BY_NAME = new HashMap<>();
+
+    static {
+        // --- Aritméticas e Lógicas ---
+        define(Opcodes.ADD_REG_REG, "add", KIND_REG, KIND_REG);   // RegB <- RegA + RegB
+        define(Opcodes.SUB_REG_REG, "sub", KIND_REG, KIND_REG);   // RegB <- RegA - RegB
+        define(Opcodes.INC_REG, "inc", KIND_REG);                 // RegA ++
+
+        define(Opcodes.ADD_MEM_REG, "add", KIND_MEM, KIND_REG);   // RegA <- memória[mem] + RegA
+        define(Opcodes.ADD_REG_MEM, "add", KIND_REG, KIND_MEM);   // memória[mem] <- RegA + memória[mem]
+        define(Opcodes.SUB_MEM_REG, "sub", KIND_MEM, KIND_REG);   // RegA <- memória[mem] - RegA
+        define(Opcodes.SUB_REG_MEM, "sub", KIND_REG, KIND_MEM);   // memória[mem] <- RegA - memória[mem]
+        define(Opcodes.INC_MEM, "inc", KIND_MEM);                 // memória[mem] ++
+
+        // --- Movimentação de Dados ---
+        define(Opcodes.MOVE_REG_REG, "move", KIND_REG, KIND_REG); // RegB <- RegA
+        define(Opcodes.MOVE_MEM_REG, "move", KIND_MEM, KIND_REG); // RegA <- memória[mem]
+        define(Opcodes.MOVE_REG_MEM, "move", KIND_REG, KIND_MEM); // memória[mem] <- RegA
+        define(Opcodes.MOVE_IMM_REG, "move", KIND_IMM, KIND_REG); // RegA <- imediato
+
+        // --- Desvios ---
+        define(Opcodes.JMP, "jmp", KIND_MEM);
+        define(Opcodes.JN, "jn", KIND_MEM);
+        define(Opcodes.JZ, "jz", KIND_MEM);
+        define(Opcodes.JNZ, "jnz", KIND_MEM);
+
+        define(Opcodes.JEQ, "jeq", KIND_REG, KIND_REG, KIND_MEM);
+        define(Opcodes.JGT, "jgt", KIND_REG, KIND_REG, KIND_MEM);
+        define(Opcodes.JLW, "jlw", KIND_REG, KIND_REG, KIND_MEM);
+
+        // --- Sub-rotinas ---
+        define(Opcodes.CALL, "call", KIND_MEM);
+        define(Opcodes.RET, "ret");
+        define(Opcodes.PUSH_REG, "push", KIND_REG);               // push(RegA)
+        define(Opcodes.POP_REG, "pop", KIND_REG);                 // RegA <- pop()
+
+        // --- Atômicas ---
+        define(Opcodes.CAS, "cas", KIND_REG, KIND_REG, KIND_MEM); // se mem==RegA: mem <- RegB; RegA <- antigo
+        define(Opcodes.FAA, "faa", KIND_REG, KIND_MEM);           // mem <- mem + RegA; RegA <- antigo
+
+        // --- Bloco (RegA = origem/valor, RegB = destino, RegC = quantidade de palavras) ---
+        // Instruções de bloco: faixas que cruzam dispositivos mapeados (ou com a MMU ligada)
+        // são feitas palavra a palavra, com cada acesso chegando ao dispositivo
+        define(Opcodes.BCOPY, "bcopy", KIND_REG, KIND_REG, KIND_REG); // memória[RegB..] <- memória[RegA..], RegC palavras
+        define(Opcodes.BFILL, "bfill", KIND_REG, KIND_REG, KIND_REG); // memória[RegB..] <- RegA, RegC palavras
+        define(Opcodes.BADD, "badd", KIND_REG, KIND_REG, KIND_REG);   // memória[RegB..] += RegA, RegC palavras
+        define(Opcodes.BSUM, "bsum", KIND_REG, KIND_REG, KIND_REG);   // RegB <- soma de memória[RegA..], RegC palavras
+
+        // --- Especiais ---
+        define(Opcodes.IMUL, "imul", KIND_REG, KIND_REG);
+        define(Opcodes.MRET, "mret");
+        define(Opcodes.IRET, "iret");
+        define(Opcodes.HCALL, "hcall", KIND_MEM);                 // serviço do hospedeiro n (REG0..REG3)
+        define(Opcodes.HALT, "halt");
+
+        // --- Dependências: operandos lidos, escritos, registradores implícitos e efeitos ---
+        uses(Opcodes.ADD_REG_REG, OP_A | OP_B, OP_B, 0, DEP_FLAGS, 0);
+        uses(Opcodes.SUB_REG_REG, OP_A | OP_B, OP_B, 0, DEP_FLAGS, 0);
+        uses(Opcodes.INC_REG, OP_A, OP_A, 0, DEP_FLAGS, 0);
+        uses(Opcodes.ADD_MEM_REG, OP_B, OP_B, 0, DEP_FLAGS, EFFECT_LOAD);
+        uses(Opcodes.ADD_REG_MEM, OP_A, 0, 0, DEP_FLAGS, EFFECT_LOAD | EFFECT_STORE);
+        uses(Opcodes.SUB_MEM_REG, OP_B, OP_B, 0, DEP_FLAGS, EFFECT_LOAD);
+        uses(Opcodes.SUB_REG_MEM, OP_A, 0, 0, DEP_FLAGS, EFFECT_LOAD | EFFECT_STORE);
+        uses(Opcodes.INC_MEM, 0, 0, 0, DEP_FLAGS, EFFECT_LOAD | EFFECT_STORE);
+
+        uses(Opcodes.MOVE_REG_REG, OP_A, OP_B, 0, 0, 0);
+        uses(Opcodes.MOVE_MEM_REG, 0, OP_B, 0, 0, EFFECT_LOAD);
+        uses(Opcodes.MOVE_REG_MEM, OP_A, 0, 0, 0, EFFECT_STORE);
+        uses(Opcodes.MOVE_IMM_REG, 0, OP_B, 0, 0, 0);
+
+        uses(Opcodes.JMP, 0, 0, 0, 0, EFFECT_JUMP);
+        uses(Opcodes.JN, 0, 0, DEP_FLAGS, 0, EFFECT_BRANCH);
+        uses(Opcodes.JZ, 0, 0, DEP_FLAGS, 0, EFFECT_BRANCH);
+        uses(Opcodes.JNZ, 0, 0, DEP_FLAGS, 0, EFFECT_BRANCH);
+        uses(Opcodes.JEQ, OP_A | OP_B, 0, 0, DEP_FLAGS, EFFECT_BRANCH); // A comparação atualiza as flags
+        uses(Opcodes.JGT, OP_A | OP_B, 0, 0, DEP_FLAGS, EFFECT_BRANCH);
+        uses(Opcodes.JLW, OP_A | OP_B, 0, 0, DEP_FLAGS, EFFECT_BRANCH);
+
+        uses(Opcodes.CALL, 0, 0, DEP_STACK, DEP_STACK, EFFECT_STORE | EFFECT_JUMP);
+        uses(Opcodes.RET, 0, 0, DEP_STACK, DEP_STACK, EFFECT_LOAD | EFFECT_JUMP);
+        uses(Opcodes.PUSH_REG, OP_A, 0, DEP_STACK, DEP_STACK, EFFECT_STORE);
+        uses(Opcodes.POP_REG, 0, OP_A, DEP_STACK, DEP_STACK, EFFECT_LOAD);
+
+        uses(Opcodes.CAS, OP_A | OP_B, OP_A, 0, DEP_FLAGS, EFFECT_LOAD | EFFECT_STORE);
+        uses(Opcodes.FAA, OP_A, OP_A, 0, 0, EFFECT_LOAD | EFFECT_STORE);
+
+        uses(Opcodes.BCOPY, OP_A | OP_B | OP_C, 0, 0, 0, EFFECT_LOAD | EFFECT_STORE);
+        uses(Opcodes.BFILL, OP_A | OP_B | OP_C, 0, 0, 0, EFFECT_STORE);
+        uses(Opcodes.BADD, OP_A | OP_B | OP_C, 0, 0, 0, EFFECT_LOAD | EFFECT_STORE);
+        uses(Opcodes.BSUM, OP_A | OP_C, OP_B, 0, 0, EFFECT_LOAD);
+
+        uses(Opcodes.IMUL, OP_A | OP_B, 0, 0, 0, EFFECT_JUMP | EFFECT_SERIAL);
+        uses(Opcodes.MRET, 0, 0, 0, DEP_FLAGS, EFFECT_JUMP | EFFECT_SERIAL);
+        uses(Opcodes.IRET, 0, 0, 0, DEP_FLAGS, EFFECT_JUMP | EFFECT_SERIAL);
+        uses(Opcodes.HCALL, 0, 0, 0xF, 0x3, EFFECT_LOAD | EFFECT_STORE | EFFECT_SERIAL); // Lê REG0..REG3, devolve em REG0/REG1
+        uses(Opcodes.HALT, 0, 0, 0, 0, EFFECT_SERIAL);
+    }
+
+    private InstructionSet() {
+    }
+
+    /**
+     * Declara um opcode e gera suas entradas nas tabelas de codificação/decodificação.
+     * A primeira forma declarada de um mnemônico é a usada quando o nome vem sem sufixo.
+     */
+    private static void define(int opcode, String mnemonic, int... kinds) {
+        if (DEFINED[opcode]) {
+            throw new IllegalStateException("Opcode declarado duas vezes: 0x" + Integer.toHexString(opcode));
+        }
+        if (kinds.length > MAX_OPERANDS) {
+            throw new IllegalStateException("Operandos demais para " + mnemonic);
+        }
+
+        int regCount = 0;
+        int valueCount = 0;
+        for (int kind : kinds) {
+            if (kind == KIND_REG) {
+                regCount++;
+            } else {
+                valueCount++;
+            }
+        }
+        if (valueCount > 1) {
+            throw new IllegalStateException("Apenas um campo de memória/imediato por instrução: " + mnemonic);
+        }
+
+        int nextRegShift = OPERAND_BITS;
+        int valueBits = OPERAND_BITS - regCount * REG_BITS;
+        StringBuilder syntax = new StringBuilder(mnemonic);
+        StringBuilder name = new StringBuilder(mnemonic);
+        int base = opcode * MAX_OPERANDS;
+        for (int i = 0; i < kinds.length; i++) {
+            FIELD_KIND[base + i] = kinds[i];
+            int bits;
+            if (kinds[i] == KIND_REG) {
+                nextRegShift -= REG_BITS;
+                bits = REG_BITS;
+                FIELD_SHIFT[base + i] = nextRegShift;
+            } else {
+                bits = valueBits;
+                FIELD_SHIFT[base + i] = 0;
+            }
+            FIELD_MASK[base + i] = (1 << bits) - 1;
+            FIELD_LEFT[base + i] = 32 - FIELD_SHIFT[base + i] - bits;
+            FIELD_RIGHT[base + i] = 32 - bits;
+            FIELD_VALUE[base + i] = kinds[i] == KIND_IMM ? -1 : FIELD_MASK[base + i];
+            syntax.append(' ').append(kindSyntax(kinds[i]));
+            name.append('_').append(kindName(kinds[i]));
+        }
+
+        DEFINED[opcode] = true;
+        OPERAND_COUNT[opcode] = kinds.length;
+        MNEMONIC[opcode] = mnemonic;
+        SYNTAX[opcode] = syntax.toString();
+        BY_SYNTAX.put(SYNTAX[opcode], opcode);
+        BY_NAME.putIfAbsent(mnemonic, opcode);
+        if (kinds.length > 0) {
+            BY_NAME.put(name.toString(), opcode);
+        }
+    }
+
+    /**
+     * Declara as dependências de um opcode já definido. Só operandos de registrador podem
+     * aparecer em reads/writes.
+     */
+    private static void uses(int opcode, int reads, int writes, int implicitReads, int implicitWrites, int effects) {
+        int base = opcode * MAX_OPERANDS;
+        for (int i = 0; i < MAX_OPERANDS; i++) {
+            if (((reads | writes) & (1 << i)) != 0 && FIELD_KIND[base + i] != KIND_REG) {
+                throw new IllegalStateException("Operando " + i + " de " + SYNTAX[opcode] + " não é registrador");
+            }
+        }
+        READ_OPERANDS[opcode] = reads;
+        WRITE_OPERANDS[opcode] = writes;
+        IMPLICIT_READS[opcode] = implicitReads;
+        IMPLICIT_WRITES[opcode] = implicitWrites;
+        EFFECTS[opcode] = effects;
+    }
+
+    private static String kindSyntax(int kind) {
+        switch (kind) {
+            case KIND_REG: return "%reg";
+            case KIND_MEM: return "mem";
+            case KIND_IMM: return "imm";
+            default: throw new IllegalArgumentException("Tipo de operando desconhecido: " + kind);
+        }
+    }
+
+    private static String kindName(int kind) {
+        return kind == KIND_REG ? "reg" : kindSyntax(kind);
+    }
+
+    // --- Decodificação (caminho quente da CPU) ---
+
+    /**
+     * Decodifica uma palavra de instrução: um acesso à tabela pelo opcode e a extração
+     * dos campos com deslocamentos e máscara, sem switch por formato. Cada campo é levado ao
+     * topo da palavra e trazido de volta com deslocamento aritmético; a máscara final corta
+     * o sinal dos campos sem sinal e o mantém nos imediatos. Campos ausentes têm máscara 0.
+     *
+     * @param instructionWord O inteiro que representa a instrução.
+     * @return A instrução decodificada, ou null se o opcode não estiver definido.
+     */
+    public static Instruction decode(int instructionWord) {
+        int opcode = (instructionWord >>> OPERAND_BITS) & Opcodes.OPCODE_MASK;
+        if (!DEFINED[opcode]) {
+            return null;
+        }
+        int base = opcode * MAX_OPERANDS;
+        return new Instruction(opcode,
+                ((instructionWord << FIELD_LEFT[base]) >> FIELD_RIGHT[base]) & FIELD_VALUE[base],
+                ((instructionWord << FIELD_LEFT[base + 1]) >> FIELD_RIGHT[base + 1]) & FIELD_VALUE[base + 1],
+                ((instructionWord << FIELD_LEFT[base + 2]) >> FIELD_RIGHT[base + 2]) & FIELD_VALUE[base + 2],
+                instructionWord);
+    }
+
+    // --- Codificação (usada pelo Loader e por microprogramas montados em Java) ---
+
+    /**
+     * Monta a palavra de uma instrução a partir do opcode e dos operandos, na ordem do assembly.
+     *
+     * @throws IllegalArgumentException Se o opcode não existir, a quantidade de operandos
+     *                                  não bater ou um valor não couber no seu campo
+     *                                  (ver fieldMin/fieldMax).
+     */
+    public static int encode(int opcode, int... operands) {
+        if (opcode < 0 || opcode >= TABLE_SIZE || !DEFINED[opcode]) {
+            throw new IllegalArgumentException("Opcode não definido: 0x" + Integer.toHexString(opcode));
+        }
+        if (operands.length != OPERAND_COUNT[opcode]) {
+            throw new IllegalArgumentException("Instrução " + SYNTAX[opcode] + " espera "
+                    + OPERAND_COUNT[opcode] + " operando(s), recebeu " + operands.length);
+        }
+        int word = opcode << OPERAND_BITS;
+        int base = opcode * MAX_OPERANDS;
+        for (int i = 0; i < operands.length; i++) {
+            if (operands[i] < fieldMin(opcode, i) || operands[i] > fieldMax(opcode, i)) {
+                int kind = FIELD_KIND[base + i];
+                String what = kind == KIND_REG ? "Registrador" : kind == KIND_IMM ? "Imediato" : "Endereço";
+                throw new IllegalArgumentException(what + " " + operands[i] + " não cabe no campo de "
+                        + Integer.bitCount(FIELD_MASK[base + i]) + " bits de " + SYNTAX[opcode]
+                        + " (" + fieldMin(opcode, i) + ".." + fieldMax(opcode, i) + ")");
+            }
+            word |= (operands[i] & FIELD_MASK[base + i]) << FIELD_SHIFT[base + i];
+        }
+        return word;
+    }
+
+    /**
+     * Procura o opcode que corresponde a um mnemônico e à sequência de tipos de operando.
+     *
+     * @return O opcode, ou -1 se não houver forma compatível.
+     */
+    public static int findOpcode(String mnemonic, int[] kinds, int count) {
+        StringBuilder syntax = new StringBuilder(mnemonic);
+        for (int i = 0; i < count; i++) {
+            syntax.append(' ').append(kindSyntax(kinds[i]));
+        }
+        Integer opcode = BY_SYNTAX.get(syntax.toString());
+        if (opcode != null) {
+            return opcode;
+        }
+        // Aceita também os nomes com sufixo (ex: "add_mem_reg"), desde que os operandos batam
+        int named = lookupName(mnemonic);
+        if (named < 0 || OPERAND_COUNT[named] != count) {
+            return -1;
+        }
+        for (int i = 0; i < count; i++) {
+            if (FIELD_KIND[named * MAX_OPERANDS + i] != kinds[i]) {
+                return -1;
+            }
+        }
+        return named;
+    }
+
+    // --- Consultas ---
+
+    /** @return O opcode para um nome simples ou com sufixo, ou -1. */
+    public static int lookupName(String name) {
+        Integer opcode = BY_NAME.get(name);
+        return opcode == null ? -1 : opcode;
+    }
+
+    public static boolean isDefined(int opcode) {
+        return opcode >= 0 && opcode < TABLE_SIZE && DEFINED[opcode];
+    }
+
+    public static int operandCount(int opcode) {
+        return OPERAND_COUNT[opcode];
+    }
+
+    public static int operandKind(int opcode, int index) {
+        return FIELD_KIND[opcode * MAX_OPERANDS + index];
+    }
+
+    /**
+     * @return O maior ID de registrador citado pela palavra, ou -1 se o formato não tem
+     *         campo de registrador (ou o opcode não existe). Usado pela CPU para recusar
+     *         registradores acima da quantidade configurada em código montado à mão.
+     */
+    public static int highestRegister(int instructionWord) {
+        int opcode = (instructionWord >>> OPERAND_BITS) & Opcodes.OPCODE_MASK;
+        int highest = -1;
+        for (int i = opcode * MAX_OPERANDS, end = i + MAX_OPERANDS; i < end; i++) {
+            if (FIELD_KIND[i] == KIND_REG) {
+                highest = Math.max(highest, (instructionWord >>> FIELD_SHIFT[i]) & REG_MASK);
+            }
+        }
+        return highest;
+    }
+
+    /** @return O menor valor que o operando index aceita (negativo só nos imediatos). */
+    public static int fieldMin(int opcode, int index) {
+        int base = opcode * MAX_OPERANDS + index;
+        return FIELD_KIND[base] == KIND_IMM ? -((FIELD_MASK[base] >>> 1) + 1) : 0;
+    }
+
+    /** @return O maior valor que o operando index aceita. */
+    public static int fieldMax(int opcode, int index) {
+        int base = opcode * MAX_OPERANDS + index;
+        return FIELD_KIND[base] == KIND_IMM ? FIELD_MASK[base] >>> 1 : FIELD_MASK[base];
+    }
+
+    public static String mnemonicOf(int opcode) {
+        return isDefined(opcode) ? MNEMONIC[opcode] : "UNKNOWN";
+    }
+
+    /**
+     * @return Máscara dos registradores lidos pela instrução (bit = índice em RegisterFile),
+     *         incluindo os implícitos (flags, topo da pilha).
+     */
+    public static int sourceRegisters(Instruction instruction) {
+        int opcode = instruction.getOpcode();
+        return IMPLICIT_READS[opcode] | operandRegisters(READ_OPERANDS[opcode], instruction);
+    }
+
+    /** @return Máscara dos registradores escritos pela instrução (bit = índice em RegisterFile). */
+    public static int destinationRegisters(Instruction instruction) {
+        int opcode = instruction.getOpcode();
+        return IMPLICIT_WRITES[opcode] | operandRegisters(WRITE_OPERANDS[opcode], instruction);
+    }
+
+    private static int operandRegisters(int positions, Instruction instruction) {
+        int mask = 0;
+        if ((positions & OP_A) != 0) {
+            mask |= 1 << instruction.getOperand1();
+        }
+        if ((positions & OP_B) != 0) {
+            mask |= 1 << instruction.getOperand2();
+        }
+        if ((positions & OP_C) != 0) {
+            mask |= 1 << instruction.getOperand3();
+        }
+        return mask;
+    }
+
+    /** @return Os efeitos EFFECT_* do opcode (0 para opcodes não definidos). */
+    public static int effectsOf(int opcode) {
+        return EFFECTS[opcode];
+    }
+
+    /** @return A sintaxe da instrução (ex: "jeq %reg %reg mem"), ou "UNKNOWN". */
+    public static String syntaxOf(int opcode) {
+        return isDefined(opcode) ? SYNTAX[opcode] : "UNKNOWN";
+    }
+}
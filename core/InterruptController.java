@@ -0,0 +1,179 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Controlador de interrupções com LINES linhas, cada uma com seu vetor (endereço do
+ * tratador) e seu bit de máscara. Também é um dispositivo mapeado em memória:
+ *
+ *   base + 0          PENDING  linhas pendentes (leitura); escrever 1 num bit limpa a linha
+ *   base + 1          ENABLE   máscara: bit i = 1 habilita a linha i
+ *   base + 2          ACTIVE   linha em atendimento, ou -1 (somente leitura)
+ *   base + 3 + i      VECTOR i endereço do tratador da linha i
+ *
+ * Dispositivos pedem interrupção com raise(line), de qualquer thread (o DMA avisa o fim
+ * da transferência na sua própria thread). A CPU consulta deliverable() depois de cada
+ * instrução: é só uma leitura volátil enquanto nada está pendente.
+ *
+ * Entrada no tratador (feita pela CPU): a linha de maior prioridade (menor número) pendente
+ * e habilitada é retirada de PENDING e passa a ser ACTIVE; o contexto é salvo na área de
+ * interrupção da memória e o PC recebe o vetor. IRET restaura o contexto e encerra o
+ * atendimento. Não há aninhamento: enquanto uma linha está ativa, as demais esperam.
+ */
+public class InterruptController implements Device {
+    public static final int LINES = 8;
+
+    public static final int REG_PENDING = 0;
+    public static final int REG_ENABLE = 1;
+    public static final int REG_ACTIVE = 2;
+    public static final int REG_VECTOR_BASE = 3;
+    public static final int REGISTER_COUNT = REG_VECTOR_BASE + LINES;
+
+    public static final int NONE = -1;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile int enabled;
+    private volatile int active = NONE; // Escrito só pela thread da CPU
+    private final int[] vectors = new int[LINES];
+
+    // Estatísticas
+    private final AtomicLongArray raised = new AtomicLongArray(LINES);
+    private final long[] delivered = new long[LINES];
+
+    /** Pede interrupção na linha dada. Seguro para qualquer thread. */
+    public void raise(int line) {
+        checkLine(line);
+        pending.getAndUpdate(p -> p | (1 << line));
+        raised.incrementAndGet(line);
+    }
+
+    /** Limpa o pedido pendente da linha dada (sem atendê-lo). */
+    public void clear(int line) {
+        checkLine(line);
+        pending.getAndUpdate(p -> p & ~(1 << line));
+    }
+
+    /**
+     * @return true se há linha pendente e habilitada que pode ser atendida agora.
+     */
+    public boolean deliverable() {
+        return (pending.get() & enabled) != 0 && active == NONE;
+    }
+
+    /**
+     * Retira a linha de maior prioridade de PENDING e a marca como ativa.
+     * Chamado pela CPU na entrada do tratador.
+     *
+     * @return A linha aceita, ou NONE se nenhuma pode ser atendida.
+     */
+    int accept() {
+        while (true) {
+            int p = pending.get();
+            int ready = p & enabled;
+            if (ready == 0 || active != NONE) {
+                return NONE;
+            }
+            int line = Integer.numberOfTrailingZeros(ready);
+            if (pending.compareAndSet(p, p & ~(1 << line))) {
+                active = line;
+                delivered[line]++;
+                return line;
+            }
+        }
+    }
+
+    /** Fim do atendimento (IRET). */
+    void complete() {
+        active = NONE;
+    }
+
+    public int getVector(int line) {
+        checkLine(line);
+        return vectors[line];
+    }
+
+    public void setVector(int line, int address) {
+        checkLine(line);
+        vectors[line] = address;
+    }
+
+    public void enable(int line) {
+        checkLine(line);
+        enabled |= 1 << line;
+    }
+
+    public void disable(int line) {
+        checkLine(line);
+        enabled &= ~(1 << line);
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public long getRaisedCount(int line) {
+        checkLine(line);
+        return raised.get(line);
+    }
+
+    public long getDeliveredCount(int line) {
+        checkLine(line);
+        return delivered[line];
+    }
+
+    private static void checkLine(int line) {
+        if (line < 0 || line >= LINES) {
+            throw new IllegalArgumentException("Linha de interrupção inválida: " + line + " (0.." + (LINES - 1) + ")");
+        }
+    }
+
+    // --- Registradores mapeados em memória ---
+
+    @Override
+    public int size() {
+        return REGISTER_COUNT;
+    }
+
+    @Override
+    public int read(int offset) {
+        switch (offset) {
+            case REG_PENDING: return pending.get();
+            case REG_ENABLE:  return enabled;
+            case REG_ACTIVE:  return active;
+            default:          return vectors[offset - REG_VECTOR_BASE];
+        }
+    }
+
+    @Override
+    public void write(int offset, int value) {
+        switch (offset) {
+            case REG_PENDING: pending.getAndUpdate(p -> p & ~value); break; // Escrever 1 limpa
+            case REG_ENABLE:  enabled = value & ((1 << LINES) - 1); break;
+            case REG_ACTIVE:  break; // Somente leitura
+            default:          vectors[offset - REG_VECTOR_BASE] = value; break;
+        }
+    }
+
+    @Override
+    public void reset() {
+        pending.set(0);
+        enabled = 0;
+        active = NONE;
+        java.util.Arrays.fill(vectors, 0);
+    }
+
+    public void printStatistics() {
+        System.out.println("Interrupções (linha: pedidas/atendidas):");
+        for (int i = 0; i < LINES; i++) {
+            long r = getRaisedCount(i);
+            if (r != 0 || delivered[i] != 0) {
+                System.out.println("  " + i + ": " + r + "/" + delivered[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,722 @@
+package core;
+
+import model.Instruction;
+import java.util.Arrays;
+
+/**
+ * Interpretador em "lanes": executa o mesmo programa sobre N estados de máquina
+ * independentes ao mesmo tempo (varreduras de parâmetros).
+ *
+ * O estado é guardado como struct-of-arrays: cada registrador é um int[N] (uma posição
+ * por lane), as flags são o último resultado da ULA de cada lane (int[N], Z e N derivados
+ * como em Flags) e a memória é um único int[tamanho * N] com as N cópias de cada endereço
+ * lado a lado. Busca e decodificação (vêm de um DecodedProgram compartilhado) e o switch
+ * do opcode acontecem uma vez por grupo de lanes, não uma vez por lane.
+ *
+ * Divergência: a cada passo é escolhido o menor PC entre as lanes ativas, e só as lanes
+ * com esse PC executam a instrução (as demais ficam mascaradas). Depois de um desvio em
+ * que as lanes seguem caminhos diferentes, as que ficaram para trás avançam até alcançar
+ * as outras e o grupo volta a se juntar no primeiro PC em comum.
+ *
+ * Diferenças em relação à CPU:
+ *  - IMUL é executado direto (RegA * RegB em IMUL_RESULT_ADDRESS, flags intactas), sem o
+ *    microprograma; o resultado é o mesmo, mas conta como uma única instrução.
+ *  - MRET não existe aqui (não há microprograma).
+ *  - CAS/FAA não precisam ser atômicas (as lanes não compartilham memória).
+ *  - O código executado é sempre o da imagem carregada: uma escrita dentro dela para a
+ *    lane com o motivo STOP_SELF_MODIFYING_CODE.
+ *  - A pilha não tem cache de topo (push/pop vão direto à memória da lane).
+ *  - Não há traps: uma falha (pilha, endereço fora da memória) para a lane com o motivo
+ *    correspondente, e IRET para a lane com STOP_INVALID_INSTRUCTION.
+ *  - HCALL não é suportado (não há serviços do hospedeiro por lane): para a lane com
+ *    STOP_INVALID_INSTRUCTION.
+ *  - As instruções de bloco (bcopy, bfill, badd, bsum) são laços por lane, já que os
+ *    endereços e o tamanho vêm dos registradores de cada lane; bloco fora da memória ou
+ *    com tamanho negativo para só a lane (STOP_MEMORY_OUT_OF_BOUNDS), sem efeito parcial.
+ */
+public class LaneInterpreter {
+    // Motivos de parada das lanes: os mesmos da CPU sem tratador de trap, mais o de código
+    // automodificável (os demais são os CPU.STOP_*)
+    public static final String STOP_STACK_OVERFLOW = CPU.STOP_STACK_OVERFLOW;
+    public static final String STOP_STACK_UNDERFLOW = CPU.STOP_STACK_UNDERFLOW;
+    public static final String STOP_MEMORY_OUT_OF_BOUNDS = CPU.STOP_MEMORY_OUT_OF_BOUNDS;
+    public static final String STOP_SELF_MODIFYING_CODE = "self-modifying-code";
+
+    private final int lanes;
+    private final int memorySize;
+    private final int registerCount;
+
+    // Estado por lane (struct-of-arrays)
+    private final int[][] reg;        // reg[registrador][lane]
+    private final int[] lastResult;   // Último resultado da ULA (Z = 0, N = negativo)
+    private final int[] pc;
+    private final int[] sp;           // StkTOP de cada lane
+    private final int[] mem;          // mem[endereço * lanes + lane]
+    private final boolean[] running;
+    private final String[] stopReason;
+    private final long[] executed;
+
+    // Layout da memória (igual ao de Memory)
+    private final int imulResultAddress;
+    private final int stackBottom;
+    private final int stackLimit;
+
+    private DecodedProgram image;
+    private long instructionLimit = CPU.DEFAULT_INSTRUCTION_LIMIT;
+    private final int[] group;        // Lanes do grupo atual (mesmo PC)
+    private long groupSteps;          // Quantas vezes uma instrução foi despachada para um grupo
+
+    public LaneInterpreter(int lanes, int memorySize) {
+        this(lanes, memorySize, RegisterFile.DEFAULT_GENERAL_PURPOSE);
+    }
+
+    /**
+     * @param lanes         Quantidade de estados independentes.
+     * @param memorySize    Tamanho da memória de cada lane, em palavras.
+     * @param registerCount Registradores de uso geral de cada lane.
+     */
+    public LaneInterpreter(int lanes, int memorySize, int registerCount) {
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("Quantidade de lanes deve ser positiva: " + lanes);
+        }
+        if (registerCount < 1 || registerCount > RegisterFile.MAX_GENERAL_PURPOSE) {
+            throw new IllegalArgumentException("Quantidade de registradores inválida: " + registerCount);
+        }
+        Memory layout = new Memory(memorySize, registerCount);
+        this.lanes = lanes;
+        this.memorySize = memorySize;
+        this.registerCount = registerCount;
+        this.imulResultAddress = layout.getImulResultAddress();
+        this.stackBottom = layout.getStackBottomAddress();
+        this.stackLimit = Math.max(layout.getVariablesStartAddress(), stackBottom - Stack.DEFAULT_STACK_WORDS);
+
+        // Todas as 16 linhas de registradores existem, para que um campo de registrador
+        // decodificado nunca saia do array (o Loader só aceita os registradores configurados)
+        this.reg = new int[RegisterFile.MAX_GENERAL_PURPOSE][lanes];
+        this.lastResult = new int[lanes];
+        Arrays.fill(lastResult, 1); // Z = 0 e N = 0, como uma Flags recém-criada
+        this.pc = new int[lanes];
+        this.sp = new int[lanes];
+        Arrays.fill(sp, stackBottom);
+        this.mem = new int[memorySize * lanes];
+        this.running = new boolean[lanes];
+        this.stopReason = new String[lanes];
+        this.executed = new long[lanes];
+        this.group = new int[lanes];
+    }
+
+    /**
+     * Carrega o programa na memória de todas as lanes e aponta todos os PCs para ele.
+     */
+    public void loadProgram(int[] code, int startAddress) {
+        if (startAddress < 0 || startAddress + code.length > memorySize) {
+            throw new IllegalArgumentException("Program data does not fit in memory at address " + startAddress);
+        }
+        for (int i = 0; i < code.length; i++) {
+            Arrays.fill(mem, (startAddress + i) * lanes, (startAddress + i + 1) * lanes, code[i]);
+        }
+        image = DecodedProgramCache.get(code, startAddress);
+        Arrays.fill(pc, startAddress);
+    }
+
+    // --- Estado inicial e resultados por lane ---
+
+    public void setRegister(int lane, int id, int value) {
+        checkRegister(id);
+        reg[id][lane] = value;
+    }
+
+    public int getRegister(int lane, int id) {
+        checkRegister(id);
+        return reg[id][lane];
+    }
+
+    public void writeMemory(int lane, int address, int value) {
+        checkAddress(address);
+        mem[address * lanes + lane] = value;
+    }
+
+    public int readMemory(int lane, int address) {
+        checkAddress(address);
+        return mem[address * lanes + lane];
+    }
+
+    public boolean isRunning(int lane) {
+        return running[lane];
+    }
+
+    public String getStopReason(int lane) {
+        return stopReason[lane];
+    }
+
+    public long getInstructionCount(int lane) {
+        return executed[lane];
+    }
+
+    public int getLaneCount() {
+        return lanes;
+    }
+
+    /**
+     * Máximo de instruções por lane.
+     *
+     * @throws IllegalArgumentException Se o limite não for positivo.
+     */
+    public void setInstructionLimit(long instructionLimit) {
+        if (instructionLimit <= 0) {
+            throw new IllegalArgumentException("Limite de instruções deve ser positivo: " + instructionLimit);
+        }
+        this.instructionLimit = instructionLimit;
+    }
+
+    /** Quantas vezes uma instrução foi despachada (para um grupo de lanes). */
+    public long getGroupSteps() {
+        return groupSteps;
+    }
+
+    /**
+     * Fração média de lanes ativas por despacho (1.0 = nenhuma divergência).
+     */
+    public double getLaneUtilization() {
+        long total = 0;
+        for (long e : executed) {
+            total += e;
+        }
+        return groupSteps == 0 ? 0 : (double) total / ((double) groupSteps * lanes);
+    }
+
+    private void checkRegister(int id) {
+        if (id < 0 || id >= registerCount) {
+            throw new IllegalArgumentException("ID de registrador inválido: " + id + ". Esperado 0-" + (registerCount - 1) + ".");
+        }
+    }
+
+    private void checkAddress(int address) {
+        if (address < 0 || address >= memorySize) {
+            throw new IndexOutOfBoundsException("Memory access error: Address " + address + " is out of bounds [0, " + (memorySize - 1) + "]");
+        }
+    }
+
+    // --- Execução ---
+
+    /**
+     * Executa todas as lanes até que cada uma pare (HALT, limite, erro).
+     *
+     * Enquanto o grupo não diverge, o PC do grupo fica numa variável local e o PC e a
+     * contagem de instruções de cada lane só são atualizados quando o grupo se desfaz
+     * (desvio com resultados diferentes, parada de alguma lane, limite de instruções, ou
+     * o grupo alcançou o PC de outras lanes e precisa se juntar a elas).
+     */
+    public void run() {
+        if (image == null) {
+            throw new IllegalStateException("Nenhum programa carregado.");
+        }
+        Arrays.fill(running, true);
+        Arrays.fill(stopReason, null);
+        while (true) {
+            // Escolhe o menor PC entre as lanes ativas e junta as lanes que estão nele;
+            // "other" é o menor PC das lanes que ficaram de fora
+            int minPc = Integer.MAX_VALUE;
+            int other = Integer.MAX_VALUE;
+            int g = 0;
+            for (int l = 0; l < lanes; l++) {
+                if (!running[l]) {
+                    continue;
+                }
+                int p = pc[l];
+                if (p < minPc) {
+                    other = Math.min(other, minPc);
+                    minPc = p;
+                    g = 0;
+                } else if (p > minPc && p < other) {
+                    other = p;
+                }
+                if (p == minPc) {
+                    group[g++] = l;
+                }
+            }
+            if (g == 0) {
+                break; // Todas as lanes pararam
+            }
+
+            // Quantas instruções o grupo pode executar antes de alguma lane atingir o limite
+            long budget = Long.MAX_VALUE;
+            for (int k = 0; k < g; k++) {
+                budget = Math.min(budget, Math.max(instructionLimit - executed[group[k]], 0));
+            }
+
+            int p = minPc;
+            long steps = 0;
+            while (true) {
+                if (steps >= budget) {
+                    addExecuted(g, steps);
+                    for (int k = 0; k < g; k++) {
+                        int l = group[k];
+                        if (executed[l] >= instructionLimit) {
+                            stop(l, CPU.STOP_LIMIT);
+                        } else {
+                            pc[l] = p;
+                        }
+                    }
+                    break;
+                }
+                Instruction instruction = image.contains(p) ? image.instructionAt(p) : null;
+                if (instruction == null) {
+                    addExecuted(g, steps);
+                    stopGroup(g, image.contains(p) ? CPU.STOP_INVALID_INSTRUCTION : CPU.STOP_PC_OUT_OF_BOUNDS);
+                    break;
+                }
+                steps++;
+                groupSteps++;
+                int next = execute(instruction, p + 1, g);
+                if (next == DIVERGED) { // PCs já gravados por lane (ou lanes paradas)
+                    addExecuted(g, steps);
+                    break;
+                }
+                p = next;
+                if (p >= other) { // Alcançou lanes que estavam esperando: reagrupa
+                    addExecuted(g, steps);
+                    for (int k = 0; k < g; k++) {
+                        pc[group[k]] = p;
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private void addExecuted(int g, long steps) {
+        for (int k = 0; k < g; k++) {
+            executed[group[k]] += steps;
+        }
+    }
+
+    private void stop(int lane, String reason) {
+        running[lane] = false;
+        stopReason[lane] = reason;
+    }
+
+    private void stopGroup(int g, String reason) {
+        for (int k = 0; k < g; k++) {
+            stop(group[k], reason);
+        }
+    }
+
+    // Retorno de execute() quando as lanes do grupo não seguem mais para o mesmo PC
+    private static final int DIVERGED = -1;
+
+    // Condições dos desvios, avaliadas sobre o último resultado da ULA de cada lane
+    private static final int COND_NEGATIVE = 0; // JN, JLW
+    private static final int COND_ZERO = 1;     // JZ, JEQ
+    private static final int COND_NONZERO = 2;  // JNZ
+    private static final int COND_POSITIVE = 3; // JGT
+
+    private static boolean holds(int cond, int result) {
+        switch (cond) {
+            case COND_NEGATIVE: return result < 0;
+            case COND_ZERO:     return result == 0;
+            case COND_NONZERO:  return result != 0;
+            default:            return result > 0;
+        }
+    }
+
+    /**
+     * Resolve um desvio condicional do grupo depois que "taken" lanes o tomaram.
+     * Se todas ou nenhuma tomaram, o grupo continua junto; senão cada lane recebe o seu PC.
+     */
+    private int branch(int cond, int taken, int g, int target, int next) {
+        if (taken == g) {
+            return target;
+        }
+        if (taken == 0) {
+            return next;
+        }
+        for (int k = 0; k < g; k++) {
+            int l = group[k];
+            pc[l] = holds(cond, lastResult[l]) ? target : next;
+        }
+        return DIVERGED;
+    }
+
+    // Depois de uma parada individual (ex: stack overflow), grava o PC das lanes restantes
+    private int splitAfterFault(int g, int next) {
+        for (int k = 0; k < g; k++) {
+            int l = group[k];
+            if (running[l]) {
+                pc[l] = next;
+            }
+        }
+        return DIVERGED;
+    }
+
+    /**
+     * Executa a instrução para as g primeiras lanes de group.
+     *
+     * @param next Endereço da instrução seguinte.
+     * @return O PC comum do grupo depois da instrução, ou DIVERGED.
+     */
+    private int execute(Instruction instruction, int next, int g) {
+        final int[] grp = group;
+        final int n = lanes;
+        int[] ra, rb;
+        int base, target, taken;
+
+        switch (instruction.getOpcode()) {
+            case Opcodes.ADD_REG_REG: // RegB <- RegA + RegB
+                ra = reg[instruction.getOperand1()];
+                rb = reg[instruction.getOperand2()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    lastResult[l] = rb[l] = ra[l] + rb[l];
+                }
+                return next;
+            case Opcodes.SUB_REG_REG: // RegB <- RegA - RegB
+                ra = reg[instruction.getOperand1()];
+                rb = reg[instruction.getOperand2()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    lastResult[l] = rb[l] = ra[l] - rb[l];
+                }
+                return next;
+            case Opcodes.ADD_MEM_REG: // RegA <- memória[mem] + RegA
+                if ((base = dataBase(instruction.getOperand1(), g, false)) < 0) {
+                    return DIVERGED;
+                }
+                ra = reg[instruction.getOperand2()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    lastResult[l] = ra[l] = mem[base + l] + ra[l];
+                }
+                return next;
+            case Opcodes.SUB_MEM_REG: // RegA <- memória[mem] - RegA
+                if ((base = dataBase(instruction.getOperand1(), g, false)) < 0) {
+                    return DIVERGED;
+                }
+                ra = reg[instruction.getOperand2()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    lastResult[l] = ra[l] = mem[base + l] - ra[l];
+                }
+                return next;
+            case Opcodes.ADD_REG_MEM: // memória[mem] <- RegA + memória[mem]
+                if ((base = dataBase(instruction.getOperand2(), g, true)) < 0) {
+                    return DIVERGED;
+                }
+                ra = reg[instruction.getOperand1()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    lastResult[l] = mem[base + l] = ra[l] + mem[base + l];
+                }
+                return next;
+            case Opcodes.SUB_REG_MEM: // memória[mem] <- RegA - memória[mem]
+                if ((base = dataBase(instruction.getOperand2(), g, true)) < 0) {
+                    return DIVERGED;
+                }
+                ra = reg[instruction.getOperand1()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    lastResult[l] = mem[base + l] = ra[l] - mem[base + l];
+                }
+                return next;
+            case Opcodes.INC_REG: // RegA ++
+                ra = reg[instruction.getOperand1()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    lastResult[l] = ++ra[l];
+                }
+                return next;
+            case Opcodes.INC_MEM: // memória[mem] ++
+                if ((base = dataBase(instruction.getOperand1(), g, true)) < 0) {
+                    return DIVERGED;
+                }
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    lastResult[l] = ++mem[base + l];
+                }
+                return next;
+            case Opcodes.MOVE_MEM_REG: // RegA <- memória[mem]
+                if ((base = dataBase(instruction.getOperand1(), g, false)) < 0) {
+                    return DIVERGED;
+                }
+                ra = reg[instruction.getOperand2()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    ra[l] = mem[base + l];
+                }
+                return next;
+            case Opcodes.MOVE_REG_MEM: // memória[mem] <- RegA
+                if ((base = dataBase(instruction.getOperand2(), g, true)) < 0) {
+                    return DIVERGED;
+                }
+                ra = reg[instruction.getOperand1()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    mem[base + l] = ra[l];
+                }
+                return next;
+            case Opcodes.MOVE_REG_REG: // RegB <- RegA
+                ra = reg[instruction.getOperand1()];
+                rb = reg[instruction.getOperand2()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    rb[l] = ra[l];
+                }
+                return next;
+            case Opcodes.MOVE_IMM_REG: // RegA <- imediato
+                int immediate = instruction.getOperand1();
+                ra = reg[instruction.getOperand2()];
+                for (int k = 0; k < g; k++) {
+                    ra[grp[k]] = immediate;
+                }
+                return next;
+            case Opcodes.JMP:
+                return instruction.getOperand1();
+            case Opcodes.JN:
+                taken = 0;
+                for (int k = 0; k < g; k++) {
+                    if (lastResult[grp[k]] < 0) {
+                        taken++;
+                    }
+                }
+                return branch(COND_NEGATIVE, taken, g, instruction.getOperand1(), next);
+            case Opcodes.JZ:
+                taken = 0;
+                for (int k = 0; k < g; k++) {
+                    if (lastResult[grp[k]] == 0) {
+                        taken++;
+                    }
+                }
+                return branch(COND_ZERO, taken, g, instruction.getOperand1(), next);
+            case Opcodes.JNZ:
+                taken = 0;
+                for (int k = 0; k < g; k++) {
+                    if (lastResult[grp[k]] != 0) {
+                        taken++;
+                    }
+                }
+                return branch(COND_NONZERO, taken, g, instruction.getOperand1(), next);
+            case Opcodes.JEQ: // se RegA == RegB (RegA - RegB == 0)
+                ra = reg[instruction.getOperand1()];
+                rb = reg[instruction.getOperand2()];
+                taken = 0;
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    if ((lastResult[l] = ra[l] - rb[l]) == 0) {
+                        taken++;
+                    }
+                }
+                return branch(COND_ZERO, taken, g, instruction.getOperand3(), next);
+            case Opcodes.JGT: // se RegA > RegB (RegA - RegB nem zero nem negativo)
+                ra = reg[instruction.getOperand1()];
+                rb = reg[instruction.getOperand2()];
+                taken = 0;
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    if ((lastResult[l] = ra[l] - rb[l]) > 0) {
+                        taken++;
+                    }
+                }
+                return branch(COND_POSITIVE, taken, g, instruction.getOperand3(), next);
+            case Opcodes.JLW: // se RegA < RegB (RegA - RegB negativo)
+                ra = reg[instruction.getOperand1()];
+                rb = reg[instruction.getOperand2()];
+                taken = 0;
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    if ((lastResult[l] = ra[l] - rb[l]) < 0) {
+                        taken++;
+                    }
+                }
+                return branch(COND_NEGATIVE, taken, g, instruction.getOperand3(), next);
+            case Opcodes.CALL: // push(PC); PC <- mem
+                taken = 0; // aqui: lanes que conseguiram empilhar
+                for (int k = 0; k < g; k++) {
+                    if (push(grp[k], next)) {
+                        taken++;
+                    }
+                }
+                return taken == g ? instruction.getOperand1() : splitAfterFault(g, instruction.getOperand1());
+            case Opcodes.RET: { // PC <- pop()
+                boolean same = true;
+                int first = -1;
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    if (sp[l] >= stackBottom) {
+                        stop(l, STOP_STACK_UNDERFLOW);
+                        same = false;
+                    } else {
+                        int address = pc[l] = mem[sp[l]++ * n + l];
+                        if (first == -1) {
+                            first = address;
+                        } else if (address != first) {
+                            same = false;
+                        }
+                    }
+                }
+                return same ? first : DIVERGED; // Em DIVERGED, pc[] já tem o endereço de cada lane
+            }
+            case Opcodes.PUSH_REG:
+                ra = reg[instruction.getOperand1()];
+                taken = 0;
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    if (push(l, ra[l])) {
+                        taken++;
+                    }
+                }
+                return taken == g ? next : splitAfterFault(g, next);
+            case Opcodes.POP_REG:
+                ra = reg[instruction.getOperand1()];
+                taken = 0;
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    if (sp[l] >= stackBottom) {
+                        stop(l, STOP_STACK_UNDERFLOW);
+                    } else {
+                        ra[l] = mem[sp[l]++ * n + l];
+                        taken++;
+                    }
+                }
+                return taken == g ? next : splitAfterFault(g, next);
+            case Opcodes.IMUL: // Resultado direto em IMUL_RESULT_ADDRESS (mesmo valor do microprograma)
+                ra = reg[instruction.getOperand1()];
+                rb = reg[instruction.getOperand2()];
+                base = imulResultAddress * n;
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    mem[base + l] = ra[l] * rb[l];
+                }
+                return next;
+            case Opcodes.CAS: // se mem == RegA: mem <- RegB; RegA <- antigo; Z = troca feita
+                if ((base = dataBase(instruction.getOperand3(), g, true)) < 0) {
+                    return DIVERGED;
+                }
+                ra = reg[instruction.getOperand1()];
+                rb = reg[instruction.getOperand2()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    int old = mem[base + l];
+                    if (old == ra[l]) {
+                        mem[base + l] = rb[l];
+                    }
+                    lastResult[l] = old - ra[l];
+                    ra[l] = old;
+                }
+                return next;
+            case Opcodes.FAA: // mem <- mem + RegA; RegA <- antigo
+                if ((base = dataBase(instruction.getOperand2(), g, true)) < 0) {
+                    return DIVERGED;
+                }
+                ra = reg[instruction.getOperand1()];
+                for (int k = 0; k < g; k++) {
+                    int l = grp[k];
+                    int old = mem[base + l];
+                    mem[base + l] = old + ra[l];
+                    ra[l] = old;
+                }
+                return next;
+            case Opcodes.BCOPY: // memória[RegB..RegB+RegC) <- memória[RegA..RegA+RegC)
+            case Opcodes.BFILL: // memória[RegB..RegB+RegC) <- RegA
+            case Opcodes.BADD:  // memória[RegB..RegB+RegC) += RegA
+            case Opcodes.BSUM:  // RegB <- soma de memória[RegA..RegA+RegC)
+                return block(instruction, next, g);
+            case Opcodes.HALT:
+                stopGroup(g, CPU.STOP_HALT);
+                return DIVERGED;
+            default: // MRET, IRET, HCALL e opcodes não suportados neste modo
+                stopGroup(g, CPU.STOP_INVALID_INSTRUCTION);
+                return DIVERGED;
+        }
+    }
+
+    /**
+     * Índice base (endereço * lanes) de um acesso a dados. Como o endereço vem da instrução,
+     * ele é o mesmo para todo o grupo e é verificado uma vez só.
+     *
+     * @return O índice base, ou -1 se o grupo foi parado (endereço inválido ou escrita no código).
+     */
+    private int dataBase(int address, int g, boolean write) {
+        if (address < 0 || address >= memorySize) {
+            stopGroup(g, STOP_MEMORY_OUT_OF_BOUNDS);
+            return -1;
+        }
+        if (write && image.contains(address)) {
+            stopGroup(g, STOP_SELF_MODIFYING_CODE);
+            return -1;
+        }
+        return address * lanes;
+    }
+
+    // Instrução de bloco: endereços e tamanho são de cada lane, então o laço é por lane
+    private int block(Instruction instruction, int next, int g) {
+        final int n = lanes;
+        int opcode = instruction.getOpcode();
+        int[] ra = reg[instruction.getOperand1()];
+        int[] rb = reg[instruction.getOperand2()];
+        int[] rc = reg[instruction.getOperand3()];
+        int done = 0;
+        for (int k = 0; k < g; k++) {
+            int l = group[k];
+            int length = rc[l];
+            int source = ra[l];
+            int destination = rb[l];
+            boolean reads = opcode == Opcodes.BCOPY || opcode == Opcodes.BSUM;
+            boolean writes = opcode != Opcodes.BSUM;
+            if ((reads && !blockInMemory(source, length)) || (writes && !blockInMemory(destination, length))) {
+                stop(l, STOP_MEMORY_OUT_OF_BOUNDS);
+                continue;
+            }
+            if (writes && image.overlaps(destination, length)) {
+                stop(l, STOP_SELF_MODIFYING_CODE);
+                continue;
+            }
+            switch (opcode) {
+                case Opcodes.BCOPY:
+                    if (destination > source) { // Faixas sobrepostas: de trás para frente
+                        for (int i = length - 1; i >= 0; i--) {
+                            mem[(destination + i) * n + l] = mem[(source + i) * n + l];
+                        }
+                    } else {
+                        for (int i = 0; i < length; i++) {
+                            mem[(destination + i) * n + l] = mem[(source + i) * n + l];
+                        }
+                    }
+                    break;
+                case Opcodes.BFILL:
+                    for (int i = 0; i < length; i++) {
+                        mem[(destination + i) * n + l] = source;
+                    }
+                    break;
+                case Opcodes.BADD:
+                    for (int i = 0; i < length; i++) {
+                        mem[(destination + i) * n + l] += source;
+                    }
+                    break;
+                default: // BSUM
+                    int sum = 0;
+                    for (int i = 0; i < length; i++) {
+                        sum += mem[(source + i) * n + l];
+                    }
+                    rb[l] = sum;
+                    break;
+            }
+            done++;
+        }
+        return done == g ? next : splitAfterFault(g, next);
+    }
+
+    private boolean blockInMemory(int address, int length) {
+        return length >= 0 && address >= 0 && address <= memorySize - length;
+    }
+
+    private boolean push(int lane, int value) {
+        int top = sp[lane] - 1;
+        if (top < stackLimit) {
+            stop(lane, STOP_STACK_OVERFLOW);
+            return false;
+        }
+        mem[top * lanes + lane] = value;
+        sp[lane] = top;
+        return true;
+    }
+}
@@ -0,0 +1,271 @@
+package core;
+
+/**
+ * Unidade de gerenciamento de memória opcional: traduz os endereços de dados da CPU
+ * (virtuais) em endereços da Memory (físicos) por páginas.
+ *
+ * Tabela de páginas: um nível, na própria memória do convidado, com uma palavra por página
+ * virtual a partir de PTBR. Formato da entrada (PTE):
+ *   bits 31..2  quadro físico (endereço físico da página = quadro << pageShift)
+ *   bit 1       PTE_WRITABLE
+ *   bit 0       PTE_VALID
+ * Cada processo tem seu espaço de endereçamento: a sua tabela (PTBR, LENGTH) e um ASID que
+ * marca as suas entradas no TLB.
+ *
+ * Também é um dispositivo mapeado em memória, para o próprio convidado trocar de processo:
+ *   base + 0  PTBR     endereço físico da tabela de páginas
+ *   base + 1  LENGTH   quantidade de entradas (páginas virtuais) da tabela
+ *   base + 2  ASID     identificador do espaço de endereçamento atual
+ *   base + 3  CONTROL  1 liga a tradução, 0 desliga
+ *   base + 4  FLUSH    escrever um ASID descarta as suas entradas do TLB; -1 descarta todas
+ *
+ * Uma falta no TLB lê a entrada da tabela (uma leitura da memória, contada em getWalks).
+ * Página inválida, fora da tabela ou com quadro fora da memória gera CPU.FAULT_PAGE;
+ * escrita em página sem PTE_WRITABLE gera CPU.FAULT_PROTECTION. As duas entram no
+ * tratador de trap da CPU com o endereço virtual como endereço da falha.
+ *
+ * A tabela é lida pela CPU só nas faltas do TLB: quem altera uma entrada que pode estar
+ * no TLB deve descartá-la (FLUSH), como num processador real.
+ */
+public class MMU implements Device {
+    public static final int PTE_VALID = 1;
+    public static final int PTE_WRITABLE = 2;
+    public static final int PTE_FRAME_SHIFT = 2;
+
+    public static final int REG_PTBR = 0;
+    public static final int REG_LENGTH = 1;
+    public static final int REG_ASID = 2;
+    public static final int REG_CONTROL = 3;
+    public static final int REG_FLUSH = 4;
+    public static final int REGISTER_COUNT = 5;
+
+    public static final int DEFAULT_PAGE_SHIFT = 6; // Páginas de 64 palavras
+
+    private final Memory memory;
+    private final TLB tlb;
+    private final int pageShift;
+    private final int offsetMask;
+
+    private int ptbr;
+    private int tableLength;
+    private int asid;
+    private boolean enabled;
+    private int lastFault = CPU.FAULT_NONE;
+
+    // Estatísticas
+    private long hits;
+    private long misses;
+    private long walks;
+    private long pageFaults;
+    private long protectionFaults;
+
+    /**
+     * @param memory    Memória física (onde também ficam as tabelas de páginas).
+     * @param tlb       TLB usado nas traduções.
+     * @param pageShift log2 do tamanho da página em palavras.
+     */
+    public MMU(Memory memory, TLB tlb, int pageShift) {
+        if (pageShift < 0 || pageShift > 20) {
+            throw new IllegalArgumentException("Tamanho de página inválido: 2^" + pageShift);
+        }
+        this.memory = memory;
+        this.tlb = tlb;
+        this.pageShift = pageShift;
+        this.offsetMask = (1 << pageShift) - 1;
+    }
+
+    public MMU(Memory memory, TLB tlb) {
+        this(memory, tlb, DEFAULT_PAGE_SHIFT);
+    }
+
+    /** Monta uma entrada da tabela de páginas. */
+    public static int pte(int frame, boolean writable) {
+        return (frame << PTE_FRAME_SHIFT) | (writable ? PTE_WRITABLE : 0) | PTE_VALID;
+    }
+
+    /** Grava na tabela de páginas atual a tradução page -> frame e descarta a antiga do TLB. */
+    public void map(int page, int frame, boolean writable) {
+        checkPage(page);
+        memory.write(ptbr + page, pte(frame, writable));
+        tlb.flush(asid);
+    }
+
+    /** Invalida a entrada da tabela de páginas atual e a descarta do TLB. */
+    public void unmap(int page) {
+        checkPage(page);
+        memory.write(ptbr + page, 0);
+        tlb.flush(asid);
+    }
+
+    private void checkPage(int page) {
+        if (page < 0 || page >= tableLength) {
+            throw new IllegalArgumentException("Página " + page + " fora da tabela (0.." + (tableLength - 1) + ")");
+        }
+    }
+
+    /**
+     * Troca o espaço de endereçamento (processo) atual.
+     */
+    public void setAddressSpace(int asid, int pageTableBase, int pageTableLength) {
+        this.asid = asid;
+        this.ptbr = pageTableBase;
+        this.tableLength = pageTableLength;
+    }
+
+    /**
+     * Traduz um endereço virtual.
+     *
+     * @return O endereço físico, ou -1 se houve falha (causa em getLastFault()). Um endereço
+     *         que cairia além do fim da memória (quadro final incompleto) é falta de página.
+     */
+    public int translate(int address, boolean write) {
+        int page = address >>> pageShift;
+        int entry = tlb.lookup(asid, page);
+        if (entry >= 0) {
+            hits++;
+        } else {
+            misses++;
+            entry = walk(address, page);
+            if (entry < 0) {
+                return -1;
+            }
+        }
+        if (write && !tlb.isWritable(entry)) {
+            protectionFaults++;
+            lastFault = CPU.FAULT_PROTECTION;
+            return -1;
+        }
+        int physical = (tlb.frameAt(entry) << pageShift) | (address & offsetMask);
+        if (physical >= memory.getMaxSize()) { // Último quadro incompleto: o deslocamento passa do fim
+            return pageFault();
+        }
+        return physical;
+    }
+
+    // Leitura da tabela de páginas na falta do TLB
+    private int walk(int address, int page) {
+        if (address < 0 || page >= tableLength || ptbr < 0 || ptbr + page >= memory.getMaxSize()) {
+            return pageFault();
+        }
+        walks++;
+        int pte = memory.read(ptbr + page);
+        int frame = pte >>> PTE_FRAME_SHIFT;
+        if ((pte & PTE_VALID) == 0 || frame > (memory.getMaxSize() - 1) >>> pageShift) {
+            return pageFault();
+        }
+        return tlb.insert(asid, page, frame, (pte & PTE_WRITABLE) != 0);
+    }
+
+    private int pageFault() {
+        pageFaults++;
+        lastFault = CPU.FAULT_PAGE;
+        return -1;
+    }
+
+    public int getLastFault() {
+        return lastFault;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // --- Registradores mapeados em memória ---
+
+    @Override
+    public int size() {
+        return REGISTER_COUNT;
+    }
+
+    @Override
+    public int read(int offset) {
+        switch (offset) {
+            case REG_PTBR:    return ptbr;
+            case REG_LENGTH:  return tableLength;
+            case REG_ASID:    return asid;
+            case REG_CONTROL: return enabled ? 1 : 0;
+            default:          return 0;
+        }
+    }
+
+    @Override
+    public void write(int offset, int value) {
+        switch (offset) {
+            case REG_PTBR:    ptbr = value; break;
+            case REG_LENGTH:  tableLength = value; break;
+            case REG_ASID:    asid = value; break;
+            case REG_CONTROL: enabled = (value & 1) != 0; break;
+            default:
+                if (value == -1) {
+                    tlb.flush();
+                } else {
+                    tlb.flush(value);
+                }
+                break;
+        }
+    }
+
+    @Override
+    public void reset() {
+        tlb.flush();
+        ptbr = 0;
+        tableLength = 0;
+        asid = 0;
+        enabled = false;
+        lastFault = CPU.FAULT_NONE;
+    }
+
+    // --- Estatísticas ---
+
+    public TLB getTLB() {
+        return tlb;
+    }
+
+    public int getPageShift() {
+        return pageShift;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getWalks() {
+        return walks;
+    }
+
+    public long getPageFaults() {
+        return pageFaults;
+    }
+
+    public long getProtectionFaults() {
+        return protectionFaults;
+    }
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        walks = 0;
+        pageFaults = 0;
+        protectionFaults = 0;
+    }
+
+    public void printStatistics() {
+        System.out.printf("MMU: TLB %d conjuntos x %d vias, %d acertos, %d faltas (taxa de acerto %.4f), "
+                        + "%d leituras de tabela, %d faltas de página, %d violações de proteção, %d substituições%n",
+                          tlb.getSets(), tlb.getWays(), hits, misses, getHitRate(), walks, pageFaults,
+                          protectionFaults, tlb.getEvictions());
+    }
+}
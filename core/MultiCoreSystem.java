@@ -0,0 +1,130 @@
+package core;
+
+/**
+ * Vários núcleos (CPUs) executando sobre uma única Memory compartilhada.
+ *
+ * Cada núcleo tem seus próprios registradores, flags e pilha (as pilhas ficam uma abaixo
+ * da outra, Stack.DEFAULT_STACK_WORDS palavras por núcleo). Código e variáveis são
+ * compartilhados; a sincronização entre núcleos deve usar as instruções atômicas
+ * CAS e FAA, já que leituras e escritas comuns não têm ordem garantida entre threads.
+ *
+ * Os núcleos também têm áreas de contexto separadas (contextos de trap e de interrupção,
+ * registrador de falha e vetor de trap): o núcleo 0 usa a da memória, nos endereços fixos
+ * de sempre; os demais recebem uma abaixo das pilhas, e o tratador de cada um deve ler o
+ * registrador de falha em CPU.getFaultRegisterAddress (o vetor é definido por núcleo, com
+ * CPU.setTrapVector).
+ *
+ * Atenção: a área do IMUL (resultado e microprograma) também é compartilhada, então
+ * dois núcleos executando IMUL ao mesmo tempo sobrescrevem o resultado um do outro.
+ *
+ * Dois modos de execução:
+ *  - runParallel(): uma thread por núcleo, intercalação real (não determinística);
+ *  - runLockstep(): um núcleo por vez, uma instrução de cada em rodízio (determinístico,
+ *    útil para reproduzir e depurar corridas).
+ */
+public class MultiCoreSystem {
+    private final Memory memory;
+    private final CPU[] cores;
+    private CoherenceModel coherence;
+
+    public MultiCoreSystem(int memorySize, int coreCount) {
+        this(memorySize, coreCount, RegisterFile.DEFAULT_GENERAL_PURPOSE);
+    }
+
+    public MultiCoreSystem(int memorySize, int coreCount, int registerCount) {
+        if (coreCount <= 0) {
+            throw new IllegalArgumentException("Quantidade de núcleos deve ser positiva: " + coreCount);
+        }
+        this.memory = new Memory(memorySize, registerCount);
+        this.cores = new CPU[coreCount];
+        int bottom = memory.getStackBottomAddress();
+        int contextWords = memory.getContextAreaWords();
+        // Áreas de contexto dos núcleos 1..n-1 ficam logo abaixo da última pilha
+        int contextBase = bottom - coreCount * Stack.DEFAULT_STACK_WORDS;
+        if (contextBase - (coreCount - 1) * contextWords < memory.getVariablesStartAddress()) {
+            throw new IllegalArgumentException("Memória pequena demais para as pilhas de " + coreCount + " núcleos.");
+        }
+        for (int i = 0; i < coreCount; i++) {
+            int stackBottom = bottom - i * Stack.DEFAULT_STACK_WORDS;
+            int contextArea = i == 0 ? -1 : contextBase - i * contextWords;
+            cores[i] = new CPU(memory, i, registerCount, RegisterFile.DEFAULT_BANKS, stackBottom, contextArea);
+        }
+    }
+
+    /**
+     * Liga o modelo de custo de coerência em todos os núcleos.
+     *
+     * @param lineWords Palavras por linha de memória (potência de 2).
+     */
+    public CoherenceModel enableCoherenceModel(int lineWords) {
+        coherence = new CoherenceModel(memory.getMaxSize(), lineWords, cores.length);
+        for (CPU core : cores) {
+            core.setCoherenceModel(coherence);
+        }
+        return coherence;
+    }
+
+    /**
+     * Carrega o código uma única vez na memória compartilhada e aponta todos os núcleos
+     * para ele. REG0 de cada núcleo recebe o seu identificador, para que o programa
+     * possa dividir o trabalho.
+     */
+    public void loadProgram(int[] code, int startAddress) {
+        memory.load(startAddress, code);
+        for (CPU core : cores) {
+            core.getPC().set(startAddress);
+            core.setRegisterValue(0, core.getCoreId());
+        }
+    }
+
+    /**
+     * Executa todos os núcleos em paralelo, uma thread por núcleo, e espera todos pararem.
+     */
+    public void runParallel() throws InterruptedException {
+        Thread[] threads = new Thread[cores.length];
+        for (int i = 0; i < cores.length; i++) {
+            threads[i] = new Thread(cores[i]::start, "core-" + i);
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+
+    /**
+     * Executa os núcleos em rodízio na thread atual, uma instrução de cada núcleo por vez,
+     * até todos pararem. A intercalação é sempre a mesma para o mesmo programa.
+     */
+    public void runLockstep() {
+        for (CPU core : cores) {
+            core.begin();
+        }
+        int active = cores.length;
+        while (active > 0) {
+            active = 0;
+            for (CPU core : cores) {
+                if (core.isRunning() && core.step()) {
+                    active++;
+                }
+            }
+        }
+    }
+
+    public Memory getMemory() {
+        return memory;
+    }
+
+    public CPU getCore(int id) {
+        return cores[id];
+    }
+
+    public int getCoreCount() {
+        return cores.length;
+    }
+
+    public CoherenceModel getCoherenceModel() {
+        return coherence;
+    }
+}
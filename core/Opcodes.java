@@ -1,8 +1,5 @@
 package core;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public final class Opcodes {
     public static final int OPCODE_BITS = 8;
     public static final int OPCODE_MASK = 0xFF;
@@ -37,82 +34,45 @@ public final class Opcodes {
     // --- Sub-rotinas ---
     public static final int CALL = 0x60;
     public static final int RET  = 0x61;
+    public static final int PUSH_REG = 0x62;
+    public static final int POP_REG  = 0x63;
+
+    // --- Atômicas (memória compartilhada entre núcleos) ---
+    public static final int CAS = 0x80;
+    public static final int FAA = 0x81;
+
+    // --- Bloco (uma instrução por faixa de memória) ---
+    public static final int BCOPY = 0x90;
+    public static final int BFILL = 0x91;
+    public static final int BADD  = 0x92;
+    public static final int BSUM  = 0x93;
 
     // --- Especiais ---
     public static final int IMUL = 0x70;
+    public static final int MRET = 0x71; // Retorno de microprograma (volta ao banco de quem chamou)
+    public static final int IRET = 0x72; // Retorno de interrupção (restaura o contexto salvo na entrada)
+    public static final int HCALL = 0x73; // Chamada a um serviço do hospedeiro (rotina nativa em Java)
     public static final int HALT = 0xFF;
 
-    private static final Map<String, Integer> OPCODE_MAP = new HashMap<>();
-    private static final Map<Integer, String> INSTRUCTION_NAMES = new HashMap<>();
-
-    static {
-        // Formatos específicos
-        OPCODE_MAP.put("add_reg_reg", ADD_REG_REG);
-        OPCODE_MAP.put("sub_reg_reg", SUB_REG_REG);
-        OPCODE_MAP.put("inc_reg", INC_REG);
-
-        OPCODE_MAP.put("add_mem_reg", ADD_MEM_REG);
-        OPCODE_MAP.put("add_reg_mem", ADD_REG_MEM);
-        OPCODE_MAP.put("sub_mem_reg", SUB_MEM_REG);
-        OPCODE_MAP.put("sub_reg_mem", SUB_REG_MEM);
-        OPCODE_MAP.put("inc_mem", INC_MEM);
-
-        OPCODE_MAP.put("move_mem_reg", MOVE_MEM_REG);
-        OPCODE_MAP.put("move_reg_mem", MOVE_REG_MEM);
-        OPCODE_MAP.put("move_reg_reg", MOVE_REG_REG);
-        OPCODE_MAP.put("move_imm_reg", MOVE_IMM_REG);
-
-        OPCODE_MAP.put("jmp", JMP);
-        OPCODE_MAP.put("jn", JN);
-        OPCODE_MAP.put("jz", JZ);
-        OPCODE_MAP.put("jnz", JNZ);
-
-        OPCODE_MAP.put("jeq", JEQ);
-        OPCODE_MAP.put("jgt", JGT);
-        OPCODE_MAP.put("jlw", JLW);
-
-        OPCODE_MAP.put("call", CALL);
-        OPCODE_MAP.put("ret", RET);
-
-        OPCODE_MAP.put("imul", IMUL);
-        OPCODE_MAP.put("halt", HALT);
-
-        // Mapeamentos simples diretos (sem sufixo)
-        OPCODE_MAP.put("add", ADD_REG_REG);
-        OPCODE_MAP.put("sub", SUB_REG_REG);
-        OPCODE_MAP.put("inc", INC_REG);
-        OPCODE_MAP.put("move", MOVE_REG_REG);
-
-        INSTRUCTION_NAMES.put(ADD_REG_REG, "add %reg %reg");
-        INSTRUCTION_NAMES.put(SUB_REG_REG, "sub %reg %reg");
-        INSTRUCTION_NAMES.put(INC_REG, "inc %reg");
-        INSTRUCTION_NAMES.put(ADD_MEM_REG, "add mem %reg");
-        INSTRUCTION_NAMES.put(ADD_REG_MEM, "add %reg mem");
-        INSTRUCTION_NAMES.put(SUB_MEM_REG, "sub mem %reg");
-        INSTRUCTION_NAMES.put(SUB_REG_MEM, "sub %reg mem");
-        INSTRUCTION_NAMES.put(INC_MEM, "inc mem");
-        INSTRUCTION_NAMES.put(MOVE_MEM_REG, "move mem %reg");
-        INSTRUCTION_NAMES.put(MOVE_REG_MEM, "move %reg mem");
-        INSTRUCTION_NAMES.put(MOVE_REG_REG, "move %reg %reg");
-        INSTRUCTION_NAMES.put(MOVE_IMM_REG, "move imm %reg");
-        INSTRUCTION_NAMES.put(JMP, "jmp mem");
-        INSTRUCTION_NAMES.put(JN, "jn mem");
-        INSTRUCTION_NAMES.put(JZ, "jz mem");
-        INSTRUCTION_NAMES.put(JNZ, "jnz mem");
-        INSTRUCTION_NAMES.put(JEQ, "jeq %reg %reg mem");
-        INSTRUCTION_NAMES.put(JGT, "jgt %reg %reg mem");
-        INSTRUCTION_NAMES.put(JLW, "jlw %reg %reg mem");
-        INSTRUCTION_NAMES.put(CALL, "call mem");
-        INSTRUCTION_NAMES.put(RET, "ret");
-        INSTRUCTION_NAMES.put(IMUL, "imul %reg %reg");
-        INSTRUCTION_NAMES.put(HALT, "halt");
+    private Opcodes() {
     }
 
+    // Os formatos de operandos, os nomes e os campos de bits de cada opcode são
+    // definidos uma única vez em InstructionSet; estes métodos apenas consultam a tabela.
+
+    /**
+     * Procura o opcode pelo nome da instrução. Aceita o mnemônico simples ("add"),
+     * que resolve para a primeira forma declarada, ou a forma com sufixo ("add_mem_reg").
+     *
+     * @param instructionName O nome da instrução.
+     * @return O opcode, ou null se o nome não for conhecido.
+     */
     public static Integer getOpcode(String instructionName) {
-        return OPCODE_MAP.get(instructionName.toLowerCase());
+        int opcode = InstructionSet.lookupName(instructionName.toLowerCase());
+        return opcode < 0 ? null : opcode;
     }
 
     public static String getInstructionName(int opcode) {
-        return INSTRUCTION_NAMES.getOrDefault(opcode, "UNKNOWN");
+        return InstructionSet.syntaxOf(opcode);
     }
 }
@@ -0,0 +1,408 @@
+package core;
+
+import model.Instruction;
+import java.util.Arrays;
+
+/**
+ * Modelo de temporização fora de ordem no estilo Tomasulo, guiado pelo traço de execução:
+ * a CPU continua executando cada instrução normalmente (semântica funcional) e este modelo
+ * só calcula em que ciclo cada uma seria despachada, executada e confirmada.
+ *
+ * Estrutura modelada:
+ *  - despacho em ordem de até issueWidth instruções por ciclo, cada uma ocupando uma
+ *    entrada do buffer de reordenação (ROB) e uma estação de reserva (RS);
+ *  - renomeação de registradores: cada escrita ganha um registrador físico novo, então só
+ *    as dependências verdadeiras (RAW) atrasam a execução; WAR e WAW somem. Todos os
+ *    registradores de RegisterFile são renomeados (REG0..REGn, flags, topo da pilha);
+ *  - execução quando os operandos ficam prontos, em até issueWidth unidades funcionais
+ *    por ciclo; a estação é liberada quando a instrução começa a executar;
+ *  - confirmação (commit) em ordem, até issueWidth por ciclo, liberando a entrada do ROB.
+ *
+ * Latências: ULA 1 ciclo, leitura da memória loadLatency, leitura e escrita (add na
+ * memória, cas, faa, bloco) loadLatency + 1. Leituras podem passar à frente de escritas
+ * anteriores (desambiguação perfeita de endereços).
+ *
+ * Desvios: a busca prevê sempre "não tomado". Um desvio condicional tomado, ret e as
+ * trocas de contexto (EFFECT_SERIAL) só são conhecidos quando executam: a busca recomeça
+ * mispredictPenalty ciclos depois (as instruções do caminho errado não aparecem no traço).
+ * Desvios incondicionais diretos (jmp, call) só encerram o grupo de despacho do ciclo.
+ * Com uma BranchPredictionUnit ligada, qualquer desvio previsto certo só encerra o grupo
+ * e os errados (direção, BTB ou RAS) pagam mispredictPenalty.
+ * Instruções EFFECT_SERIAL esperam o ROB esvaziar e as seguintes esperam a sua confirmação.
+ *
+ * Cada ciclo de despacho perdido é atribuído ao recurso que o segurou (ROB cheio, estações
+ * cheias, desvio ou serialização); getBottleneck() devolve o que mais segurou.
+ */
+public class OutOfOrderModel implements TimingModel {
+    public static final int DEFAULT_ISSUE_WIDTH = 4;
+    public static final int DEFAULT_ROB_SIZE = 64;
+    public static final int DEFAULT_STATIONS = 32;
+    public static final int DEFAULT_LOAD_LATENCY = 3;
+    public static final int DEFAULT_MISPREDICT_PENALTY = 8;
+
+    // Causas de ciclos de despacho perdidos
+    public static final int STALL_ROB = 0;
+    public static final int STALL_STATIONS = 1;
+    public static final int STALL_BRANCH = 2;
+    public static final int STALL_SERIAL = 3;
+    private static final String[] STALL_NAMES = {"ROB cheio", "estações de reserva cheias", "desvios", "serialização"};
+
+    private final int issueWidth;
+    private final int robSize;
+    private final int stations;
+    private final int loadLatency;
+    private final int mispredictPenalty;
+    private BranchPredictionUnit predictor; // Opcional: substitui a previsão "não tomado"
+
+    // Ciclo em que o valor de cada registrador (renomeado) fica pronto
+    private final long[] ready = new long[RegisterFile.SIZE];
+
+    // ROB: ciclo de confirmação das últimas robSize instruções (anel)
+    private final long[] commitCycle;
+    private int robIndex;
+
+    // Estações ocupadas: heap mínimo dos ciclos em que cada uma começa a executar
+    private final long[] stationHeap;
+    private int stationCount;
+
+    // Unidades funcionais ocupadas por ciclo (anel com o ciclo como marca)
+    private final long[] unitCycle;
+    private final int[] unitUse;
+    private final int unitMask;
+
+    private long dispatchCycle;
+    private int dispatchedInCycle;
+    private long frontendReady; // Despacho mínimo depois de um redirecionamento
+    private int frontendCause;
+    private long lastCommit;
+    private int committedInCycle;
+    private int expectedPc;
+
+    // Estatísticas
+    private long instructions;
+    private final long[] stallCycles = new long[STALL_NAMES.length];
+    private long operandWait; // Ciclos esperando operandos (soma por instrução)
+    private long unitWait;    // Ciclos esperando unidade funcional
+    private long mispredicts;
+
+    /**
+     * @param issueWidth        Instruções despachadas, executadas e confirmadas por ciclo.
+     * @param robSize           Entradas do buffer de reordenação.
+     * @param stations          Estações de reserva (conjunto único).
+     * @param loadLatency       Ciclos de uma leitura da memória.
+     * @param mispredictPenalty Ciclos para a busca recomeçar depois de um desvio mal previsto.
+     */
+    public OutOfOrderModel(int issueWidth, int robSize, int stations, int loadLatency, int mispredictPenalty) {
+        if (issueWidth <= 0 || robSize <= 0 || stations <= 0) {
+            throw new IllegalArgumentException("Largura, ROB e estações devem ser positivos: "
+                    + issueWidth + ", " + robSize + ", " + stations);
+        }
+        if (loadLatency <= 0 || mispredictPenalty < 0) {
+            throw new IllegalArgumentException("Latências inválidas: leitura " + loadLatency
+                    + ", desvio mal previsto " + mispredictPenalty);
+        }
+        this.issueWidth = issueWidth;
+        this.robSize = robSize;
+        this.stations = stations;
+        this.loadLatency = loadLatency;
+        this.mispredictPenalty = mispredictPenalty;
+        this.commitCycle = new long[robSize];
+        this.stationHeap = new long[stations];
+        // O anel cobre a maior distância entre o despacho e o início da execução
+        int window = Integer.highestOneBit(Math.max(robSize * (loadLatency + 2) + mispredictPenalty, 64)) << 1;
+        this.unitCycle = new long[window];
+        this.unitUse = new int[window];
+        this.unitMask = window - 1;
+        reset();
+    }
+
+    public OutOfOrderModel(int issueWidth, int robSize, int stations) {
+        this(issueWidth, robSize, stations, DEFAULT_LOAD_LATENCY, DEFAULT_MISPREDICT_PENALTY);
+    }
+
+    public OutOfOrderModel() {
+        this(DEFAULT_ISSUE_WIDTH, DEFAULT_ROB_SIZE, DEFAULT_STATIONS);
+    }
+
+    /**
+     * Prevê desvios, saltos e retornos com uma unidade de previsão (preditor, BTB e RAS):
+     * só os erros esperam a resolução. null volta à previsão "não tomado".
+     */
+    public void setBranchPredictionUnit(BranchPredictionUnit predictor) {
+        this.predictor = predictor;
+    }
+
+    public BranchPredictionUnit getBranchPredictionUnit() {
+        return predictor;
+    }
+
+    @Override
+    public void onInstruction(int pc, Instruction instruction, int nextPc) {
+        account(pc, instruction, nextPc, false);
+    }
+
+    /** A entrada no tratador espera a instrução sair, como uma serializante, sem treinar o preditor. */
+    @Override
+    public void onFault(int pc, Instruction instruction, int nextPc) {
+        account(pc, instruction, nextPc, true);
+    }
+
+    private void account(int pc, Instruction instruction, int nextPc, boolean faulted) {
+        int effects = InstructionSet.effectsOf(instruction.getOpcode());
+        boolean serial = (effects & InstructionSet.EFFECT_SERIAL) != 0;
+
+        // 1. Despacho (em ordem): largura, redirecionamentos, ROB e estações
+        if (instructions > 0 && pc != expectedPc) { // Interrupção/trap depois da anterior
+            holdFrontend(lastCommit + mispredictPenalty, STALL_SERIAL);
+        }
+        long t = dispatchCycle;
+        if (dispatchedInCycle >= issueWidth) {
+            t++;
+        }
+        if (frontendReady > t) {
+            stallCycles[frontendCause] += frontendReady - t;
+            t = frontendReady;
+        }
+        if (serial && lastCommit + 1 > t) { // Espera o ROB esvaziar
+            stallCycles[STALL_SERIAL] += lastCommit + 1 - t;
+            t = lastCommit + 1;
+        }
+        if (instructions >= robSize && commitCycle[robIndex] + 1 > t) { // Entrada da instrução i - robSize
+            stallCycles[STALL_ROB] += commitCycle[robIndex] + 1 - t;
+            t = commitCycle[robIndex] + 1;
+        }
+        releaseStations(t);
+        if (stationCount >= stations) {
+            long free = stationHeap[0];
+            if (free > t) {
+                stallCycles[STALL_STATIONS] += free - t;
+                t = free;
+            }
+            releaseStations(t);
+        }
+        if (t != dispatchCycle) {
+            dispatchCycle = t;
+            dispatchedInCycle = 0;
+        }
+        dispatchedInCycle++;
+
+        // 2. Execução: operandos prontos e uma unidade funcional livre
+        long start = t + 1;
+        int sources = InstructionSet.sourceRegisters(instruction);
+        for (int mask = sources; mask != 0; mask &= mask - 1) {
+            start = Math.max(start, ready[Integer.numberOfTrailingZeros(mask)]);
+        }
+        operandWait += start - (t + 1);
+        long issued = start;
+        while (unitsBusy(start)) {
+            start++;
+        }
+        unitWait += start - issued;
+        useUnit(start);
+        addStation(start);
+
+        int latency = 1;
+        if ((effects & InstructionSet.EFFECT_LOAD) != 0) {
+            latency = (effects & InstructionSet.EFFECT_STORE) != 0 ? loadLatency + 1 : loadLatency;
+        }
+        long complete = start + latency;
+        int destinations = InstructionSet.destinationRegisters(instruction);
+        for (int mask = destinations; mask != 0; mask &= mask - 1) {
+            ready[Integer.numberOfTrailingZeros(mask)] = complete; // Registrador físico novo
+        }
+
+        // 3. Confirmação em ordem
+        long c = Math.max(complete, lastCommit);
+        if (c == lastCommit && committedInCycle >= issueWidth) {
+            c++;
+        }
+        if (c != lastCommit) {
+            committedInCycle = 0;
+        }
+        committedInCycle++;
+        lastCommit = c;
+        commitCycle[robIndex] = c;
+        robIndex = robIndex + 1 == robSize ? 0 : robIndex + 1;
+
+        // 4. Desvios: a busca segue em sequência até o desvio ser resolvido
+        boolean taken = nextPc != pc + 1;
+        if (serial || faulted) {
+            holdFrontend(c + 1, STALL_SERIAL);
+        } else if (predictor != null && (effects & (InstructionSet.EFFECT_BRANCH | InstructionSet.EFFECT_JUMP)) != 0) {
+            if (!predictor.observe(pc, instruction, nextPc)) {
+                mispredicts++;
+                holdFrontend(complete + mispredictPenalty, STALL_BRANCH);
+            } else if (taken) {
+                holdFrontend(t + 1, STALL_BRANCH); // Destino certo, mas o grupo de despacho acaba aqui
+            }
+        } else if (taken) {
+            boolean direct = (effects & InstructionSet.EFFECT_JUMP) != 0
+                    && (effects & InstructionSet.EFFECT_LOAD) == 0; // jmp/call: destino na instrução
+            if (direct) {
+                holdFrontend(t + 1, STALL_BRANCH);
+            } else {
+                mispredicts++;
+                holdFrontend(complete + mispredictPenalty, STALL_BRANCH);
+            }
+        }
+
+        instructions++;
+        expectedPc = nextPc;
+    }
+
+    private void holdFrontend(long cycle, int cause) {
+        if (cycle > frontendReady) {
+            frontendReady = cycle;
+            frontendCause = cause;
+        }
+    }
+
+    // --- Unidades funcionais ---
+
+    private boolean unitsBusy(long cycle) {
+        int i = (int) cycle & unitMask;
+        return unitCycle[i] == cycle && unitUse[i] >= issueWidth;
+    }
+
+    private void useUnit(long cycle) {
+        int i = (int) cycle & unitMask;
+        if (unitCycle[i] != cycle) {
+            unitCycle[i] = cycle;
+            unitUse[i] = 0;
+        }
+        unitUse[i]++;
+    }
+
+    // --- Estações de reserva (heap mínimo de ciclos de início) ---
+
+    private void addStation(long start) {
+        int i = stationCount++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (stationHeap[parent] <= start) {
+                break;
+            }
+            stationHeap[i] = stationHeap[parent];
+            i = parent;
+        }
+        stationHeap[i] = start;
+    }
+
+    // Libera as estações cujas instruções começaram a executar até o ciclo t
+    private void releaseStations(long t) {
+        while (stationCount > 0 && stationHeap[0] <= t) {
+            long last = stationHeap[--stationCount];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= stationCount) {
+                    break;
+                }
+                if (child + 1 < stationCount && stationHeap[child + 1] < stationHeap[child]) {
+                    child++;
+                }
+                if (last <= stationHeap[child]) {
+                    break;
+                }
+                stationHeap[i] = stationHeap[child];
+                i = child;
+            }
+            stationHeap[i] = last;
+        }
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(ready, 0);
+        Arrays.fill(commitCycle, 0);
+        Arrays.fill(unitCycle, -1);
+        robIndex = 0;
+        stationCount = 0;
+        dispatchCycle = 1;
+        dispatchedInCycle = 0;
+        frontendReady = 0;
+        frontendCause = STALL_BRANCH;
+        lastCommit = 0;
+        committedInCycle = 0;
+        expectedPc = 0;
+        instructions = 0;
+        Arrays.fill(stallCycles, 0);
+        operandWait = 0;
+        unitWait = 0;
+        mispredicts = 0;
+        if (predictor != null) {
+            predictor.reset();
+        }
+    }
+
+    /** @return Ciclo da última confirmação. */
+    @Override
+    public long getCycles() {
+        return lastCommit;
+    }
+
+    @Override
+    public long getInstructions() {
+        return instructions;
+    }
+
+    /** @return Instruções por ciclo. */
+    public double getIpc() {
+        return lastCommit == 0 ? 0 : (double) instructions / lastCommit;
+    }
+
+    /** @return Ciclos de despacho perdidos pela causa STALL_*. */
+    public long getStallCycles(int cause) {
+        return stallCycles[cause];
+    }
+
+    /** @return A causa STALL_* com mais ciclos de despacho perdidos, ou -1 se nenhum. */
+    public int getBottleneck() {
+        int worst = -1;
+        for (int i = 0; i < stallCycles.length; i++) {
+            if (stallCycles[i] > 0 && (worst < 0 || stallCycles[i] > stallCycles[worst])) {
+                worst = i;
+            }
+        }
+        return worst;
+    }
+
+    public static String stallName(int cause) {
+        return cause >= 0 && cause < STALL_NAMES.length ? STALL_NAMES[cause] : "nenhum";
+    }
+
+    public long getOperandWaitCycles() {
+        return operandWait;
+    }
+
+    public long getUnitWaitCycles() {
+        return unitWait;
+    }
+
+    public long getMispredicts() {
+        return mispredicts;
+    }
+
+    public int getIssueWidth() {
+        return issueWidth;
+    }
+
+    public int getRobSize() {
+        return robSize;
+    }
+
+    public int getStations() {
+        return stations;
+    }
+
+    @Override
+    public void printStatistics() {
+        System.out.printf("Fora de ordem (largura %d, ROB %d, %d estações): %d instruções em %d ciclos, IPC %.3f%n",
+                          issueWidth, robSize, stations, instructions, lastCommit, getIpc());
+        System.out.printf("  despacho parado: ROB %d, estações %d, desvios %d (%d mal previstos), serialização %d; "
+                        + "gargalo: %s%n",
+                          stallCycles[STALL_ROB], stallCycles[STALL_STATIONS], stallCycles[STALL_BRANCH], mispredicts,
+                          stallCycles[STALL_SERIAL], stallName(getBottleneck()));
+        System.out.printf("  espera por operandos %d ciclos, por unidade funcional %d ciclos%n", operandWait, unitWait);
+    }
+}
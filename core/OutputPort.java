@@ -0,0 +1,226 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Porta de saída FIFO mapeada em memória: o programa escreve, palavra por palavra ou em
+ * blocos, inteiros de 32 bits (big-endian) que vão para um canal NIO (arquivo, pipe...).
+ *
+ *   base + 0  DATA    escrita acrescenta a palavra à saída
+ *   base + 1  CONTROL escrever CMD_FLUSH esvazia o buffer no canal
+ *   base + 2  COUNT   palavras aceitas até agora (somente leitura)
+ *   base + 3  SRC     endereço de origem das escritas em bloco
+ *   base + 4  BLOCK   escrever n envia as n palavras da memória a partir de SRC
+ *   base + 5  ERROR   última falha (ERROR_NONE, ERROR_RANGE, ERROR_IO); escrever limpa
+ *
+ * As palavras se acumulam num ByteBuffer direto e só vão para o canal quando ele enche,
+ * com CMD_FLUSH, flush() ou close(): uma chamada write por BUFFER_BYTES, não por palavra.
+ * Quem monta a simulação deve chamar close() (ou flush()) no fim, senão o resto do buffer
+ * se perde.
+ *
+ * Nada que o programa faça na porta gera exceção Java: um bloco com tamanho negativo ou
+ * que sai da memória é recusado (ERROR_RANGE, nada é aceito). Numa falha de escrita do
+ * canal (ERROR_IO) o que não foi escrito continua no buffer para a próxima tentativa;
+ * palavras que não cabem mais no buffer cheio são recusadas e não entram em COUNT.
+ */
+public class OutputPort implements Device {
+    public static final int REG_DATA = 0;
+    public static final int REG_CONTROL = 1;
+    public static final int REG_COUNT = 2;
+    public static final int REG_SRC = 3;
+    public static final int REG_BLOCK = 4;
+    public static final int REG_ERROR = 5;
+    public static final int REGISTER_COUNT = 6;
+
+    public static final int CMD_FLUSH = 1;
+
+    public static final int ERROR_NONE = 0;
+    public static final int ERROR_RANGE = 1; // Bloco com tamanho negativo ou fora da memória
+    public static final int ERROR_IO = 2;    // Falha de escrita no canal
+
+    public static final int DEFAULT_BUFFER_BYTES = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final Memory memory;
+    private final ByteBuffer buffer;
+    private final int[] scratch; // Palavras de uma escrita em bloco, lidas da memória
+
+    private int source;
+    private int error = ERROR_NONE;
+    private long accepted;
+    private long channelWrites;
+
+    /**
+     * @param channel     Destino dos dados (FileChannel, Pipe.SinkChannel...).
+     * @param memory      Memória de onde saem as escritas em bloco.
+     * @param bufferBytes Tamanho do buffer (múltiplo de 4).
+     */
+    public OutputPort(WritableByteChannel channel, Memory memory, int bufferBytes) {
+        if (bufferBytes < Integer.BYTES || bufferBytes % Integer.BYTES != 0) {
+            throw new IllegalArgumentException("Buffer da porta deve ser múltiplo de 4 bytes: " + bufferBytes);
+        }
+        this.channel = channel;
+        this.memory = memory;
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        this.scratch = new int[bufferBytes / Integer.BYTES];
+    }
+
+    public OutputPort(WritableByteChannel channel, Memory memory) {
+        this(channel, memory, DEFAULT_BUFFER_BYTES);
+    }
+
+    /** Cria (ou trunca) um arquivo como saída da porta. */
+    public static OutputPort open(Path file, Memory memory) throws IOException {
+        return new OutputPort(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING), memory);
+    }
+
+    @Override
+    public int size() {
+        return REGISTER_COUNT;
+    }
+
+    @Override
+    public synchronized int read(int offset) {
+        switch (offset) {
+            case REG_COUNT: return (int) accepted;
+            case REG_SRC:   return source;
+            case REG_ERROR: return error;
+            default:        return 0;
+        }
+    }
+
+    @Override
+    public synchronized void write(int offset, int value) {
+        switch (offset) {
+            case REG_DATA:
+                if (buffer.remaining() < Integer.BYTES) {
+                    drainQuietly();
+                }
+                if (buffer.remaining() >= Integer.BYTES) { // Senão o canal falhou: palavra recusada
+                    buffer.putInt(value);
+                    accepted++;
+                }
+                break;
+            case REG_CONTROL:
+                if (value == CMD_FLUSH) {
+                    drainQuietly();
+                }
+                break;
+            case REG_SRC:
+                source = value;
+                break;
+            case REG_BLOCK:
+                if (memory.isValidBlock(source, value)) {
+                    transfer(source, value);
+                } else {
+                    error = ERROR_RANGE;
+                }
+                break;
+            case REG_ERROR:
+                error = ERROR_NONE;
+                break;
+            default:
+                break; // COUNT é somente leitura
+        }
+    }
+
+    /**
+     * Envia as length palavras da memória a partir de address.
+     *
+     * @return Quantas palavras foram aceitas (menos que length só numa falha do canal, que fica em ERROR).
+     * @throws IndexOutOfBoundsException Se o bloco sair da memória (nada é aceito).
+     */
+    public synchronized int writeBlock(int address, int length) {
+        if (!memory.isValidBlock(address, length)) {
+            throw new IndexOutOfBoundsException("Bloco fora da memória: [" + address + ", " + address + " + " + length + ")");
+        }
+        return transfer(address, length);
+    }
+
+    // Escrita em bloco com a faixa já validada
+    private int transfer(int address, int length) {
+        int done = 0;
+        while (done < length) {
+            if (buffer.remaining() < Integer.BYTES) {
+                drainQuietly();
+                if (buffer.remaining() < Integer.BYTES) {
+                    break; // O canal falhou e o buffer continua cheio
+                }
+            }
+            int n = Math.min(length - done, buffer.remaining() / Integer.BYTES);
+            memory.readBlock(address + done, scratch, 0, n);
+            buffer.asIntBuffer().put(scratch, 0, n);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            done += n;
+        }
+        accepted += done;
+        return done;
+    }
+
+    /**
+     * Esvazia o buffer no canal.
+     *
+     * @throws IllegalStateException Se a escrita falhar; o que não foi escrito continua no buffer.
+     */
+    public synchronized void flush() {
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro de escrita na porta de saída: " + e.getMessage(), e);
+        }
+    }
+
+    // Numa falha, o que não foi escrito volta para o começo do buffer (compact), sem perda
+    private void drain() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channelWrites++;
+                channel.write(buffer);
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    // Caminho do programa: a falha vai para ERROR em vez de virar exceção
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (IOException e) {
+            error = ERROR_IO;
+        }
+    }
+
+    /** Envia o que ainda estiver no buffer e fecha o canal. */
+    public synchronized void close() throws IOException {
+        drain();
+        channel.close();
+    }
+
+    /** Zera os contadores; o que já foi aceito continua no buffer e no canal. */
+    @Override
+    public synchronized void reset() {
+        source = 0;
+        accepted = 0;
+        error = ERROR_NONE;
+    }
+
+    public synchronized int getError() {
+        return error;
+    }
+
+    public synchronized long getAcceptedWords() {
+        return accepted;
+    }
+
+    public synchronized long getChannelWrites() {
+        return channelWrites;
+    }
+}
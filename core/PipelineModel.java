@@ -0,0 +1,351 @@
+package core;
+
+import model.Instruction;
+import java.util.Arrays;
+
+/**
+ * Modelo de temporização de um pipeline clássico em ordem de 5 estágios:
+ *   IF (busca) -> ID (decodificação e leitura dos registradores) -> EX (ULA, desvios)
+ *   -> MEM (acesso a dados) -> WB (escrita nos registradores)
+ *
+ * Sem conflitos, uma instrução entra por ciclo (CPI 1) e a primeira sai no ciclo 5.
+ * O modelo só acompanha em que ciclo cada instrução chega ao EX; as bolhas vêm de:
+ *  - dados (RAW): uma instrução lê um registrador escrito por outra ainda no pipeline
+ *    (ver InstructionSet.sourceRegisters/destinationRegisters; flags e topo da pilha
+ *    contam como registradores). Com adiantamento (forwarding), o resultado da ULA passa
+ *    do fim do EX para o EX seguinte sem bolha, e o de uma leitura da memória sai no fim
+ *    do MEM (load-use: uma bolha). Sem adiantamento, quem lê espera o WB de quem escreve
+ *    (o banco é escrito na primeira metade do ciclo e lido na segunda): duas bolhas;
+ *  - controle: o desvio é resolvido no EX; as instruções buscadas atrás dele são
+ *    descartadas (branchPenalty ciclos). BRANCH_STALL para a busca em todo desvio
+ *    condicional até ele ser resolvido; BRANCH_PREDICT_NOT_TAKEN continua buscando em
+ *    sequência e só perde os ciclos quando o desvio é tomado. Desvios incondicionais,
+ *    traps, interrupções e instruções que trocam de banco/contexto (EFFECT_SERIAL)
+ *    sempre custam a penalidade. Com uma BranchPredictionUnit ligada, desvios e saltos
+ *    só custam a penalidade quando a previsão (direção, BTB ou RAS) erra;
+ *  - memória (opcional, ver setCacheHierarchy): latência de busca acima de um acerto no
+ *    L1I atrasa o IF, e a de dados acima de um acerto no L1D prende a instrução no MEM,
+ *    com o pipeline inteiro atrás dela (instruções de bloco ficam no MEM uma palavra por
+ *    ciclo). Sem caches, todo acesso cabe no seu estágio.
+ *
+ * Cada bolha é atribuída a uma causa só, na ordem controle, memória, dados.
+ */
+public class PipelineModel implements TimingModel {
+    public static final int BRANCH_STALL = 0;
+    public static final int BRANCH_PREDICT_NOT_TAKEN = 1;
+
+    public static final int STAGES = 5;
+    public static final int DEFAULT_BRANCH_PENALTY = 2; // Desvio resolvido no EX: IF e ID descartados
+
+    private static final long FIRST_EX = 3; // IF no ciclo 1, ID no 2, EX no 3
+
+    private final boolean forwarding;
+    private final int branchPolicy;
+    private final int branchPenalty;
+
+    // Primeiro ciclo em que uma instrução que lê o registrador pode estar no EX
+    private final long[] ready = new long[RegisterFile.SIZE];
+    private final boolean[] loaded = new boolean[RegisterFile.SIZE]; // Valor vem do MEM (load-use)
+    private long lastEx;
+    private long lastWb;
+    private long controlReady; // EX mínimo depois de um desvio/flush
+    private long memoryReady;  // EX mínimo enquanto o MEM está ocupado
+    private int expectedPc;
+
+    // Previsão de desvios (opcional): substitui a política fixa
+    private BranchPredictionUnit predictor;
+
+    // Caches (opcional): custo acima de um acerto vira bolha
+    private CacheHierarchy caches;
+    private long fetchCycles;
+    private long fetchAccesses;
+    private long dataCycles;
+    private long dataAccesses;
+
+    // Estatísticas
+    private long instructions;
+    private long dataStalls;
+    private long loadUseStalls;
+    private long controlStalls;
+    private long memoryStalls;
+    private long branches;
+    private long takenBranches;
+    private long flushes;
+    private long mispredictions;
+
+    /**
+     * @param forwarding    true liga o adiantamento EX->EX e MEM->EX.
+     * @param branchPolicy  BRANCH_STALL ou BRANCH_PREDICT_NOT_TAKEN.
+     * @param branchPenalty Ciclos perdidos a cada desvio tomado (ou esperado).
+     */
+    public PipelineModel(boolean forwarding, int branchPolicy, int branchPenalty) {
+        if (branchPolicy != BRANCH_STALL && branchPolicy != BRANCH_PREDICT_NOT_TAKEN) {
+            throw new IllegalArgumentException("Política de desvio desconhecida: " + branchPolicy);
+        }
+        if (branchPenalty < 0) {
+            throw new IllegalArgumentException("Penalidade de desvio negativa: " + branchPenalty);
+        }
+        this.forwarding = forwarding;
+        this.branchPolicy = branchPolicy;
+        this.branchPenalty = branchPenalty;
+        reset();
+    }
+
+    /** Pipeline com adiantamento, predição "não tomado" e desvios resolvidos no EX. */
+    public PipelineModel() {
+        this(true, BRANCH_PREDICT_NOT_TAKEN, DEFAULT_BRANCH_PENALTY);
+    }
+
+    /**
+     * Usa as latências de uma hierarquia de caches (a mesma ligada à CPU) nos estágios IF
+     * e MEM. null volta ao custo fixo de um ciclo por estágio.
+     */
+    public void setCacheHierarchy(CacheHierarchy caches) {
+        this.caches = caches;
+        markCaches();
+    }
+
+    /**
+     * Prevê os desvios com uma unidade de previsão (preditor, BTB e RAS) em vez da política
+     * fixa: desvios previstos certo, tomados ou não, não custam nada; os errados custam
+     * branchPenalty. null volta à política do construtor.
+     */
+    public void setBranchPredictionUnit(BranchPredictionUnit predictor) {
+        this.predictor = predictor;
+    }
+
+    public BranchPredictionUnit getBranchPredictionUnit() {
+        return predictor;
+    }
+
+    @Override
+    public void onInstruction(int pc, Instruction instruction, int nextPc) {
+        account(pc, instruction, nextPc, false);
+    }
+
+    /** A entrada no tratador descarta o pipeline como um desvio errado, sem treinar o preditor. */
+    @Override
+    public void onFault(int pc, Instruction instruction, int nextPc) {
+        account(pc, instruction, nextPc, true);
+    }
+
+    private void account(int pc, Instruction instruction, int nextPc, boolean faulted) {
+        int opcode = instruction.getOpcode();
+        int effects = InstructionSet.effectsOf(opcode);
+        long ex = lastEx + 1;
+
+        // Controle: desvio anterior, ou PC redirecionado por interrupção depois dele
+        if (instructions > 0 && pc != expectedPc) {
+            flushes++;
+            controlReady = Math.max(controlReady, lastEx + 1 + branchPenalty);
+        }
+        if (controlReady > ex) {
+            controlStalls += controlReady - ex;
+            ex = controlReady;
+        }
+
+        // Memória: MEM ocupado pela anterior, busca lenta desta
+        int fetchExtra = 0;
+        int dataExtra = 0;
+        if (caches != null) {
+            fetchExtra = extraFetchCycles();
+            dataExtra = extraDataCycles();
+        }
+        if (memoryReady > ex) {
+            memoryStalls += memoryReady - ex;
+            ex = memoryReady;
+        }
+        if (fetchExtra > 0) {
+            memoryStalls += fetchExtra;
+            ex += fetchExtra;
+        }
+
+        // Dados: espera o último operando ficar disponível
+        int sources = InstructionSet.sourceRegisters(instruction);
+        long operandsReady = ex;
+        boolean fromLoad = false;
+        for (int mask = sources; mask != 0; mask &= mask - 1) {
+            int r = Integer.numberOfTrailingZeros(mask);
+            if (ready[r] > operandsReady) {
+                operandsReady = ready[r];
+                fromLoad = loaded[r];
+            }
+        }
+        if (operandsReady > ex) {
+            if (fromLoad && forwarding) {
+                loadUseStalls += operandsReady - ex;
+            } else {
+                dataStalls += operandsReady - ex;
+            }
+            ex = operandsReady;
+        }
+
+        // Resultados: ULA no fim do EX, leituras da memória no fim do MEM
+        boolean load = (effects & InstructionSet.EFFECT_LOAD) != 0;
+        long available;
+        if (!forwarding) {
+            available = ex + 3 + dataExtra; // EX seguinte ao WB
+        } else if (load) {
+            available = ex + 2 + dataExtra;
+        } else {
+            available = ex + 1;
+        }
+        int destinations = InstructionSet.destinationRegisters(instruction);
+        for (int mask = destinations; mask != 0; mask &= mask - 1) {
+            int r = Integer.numberOfTrailingZeros(mask);
+            ready[r] = available;
+            loaded[r] = load;
+        }
+        memoryReady = ex + 1 + dataExtra;
+
+        // Desvios: a próxima instrução só entra depois da resolução no EX
+        boolean taken = nextPc != pc + 1;
+        boolean branch = (effects & InstructionSet.EFFECT_BRANCH) != 0;
+        if (branch) {
+            branches++;
+            if (taken) {
+                takenBranches++;
+            }
+        }
+        boolean serial = (effects & InstructionSet.EFFECT_SERIAL) != 0;
+        boolean redirect;
+        if (faulted) {
+            redirect = true;
+        } else if (predictor != null && !serial && (effects & (InstructionSet.EFFECT_BRANCH | InstructionSet.EFFECT_JUMP)) != 0) {
+            redirect = !predictor.observe(pc, instruction, nextPc); // Só os erros de previsão custam
+            if (redirect) {
+                mispredictions++;
+            }
+        } else {
+            redirect = taken || (branch && branchPolicy == BRANCH_STALL);
+        }
+        if (redirect || serial) {
+            controlReady = ex + 1 + branchPenalty;
+        }
+
+        instructions++;
+        lastEx = ex;
+        lastWb = Math.max(lastWb, ex + 2 + dataExtra);
+        expectedPc = nextPc;
+    }
+
+    // Ciclos de busca acima de um acerto no L1I desde a última instrução
+    private int extraFetchCycles() {
+        Cache l1i = caches.getL1I();
+        long cycles = l1i.getCycles() - fetchCycles;
+        long accesses = l1i.getHits() + l1i.getMisses() - fetchAccesses;
+        fetchCycles += cycles;
+        fetchAccesses += accesses;
+        return accesses <= 0 ? 0 : (int) Math.max(0, cycles - l1i.getHitLatency());
+    }
+
+    // Ciclos de dados acima de um acerto no L1D desde a última instrução
+    private int extraDataCycles() {
+        Cache l1d = caches.getL1D();
+        long cycles = l1d.getCycles() - dataCycles;
+        long accesses = l1d.getHits() + l1d.getMisses() - dataAccesses;
+        dataCycles += cycles;
+        dataAccesses += accesses;
+        return accesses <= 0 ? 0 : (int) Math.max(0, cycles - l1d.getHitLatency());
+    }
+
+    private void markCaches() {
+        if (caches != null) {
+            fetchCycles = caches.getL1I().getCycles();
+            fetchAccesses = caches.getL1I().getHits() + caches.getL1I().getMisses();
+            dataCycles = caches.getL1D().getCycles();
+            dataAccesses = caches.getL1D().getHits() + caches.getL1D().getMisses();
+        }
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(ready, 0);
+        Arrays.fill(loaded, false);
+        lastEx = FIRST_EX - 1;
+        lastWb = 0;
+        controlReady = 0;
+        memoryReady = 0;
+        expectedPc = 0;
+        markCaches();
+        instructions = 0;
+        dataStalls = 0;
+        loadUseStalls = 0;
+        controlStalls = 0;
+        memoryStalls = 0;
+        branches = 0;
+        takenBranches = 0;
+        flushes = 0;
+        mispredictions = 0;
+        if (predictor != null) {
+            predictor.reset();
+        }
+    }
+
+    @Override
+    public long getCycles() {
+        return lastWb;
+    }
+
+    @Override
+    public long getInstructions() {
+        return instructions;
+    }
+
+    /** @return Bolhas por dependência de dados resolvida pela ULA (ou todas, sem adiantamento). */
+    public long getDataStalls() {
+        return dataStalls;
+    }
+
+    /** @return Bolhas de uma leitura da memória seguida do uso do valor (com adiantamento). */
+    public long getLoadUseStalls() {
+        return loadUseStalls;
+    }
+
+    public long getControlStalls() {
+        return controlStalls;
+    }
+
+    public long getMemoryStalls() {
+        return memoryStalls;
+    }
+
+    public long getBranches() {
+        return branches;
+    }
+
+    public long getTakenBranches() {
+        return takenBranches;
+    }
+
+    /** @return Redirecionamentos do PC sem desvio na instrução anterior (interrupções). */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /** @return Desvios previstos errado (só com uma unidade de previsão ligada). */
+    public long getMispredictions() {
+        return mispredictions;
+    }
+
+    public boolean isForwarding() {
+        return forwarding;
+    }
+
+    public int getBranchPolicy() {
+        return branchPolicy;
+    }
+
+    @Override
+    public void printStatistics() {
+        System.out.printf("Pipeline (%d estágios, %s, %s): %d instruções em %d ciclos, CPI %.3f%n",
+                          STAGES, forwarding ? "com adiantamento" : "sem adiantamento",
+                          predictor != null ? "preditor " + predictor.getPredictor().getName()
+                                  : branchPolicy == BRANCH_STALL ? "para nos desvios" : "prevê não tomado",
+                          instructions, lastWb, getCpi());
+        System.out.printf("  bolhas: dados %d, load-use %d, controle %d, memória %d; "
+                        + "desvios condicionais %d (%d tomados), previsões erradas %d, redirecionamentos %d%n",
+                          dataStalls, loadUseStalls, controlStalls, memoryStalls, branches, takenBranches,
+                          mispredictions, flushes);
+    }
+}
@@ -0,0 +1,283 @@
+package core;
+
+import model.Instruction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unidade de busca antecipada: uma thread separada (produtora) lê e decodifica instruções
+ * à frente do PC, pelo caminho previsto, e as coloca num anel single-producer /
+ * single-consumer sem travas. A thread da CPU (consumidora) só executa.
+ *
+ * Previsão do caminho (estática, sem histórico):
+ *  - JMP e CALL seguem o destino; IMUL segue para o microprograma;
+ *  - desvios condicionais: para trás são tomados (laços), para frente não;
+ *  - RET, MRET, IRET, HALT e palavras inválidas: o destino não é conhecido, então a produtora
+ *    para e espera um redirecionamento.
+ * A produtora só lê RAM: ao chegar num endereço de dispositivo ela para, e a CPU busca essa
+ * instrução na sua própria thread, já que a leitura de um dispositivo pode ter efeito colateral.
+ * Entradas em tratadores de trap e de interrupção são contadas à parte (enterHandler), não
+ * como previsões erradas.
+ *
+ * Descarte (flush) do anel: cada entrada leva a "época" em que foi produzida. Quando a
+ * consumidora precisa de um PC diferente do previsto (desvio tomado que não estava
+ * previsto, ou o contrário) ou a palavra na memória não é mais a que foi decodificada
+ * (escrita no trecho já buscado), ela incrementa a época e informa o novo PC; as entradas
+ * de épocas antigas são ignoradas e a produtora recomeça do novo PC. A verificação da
+ * palavra é feita na thread da CPU, que é a que escreve na memória, então uma escrita no
+ * código nunca executa a versão antiga.
+ *
+ * Publicação: a produtora grava a entrada e só então avança "tail" com lazySet (release);
+ * a consumidora lê "tail" (acquire) antes de ler a entrada e avança "head" depois de
+ * usá-la. Nenhum dos dois índices é escrito pelas duas threads.
+ */
+public class PrefetchUnit {
+    public static final int DEFAULT_RING_SIZE = 64;
+
+    // Quantas voltas a consumidora espera com o anel vazio antes de conferir a produtora
+    private static final int SPIN_LIMIT = 1 << 10;
+
+    private final Memory memory;
+    private final int mask;
+
+    // Anel (struct-of-arrays), indexado por posição & mask
+    private final int[] entryPc;
+    private final int[] entryWord;
+    private final int[] entryEpoch;
+    private final Instruction[] entryInstruction;
+
+    private final AtomicLong head = new AtomicLong(); // Escrito só pela consumidora
+    private final AtomicLong tail = new AtomicLong(); // Escrito só pela produtora
+
+    private volatile int epoch;              // Escrito só pela consumidora
+    private volatile int redirectPc;         // PC de onde a produtora recomeça (publicado pela época)
+    private volatile int waitingEpoch = -1;  // Época em que a produtora parou sem saber o caminho
+    private volatile boolean active;
+    private Thread producer;
+
+    // Estatísticas (escritas só pela consumidora)
+    private long consumed;
+    private long mispredictFlushes;
+    private long staleFlushes;
+    private long redirects;
+    private long handlerRedirects;
+
+    /**
+     * @param ringSize Capacidade do anel (potência de 2).
+     */
+    public PrefetchUnit(Memory memory, int ringSize) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Tamanho do anel deve ser potência de 2: " + ringSize);
+        }
+        this.memory = memory;
+        this.mask = ringSize - 1;
+        this.entryPc = new int[ringSize];
+        this.entryWord = new int[ringSize];
+        this.entryEpoch = new int[ringSize];
+        this.entryInstruction = new Instruction[ringSize];
+    }
+
+    /** Inicia a thread produtora a partir do PC dado. */
+    public void start(int pc) {
+        redirectPc = pc;
+        active = true;
+        producer = new Thread(this::produce, "cpu-prefetch");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /** Para a thread produtora e espera ela terminar. */
+    public void shutdown() {
+        active = false;
+        if (producer != null) {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // --- Lado produtor ---
+
+    private void produce() {
+        int myEpoch = epoch;
+        int pc = redirectPc;
+        boolean stalled = false;
+        final int size = memory.getMaxSize();
+        while (active) {
+            int e = epoch;
+            if (e != myEpoch) { // Redirecionado: recomeça do novo PC
+                myEpoch = e;
+                pc = redirectPc;
+                stalled = false;
+            }
+            if (stalled || pc < 0 || pc >= size || memory.isDeviceAddress(pc)) {
+                waitingEpoch = myEpoch;
+                Thread.onSpinWait();
+                continue;
+            }
+            long t = tail.get();
+            if (t - head.get() > mask) { // Anel cheio
+                Thread.onSpinWait();
+                continue;
+            }
+            int word = memory.read(pc);
+            Instruction instruction = InstructionSet.decode(word);
+            int slot = (int) t & mask;
+            entryPc[slot] = pc;
+            entryWord[slot] = word;
+            entryEpoch[slot] = myEpoch;
+            entryInstruction[slot] = instruction;
+            tail.lazySet(t + 1); // Publica a entrada
+
+            int next = predictNext(pc, instruction);
+            if (next < 0) {
+                stalled = true;
+            } else {
+                pc = next;
+            }
+        }
+    }
+
+    // Próximo PC previsto, ou -1 quando não há como prever
+    private int predictNext(int pc, Instruction instruction) {
+        if (instruction == null) {
+            return -1;
+        }
+        switch (instruction.getOpcode()) {
+            case Opcodes.JMP:
+            case Opcodes.CALL:
+                return instruction.getOperand1();
+            case Opcodes.JN: case Opcodes.JZ: case Opcodes.JNZ:
+                return instruction.getOperand1() <= pc ? instruction.getOperand1() : pc + 1;
+            case Opcodes.JEQ: case Opcodes.JGT: case Opcodes.JLW:
+                return instruction.getOperand3() <= pc ? instruction.getOperand3() : pc + 1;
+            case Opcodes.IMUL:
+                return memory.getImulMicroprogramStartAddress();
+            case Opcodes.RET:
+            case Opcodes.MRET:
+            case Opcodes.IRET:
+            case Opcodes.HALT:
+                return -1;
+            default:
+                return pc + 1;
+        }
+    }
+
+    // --- Lado consumidor (thread da CPU) ---
+
+    /**
+     * Obtém a entrada já decodificada para o PC que a CPU vai executar.
+     *
+     * @return A posição da entrada no anel (usar wordAt/instructionAt e depois release()),
+     *         ou -1 se a produtora parou sem saber o caminho: nesse caso a CPU busca e
+     *         decodifica a instrução ela mesma e depois chama redirect().
+     */
+    public int take(int pc) {
+        int spins = 0;
+        while (true) {
+            long h = head.get();
+            if (h == tail.get()) { // Anel vazio
+                if (waitingEpoch == epoch && h == tail.get()) {
+                    return -1;
+                }
+                if (++spins >= SPIN_LIMIT) {
+                    spins = 0;
+                    Thread.yield();
+                } else {
+                    Thread.onSpinWait();
+                }
+                continue;
+            }
+            int slot = (int) h & mask;
+            if (entryEpoch[slot] != epoch) { // Sobra de uma época descartada
+                head.lazySet(h + 1);
+                continue;
+            }
+            if (entryPc[slot] != pc) { // Caminho previsto errado
+                mispredictFlushes++;
+                flush(pc, h + 1);
+                continue;
+            }
+            if (entryWord[slot] != memory.read(pc)) { // Código alterado depois de buscado (pc é RAM)
+                staleFlushes++;
+                flush(pc, h + 1);
+                continue;
+            }
+            return slot;
+        }
+    }
+
+    public int wordAt(int slot) {
+        return entryWord[slot];
+    }
+
+    public Instruction instructionAt(int slot) {
+        return entryInstruction[slot];
+    }
+
+    /** Libera a entrada obtida por take(). */
+    public void release() {
+        consumed++;
+        head.lazySet(head.get() + 1);
+    }
+
+    /**
+     * Recomeça a busca a partir de pc (depois de uma instrução executada sem o anel).
+     */
+    public void redirect(int pc) {
+        redirects++;
+        flush(pc, head.get());
+    }
+
+    /**
+     * Recomeça a busca a partir do vetor de um tratador de trap ou de interrupção, em que a
+     * CPU entrou depois da última instrução.
+     */
+    public void enterHandler(int pc) {
+        handlerRedirects++;
+        flush(pc, head.get());
+    }
+
+    private void flush(int pc, long newHead) {
+        head.lazySet(newHead);
+        redirectPc = pc;
+        epoch = epoch + 1; // Só a consumidora escreve; a escrita volátil publica redirectPc
+    }
+
+    // --- Estatísticas ---
+
+    public long getConsumed() {
+        return consumed;
+    }
+
+    public long getMispredictFlushes() {
+        return mispredictFlushes;
+    }
+
+    public long getStaleFlushes() {
+        return staleFlushes;
+    }
+
+    public long getRedirects() {
+        return redirects;
+    }
+
+    public long getHandlerRedirects() {
+        return handlerRedirects;
+    }
+
+    /**
+     * @return Descartes do anel (previsão errada + código alterado) por instrução executada pelo anel.
+     */
+    public double getFlushRate() {
+        return consumed == 0 ? 0 : (double) (mispredictFlushes + staleFlushes) / consumed;
+    }
+
+    public void printStatistics() {
+        System.out.printf("Prefetch: %d instruções pelo anel, %d flushes por previsão errada, "
+                        + "%d por código alterado, %d redirecionamentos (RET/MRET/HALT), %d entradas em "
+                        + "tratadores (trap/interrupção), taxa de flush %.4f%n",
+                          consumed, mispredictFlushes, staleFlushes, redirects, handlerRedirects, getFlushRate());
+    }
+}
@@ -0,0 +1,121 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Perfil de execução: quantas vezes cada opcode e cada PC foram executados.
+ *
+ * Os contadores são arrays primitivos indexados direto pelo opcode (valor de Opcodes) e
+ * pelo PC, sem mapas nem boxing: o custo por instrução são dois incrementos e a gravação
+ * do opcode executado no PC (o relatório mostra o que rodou ali, mesmo que o código tenha
+ * sido alterado depois, sem reler a memória nem disparar dispositivos). Desligado
+ * (CPU.setProfiling(false)), a CPU não tem Profiler e paga só o teste de null.
+ *
+ * O relatório ordena opcodes e PCs pelo número de execuções e, com um SourceMap (ver
+ * Loader.getSourceMap), mostra a linha do .asm de cada PC; os laços quentes aparecem
+ * como uma sequência de linhas vizinhas com contagens parecidas no topo da lista.
+ */
+public class Profiler {
+    public static final int DEFAULT_REPORT_SIZE = 20;
+
+    private final long[] opcodeCounts = new long[1 << Opcodes.OPCODE_BITS];
+    private final long[] pcCounts;
+    private final int[] opcodeAt; // Último opcode executado em cada PC
+    private long total;
+    private SourceMap sourceMap;
+
+    public Profiler(Memory memory) {
+        this.pcCounts = new long[memory.getMaxSize()];
+        this.opcodeAt = new int[memory.getMaxSize()];
+    }
+
+    /** Conta uma instrução executada (pc já validado pela busca). */
+    public void record(int pc, int opcode) {
+        opcodeCounts[opcode]++;
+        pcCounts[pc]++;
+        opcodeAt[pc] = opcode;
+        total++;
+    }
+
+    public void setSourceMap(SourceMap sourceMap) {
+        this.sourceMap = sourceMap;
+    }
+
+    public SourceMap getSourceMap() {
+        return sourceMap;
+    }
+
+    public void reset() {
+        Arrays.fill(opcodeCounts, 0);
+        Arrays.fill(pcCounts, 0);
+        total = 0;
+    }
+
+    public long getOpcodeCount(int opcode) {
+        return opcodeCounts[opcode];
+    }
+
+    public long getPcCount(int pc) {
+        return pcCounts[pc];
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return Os até n índices com as maiores contagens, da maior para a menor (empates
+     *         pelo menor índice). Índices com contagem 0 ficam de fora.
+     */
+    static int[] top(long[] counts, int n) {
+        int[] best = new int[Math.max(n, 0)];
+        int found = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            int j = found < best.length ? found++ : best.length;
+            while (j > 0 && counts[best[j - 1]] < counts[i]) {
+                if (j < best.length) {
+                    best[j] = best[j - 1];
+                }
+                j--;
+            }
+            if (j < best.length) {
+                best[j] = i;
+            }
+        }
+        return Arrays.copyOf(best, found);
+    }
+
+    public void printReport() {
+        printReport(DEFAULT_REPORT_SIZE);
+    }
+
+    /**
+     * Imprime os opcodes e os PCs mais executados.
+     *
+     * @param n Quantidade de PCs listados (os opcodes são todos listados).
+     */
+    public void printReport(int n) {
+        System.out.println("Perfil: " + total + " instruções executadas");
+        if (total == 0) {
+            return;
+        }
+        System.out.println("  Opcodes:");
+        for (int opcode : top(opcodeCounts, opcodeCounts.length)) {
+            System.out.printf("    %-22s %10d  %5.1f%%%n", Opcodes.getInstructionName(opcode),
+                              opcodeCounts[opcode], 100.0 * opcodeCounts[opcode] / total);
+        }
+        System.out.println("  PCs mais executados" + (sourceMap != null ? " (" + sourceMap.getFile() + ")" : "") + ":");
+        for (int pc : top(pcCounts, n)) {
+            String name = Opcodes.getInstructionName(opcodeAt[pc]);
+            String source = "";
+            if (sourceMap != null && sourceMap.contains(pc)) {
+                source = "  linha " + sourceMap.lineOf(pc) + ": " + sourceMap.textOf(pc);
+            }
+            System.out.printf("    PC %-6d %-22s %10d  %5.1f%%%s%n", pc, name, pcCounts[pc],
+                              100.0 * pcCounts[pc] / total, source);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Banco de registradores da CPU armazenado em um único int[].
+ *
+ * Os registradores de uso geral ocupam os índices 0..MAX_GENERAL_PURPOSE-1 (o ID usado
+ * nas instruções é o próprio índice) e os registradores especiais vêm logo depois, em
+ * índices fixos. A CPU acessa o array diretamente; objetos Register são apenas "visões"
+ * sobre uma posição, úteis para depuração e para quem ainda usa a API antiga.
+ *
+ * A quantidade de registradores de uso geral é configurável até o que cabe no campo de
+ * registrador da instrução (InstructionSet.REG_BITS). O array sempre tem espaço para o
+ * máximo, então um ID acima da quantidade configurada nunca alcança um registrador
+ * especial; a CPU, de qualquer forma, recusa essas instruções (STOP_INVALID_INSTRUCTION).
+ *
+ * Bancos de sombra: o banco pode ter várias cópias do array. Entrar em um microprograma
+ * troca o array ativo pelo próximo banco e sair volta ao anterior, ambos em O(1) (troca
+ * de referência e cópia dos ponteiros de pilha). O banco de quem chamou fica intacto,
+ * inclusive o PC de retorno, e guarda as flags compactadas em FLAGS.
+ */
+public class RegisterFile {
+    public static final int DEFAULT_GENERAL_PURPOSE = 4;
+    public static final int MAX_GENERAL_PURPOSE = 1 << InstructionSet.REG_BITS;
+
+    // Índices dos registradores especiais
+    public static final int PC = MAX_GENERAL_PURPOSE;          // Program Counter
+    public static final int IR = MAX_GENERAL_PURPOSE + 1;      // Instruction Register
+    public static final int STK_TOP = MAX_GENERAL_PURPOSE + 2; // Stack Top Pointer
+    public static final int STK_BOT = MAX_GENERAL_PURPOSE + 3; // Stack Bottom Pointer
+    public static final int FLAGS = MAX_GENERAL_PURPOSE + 4;   // Flags compactadas (N << 1) | Z de um banco inativo
+    public static final int SIZE = MAX_GENERAL_PURPOSE + 5;
+
+    public static final int DEFAULT_BANKS = 2; // Banco principal + um banco de sombra para microprogramas
+
+    int[] values; // Banco ativo. Acesso direto pela CPU (mesmo pacote)
+    private final int[][] banks;
+    private int activeBank;
+    private final int generalPurposeCount;
+    private final Register[] views; // Criadas sob demanda
+
+    public RegisterFile(int generalPurposeCount) {
+        this(generalPurposeCount, DEFAULT_BANKS);
+    }
+
+    /**
+     * @param generalPurposeCount Quantidade de registradores de uso geral.
+     * @param bankCount           Quantidade de bancos (1 = sem bancos de sombra).
+     */
+    public RegisterFile(int generalPurposeCount, int bankCount) {
+        if (generalPurposeCount < 1 || generalPurposeCount > MAX_GENERAL_PURPOSE) {
+            throw new IllegalArgumentException("Quantidade de registradores inválida: " + generalPurposeCount
+                    + ". Esperado 1-" + MAX_GENERAL_PURPOSE + ".");
+        }
+        if (bankCount < 1) {
+            throw new IllegalArgumentException("Quantidade de bancos inválida: " + bankCount);
+        }
+        this.generalPurposeCount = generalPurposeCount;
+        this.banks = new int[bankCount][SIZE];
+        this.activeBank = 0;
+        this.values = banks[0];
+        this.views = new Register[SIZE];
+    }
+
+    /**
+     * Ativa o próximo banco de sombra. Os ponteiros de pilha são copiados para o novo banco;
+     * os demais registradores do banco anterior ficam preservados até leaveBank().
+     *
+     * @param callerFlags Flags compactadas de quem chamou, guardadas no banco que fica inativo.
+     * @return O array do banco que passou a ser o ativo.
+     * @throws IllegalStateException Se não houver banco livre.
+     */
+    public int[] enterBank(int callerFlags) {
+        if (activeBank + 1 >= banks.length) {
+            throw new IllegalStateException("Sem banco de registradores livre (bancos: " + banks.length + ").");
+        }
+        int[] caller = values;
+        caller[FLAGS] = callerFlags;
+        activeBank++;
+        values = banks[activeBank];
+        values[STK_TOP] = caller[STK_TOP];
+        values[STK_BOT] = caller[STK_BOT];
+        return values;
+    }
+
+    /**
+     * Volta ao banco anterior (de quem chamou), levando de volta os ponteiros de pilha.
+     *
+     * @return O array do banco que voltou a ser o ativo; FLAGS contém as flags salvas na entrada.
+     * @throws IllegalStateException Se o banco principal já estiver ativo.
+     */
+    public int[] leaveBank() {
+        if (activeBank == 0) {
+            throw new IllegalStateException("Retorno de microprograma sem banco de sombra ativo.");
+        }
+        int[] callee = values;
+        activeBank--;
+        values = banks[activeBank];
+        values[STK_TOP] = callee[STK_TOP];
+        values[STK_BOT] = callee[STK_BOT];
+        return values;
+    }
+
+    /**
+     * Zera todos os bancos e volta ao banco principal.
+     *
+     * @return O array do banco principal.
+     */
+    public int[] reset() {
+        for (int[] bank : banks) {
+            Arrays.fill(bank, 0);
+        }
+        activeBank = 0;
+        values = banks[0];
+        return values;
+    }
+
+    public int getActiveBank() {
+        return activeBank;
+    }
+
+    public int getBankCount() {
+        return banks.length;
+    }
+
+    public int getGeneralPurposeCount() {
+        return generalPurposeCount;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public void set(int index, int value) {
+        values[index] = value;
+    }
+
+    /**
+     * Retorna uma visão (Register) sobre uma posição do banco ativo. A visão lê e escreve
+     * diretamente no array ativo, então acompanha as trocas de banco.
+     */
+    public Register view(int index) {
+        Register view = views[index];
+        if (view == null) {
+            view = new Register(nameOf(index), this, index);
+            views[index] = view;
+        }
+        return view;
+    }
+
+    public String nameOf(int index) {
+        switch (index) {
+            case PC: return "PC";
+            case IR: return "IR";
+            case STK_TOP: return "StkTOP";
+            case STK_BOT: return "StkBOT";
+            case FLAGS: return "FLAGS";
+            default: return "REG" + index;
+        }
+    }
+}
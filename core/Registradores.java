@@ -1,12 +1,26 @@
 package core;
 
+/**
+ * Registrador nomeado. Pode ser independente (guarda o próprio valor) ou uma visão sobre
+ * uma posição de um RegisterFile, que é onde a CPU mantém o estado dos registradores.
+ */
 public class Register {
     private String name;
-    private int value;
+    private int value;               // Usado apenas quando o registrador é independente
+    private final RegisterFile file; // Banco de origem quando o registrador é uma visão
+    private final int index;
 
     public Register(String name) {
         this.name = name;
         this.value = 0;
+        this.file = null;
+        this.index = -1;
+    }
+
+    Register(String name, RegisterFile file, int index) {
+        this.name = name;
+        this.file = file;
+        this.index = index;
     }
 
     public String getName() {
@@ -14,23 +28,27 @@ public class Register {
     }
 
     public int get() {
-        return value;
+        return file == null ? value : file.values[index];
     }
 
     public void set(int value) {
-        this.value = value;
+        if (file == null) {
+            this.value = value;
+        } else {
+            file.values[index] = value;
+        }
     }
 
     public void inc() {
-        this.value++;
+        set(get() + 1);
     }
 
     public void dec() {
-        this.value--;
+        set(get() - 1);
     }
 
     @Override
     public String toString() {
-        return name + ": " + value;
+        return name + ": " + get();
     }
-} 
\ No newline at end of file
+}
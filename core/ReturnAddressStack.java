@@ -0,0 +1,64 @@
+package core;
+
+/**
+ * Pilha de endereços de retorno (RAS): cada call empilha o endereço de retorno e cada ret
+ * desempilha a previsão do seu destino. É circular: numa recursão mais funda que a pilha,
+ * os endereços mais antigos são sobrescritos e os ret correspondentes erram.
+ */
+public class ReturnAddressStack {
+    private final int[] entries;
+    private int top;   // Próxima posição livre (circular)
+    private int count; // Entradas válidas
+
+    private long overflows;
+    private long underflows;
+
+    public ReturnAddressStack(int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Profundidade da RAS deve ser positiva: " + depth);
+        }
+        this.entries = new int[depth];
+    }
+
+    public void push(int returnAddress) {
+        entries[top] = returnAddress;
+        top = top + 1 == entries.length ? 0 : top + 1;
+        if (count < entries.length) {
+            count++;
+        } else {
+            overflows++; // A mais antiga foi sobrescrita
+        }
+    }
+
+    /**
+     * @return O endereço de retorno previsto, ou -1 se a pilha está vazia.
+     */
+    public int pop() {
+        if (count == 0) {
+            underflows++;
+            return -1;
+        }
+        count--;
+        top = top == 0 ? entries.length - 1 : top - 1;
+        return entries[top];
+    }
+
+    public void reset() {
+        top = 0;
+        count = 0;
+        overflows = 0;
+        underflows = 0;
+    }
+
+    public int getDepth() {
+        return entries.length;
+    }
+
+    public long getOverflows() {
+        return overflows;
+    }
+
+    public long getUnderflows() {
+        return underflows;
+    }
+}
@@ -0,0 +1,41 @@
+package core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor padrão das execuções assíncronas de CPU (CPU.runAsync).
+ *
+ * Em JVMs com threads virtuais (Java 21+) cada simulação ganha uma thread virtual, então
+ * dezenas de milhares de simulações simultâneas não precisam de uma thread de plataforma
+ * cada. O executor é obtido por reflexão para que o simulador continue compilando e
+ * rodando em versões mais antigas; nelas o fallback é um pool de threads daemon sob
+ * demanda (funciona, mas com uma thread de plataforma por simulação ativa).
+ */
+final class SimulationExecutor {
+    private static final Executor DEFAULT = create();
+
+    private SimulationExecutor() {
+    }
+
+    static Executor get() {
+        return DEFAULT;
+    }
+
+    private static Executor create() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Sem threads virtuais: threads daemon, para que simulações esquecidas não
+            // impeçam a JVM de terminar
+            return Executors.newCachedThreadPool(task -> {
+                Thread t = new Thread(task, "cpu-sim");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package core;
+
+/**
+ * Mapa de endereços de código para linhas do arquivo assembly de onde vieram, montado pelo
+ * Loader. Usado nos relatórios (ver Profiler) para mostrar a linha-fonte de cada PC.
+ */
+public class SourceMap {
+    private final String file;
+    private final int startAddress;
+    private final int[] lines;    // Número da linha (a partir de 1) de cada palavra montada
+    private final String[] texts; // Texto da linha, sem comentários
+
+    /**
+     * @param file         Caminho do arquivo assembly.
+     * @param startAddress Endereço da primeira palavra montada.
+     * @param lines        Linha de cada palavra, na ordem dos endereços.
+     * @param texts        Texto de cada linha, na mesma ordem.
+     */
+    public SourceMap(String file, int startAddress, int[] lines, String[] texts) {
+        if (lines.length != texts.length) {
+            throw new IllegalArgumentException("Linhas e textos com tamanhos diferentes: "
+                    + lines.length + " e " + texts.length);
+        }
+        this.file = file;
+        this.startAddress = startAddress;
+        this.lines = lines;
+        this.texts = texts;
+    }
+
+    public boolean contains(int address) {
+        return address >= startAddress && address - startAddress < lines.length;
+    }
+
+    /** @return A linha (a partir de 1) que gerou o endereço, ou -1 se ele não veio deste arquivo. */
+    public int lineOf(int address) {
+        return contains(address) ? lines[address - startAddress] : -1;
+    }
+
+    /** @return O texto da linha que gerou o endereço, ou null. */
+    public String textOf(int address) {
+        return contains(address) ? texts[address - startAddress] : null;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public int getStartAddress() {
+        return startAddress;
+    }
+
+    public int size() {
+        return lines.length;
+    }
+}
@@ -0,0 +1,50 @@
+package core;
+
+/**
+ * Preditor estático: a previsão depende só do desvio, nunca do histórico.
+ *  - NOT_TAKEN: nunca tomado (o que a busca em sequência faz sem preditor);
+ *  - TAKEN: sempre tomado;
+ *  - BACKWARD_TAKEN: tomado se o destino vem antes do desvio (fecha um laço), não tomado
+ *    para frente (BTFN).
+ */
+public class StaticPredictor implements BranchPredictor {
+    public static final int NOT_TAKEN = 0;
+    public static final int TAKEN = 1;
+    public static final int BACKWARD_TAKEN = 2;
+
+    private final int policy;
+
+    public StaticPredictor(int policy) {
+        if (policy < NOT_TAKEN || policy > BACKWARD_TAKEN) {
+            throw new IllegalArgumentException("Política estática desconhecida: " + policy);
+        }
+        this.policy = policy;
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        switch (policy) {
+            case TAKEN:          return true;
+            case BACKWARD_TAKEN: return target <= pc;
+            default:             return false;
+        }
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        // Sem estado
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public String getName() {
+        switch (policy) {
+            case TAKEN:          return "estático (tomado)";
+            case BACKWARD_TAKEN: return "estático (para trás tomado)";
+            default:             return "estático (não tomado)";
+        }
+    }
+}
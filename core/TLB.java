@@ -0,0 +1,160 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * TLB associativo por conjuntos: guarda traduções recentes (ASID, página virtual) ->
+ * quadro físico, para que a MMU não precise ler a tabela de páginas a cada acesso.
+ *
+ * O conjunto de uma página é vpn % sets; dentro do conjunto, qualquer uma das "ways"
+ * entradas pode guardá-la. Quando o conjunto está cheio, a vítima é escolhida pela
+ * política: LRU (usada há mais tempo), FIFO (inserida há mais tempo) ou RANDOM.
+ * As entradas levam o ASID, então trocar de espaço de endereçamento não exige esvaziar
+ * o TLB.
+ */
+public class TLB {
+    public static final int POLICY_LRU = 0;
+    public static final int POLICY_FIFO = 1;
+    public static final int POLICY_RANDOM = 2;
+
+    private final int sets;
+    private final int ways;
+    private final int policy;
+
+    // Entradas (struct-of-arrays), índice = conjunto * ways + way
+    private final boolean[] valid;
+    private final boolean[] writable;
+    private final int[] asid;
+    private final int[] vpn;
+    private final int[] frame;
+    private final long[] stamp; // LRU: último uso; FIFO: inserção
+
+    private long clock;
+    private int random = 0x2545F491; // xorshift, determinístico entre execuções
+    private long evictions;
+
+    /**
+     * @param sets   Quantidade de conjuntos (potência de 2).
+     * @param ways   Entradas por conjunto (associatividade).
+     * @param policy POLICY_LRU, POLICY_FIFO ou POLICY_RANDOM.
+     */
+    public TLB(int sets, int ways, int policy) {
+        if (sets <= 0 || Integer.bitCount(sets) != 1) {
+            throw new IllegalArgumentException("Quantidade de conjuntos do TLB deve ser potência de 2: " + sets);
+        }
+        if (ways <= 0) {
+            throw new IllegalArgumentException("Associatividade do TLB deve ser positiva: " + ways);
+        }
+        if (policy < POLICY_LRU || policy > POLICY_RANDOM) {
+            throw new IllegalArgumentException("Política de substituição desconhecida: " + policy);
+        }
+        this.sets = sets;
+        this.ways = ways;
+        this.policy = policy;
+        int size = sets * ways;
+        this.valid = new boolean[size];
+        this.writable = new boolean[size];
+        this.asid = new int[size];
+        this.vpn = new int[size];
+        this.frame = new int[size];
+        this.stamp = new long[size];
+    }
+
+    /**
+     * @return O índice da entrada com a tradução, ou -1 (falta no TLB).
+     */
+    public int lookup(int space, int page) {
+        int first = (page & (sets - 1)) * ways;
+        for (int e = first, end = first + ways; e < end; e++) {
+            if (valid[e] && vpn[e] == page && asid[e] == space) {
+                if (policy == POLICY_LRU) {
+                    stamp[e] = ++clock;
+                }
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Guarda uma tradução, substituindo uma entrada do conjunto se ele estiver cheio.
+     *
+     * @return O índice da entrada usada.
+     */
+    public int insert(int space, int page, int physicalFrame, boolean canWrite) {
+        int first = (page & (sets - 1)) * ways;
+        int victim = -1;
+        for (int e = first, end = first + ways; e < end; e++) {
+            if (!valid[e]) {
+                victim = e;
+                break;
+            }
+        }
+        if (victim < 0) {
+            victim = chooseVictim(first);
+            evictions++;
+        }
+        valid[victim] = true;
+        writable[victim] = canWrite;
+        asid[victim] = space;
+        vpn[victim] = page;
+        frame[victim] = physicalFrame;
+        stamp[victim] = ++clock;
+        return victim;
+    }
+
+    private int chooseVictim(int first) {
+        if (policy == POLICY_RANDOM) {
+            random ^= random << 13;
+            random ^= random >>> 17;
+            random ^= random << 5;
+            return first + Math.floorMod(random, ways);
+        }
+        // LRU e FIFO: o menor carimbo (último uso ou inserção)
+        int victim = first;
+        for (int e = first + 1, end = first + ways; e < end; e++) {
+            if (stamp[e] < stamp[victim]) {
+                victim = e;
+            }
+        }
+        return victim;
+    }
+
+    public int frameAt(int entry) {
+        return frame[entry];
+    }
+
+    public boolean isWritable(int entry) {
+        return writable[entry];
+    }
+
+    /** Esvazia o TLB inteiro. */
+    public void flush() {
+        Arrays.fill(valid, false);
+    }
+
+    /** Descarta as traduções de um espaço de endereçamento. */
+    public void flush(int space) {
+        for (int e = 0; e < valid.length; e++) {
+            if (asid[e] == space) {
+                valid[e] = false;
+            }
+        }
+    }
+
+    public int getSets() {
+        return sets;
+    }
+
+    public int getWays() {
+        return ways;
+    }
+
+    public int getPolicy() {
+        return policy;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
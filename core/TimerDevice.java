@@ -0,0 +1,123 @@
+package core;
+
+/**
+ * Temporizador programável, mapeado em memória, contado em instruções executadas pela CPU.
+ * Ao vencer, pede interrupção na sua linha do InterruptController.
+ *
+ *   base + 0  PERIOD      instruções até vencer (deve ser > 0 para ligar)
+ *   base + 1  CONTROL     bit 0 = ligado, bit 1 = periódico (recarrega PERIOD ao vencer)
+ *   base + 2  REMAINING   instruções que faltam para o próximo vencimento (somente leitura)
+ *   base + 3  EXPIRED     quantas vezes venceu; escrever qualquer valor zera
+ *
+ * Escrever em CONTROL (re)programa o temporizador a partir do instante atual. O vencimento
+ * é um evento no EventScheduler da CPU, então um temporizador parado ou ainda longe de
+ * vencer não custa nada por instrução.
+ */
+public class TimerDevice implements Device {
+    public static final int REG_PERIOD = 0;
+    public static final int REG_CONTROL = 1;
+    public static final int REG_REMAINING = 2;
+    public static final int REG_EXPIRED = 3;
+    public static final int REGISTER_COUNT = 4;
+
+    public static final int CONTROL_ENABLE = 1;
+    public static final int CONTROL_PERIODIC = 2;
+
+    private final CPU cpu;
+    private final InterruptController interrupts;
+    private final int line;
+
+    private int period;
+    private int control;
+    private int expired;
+    private EventScheduler.Event pendingEvent; // Próximo vencimento, null se desligado
+
+    /**
+     * @param cpu        CPU cujo relógio (contagem de instruções) e agendador são usados.
+     * @param interrupts Controlador que recebe o pedido de interrupção.
+     * @param line       Linha de interrupção deste temporizador.
+     */
+    public TimerDevice(CPU cpu, InterruptController interrupts, int line) {
+        if (line < 0 || line >= InterruptController.LINES) {
+            throw new IllegalArgumentException("Linha de interrupção inválida: " + line);
+        }
+        this.cpu = cpu;
+        this.interrupts = interrupts;
+        this.line = line;
+    }
+
+    @Override
+    public int size() {
+        return REGISTER_COUNT;
+    }
+
+    @Override
+    public int read(int offset) {
+        switch (offset) {
+            case REG_PERIOD:    return period;
+            case REG_CONTROL:   return control;
+            case REG_REMAINING: return pendingEvent == null ? 0
+                                       : (int) Math.max(0, pendingEvent.getWhen() - cpu.getInstructionCount());
+            default:            return expired;
+        }
+    }
+
+    @Override
+    public void write(int offset, int value) {
+        switch (offset) {
+            case REG_PERIOD:    period = value; break;
+            case REG_CONTROL:   program(value); break;
+            case REG_REMAINING: break; // Somente leitura
+            default:            expired = 0; break;
+        }
+    }
+
+    /**
+     * Programa o temporizador (mesmo efeito de escrever em CONTROL).
+     */
+    public void program(int newControl) {
+        cancel();
+        control = newControl & (CONTROL_ENABLE | CONTROL_PERIODIC);
+        if ((control & CONTROL_ENABLE) != 0 && period > 0) {
+            arm(cpu.getInstructionCount() + period);
+        }
+    }
+
+    private void arm(long when) {
+        pendingEvent = cpu.getScheduler().schedule(when, this::expire);
+    }
+
+    private void expire(long now) {
+        pendingEvent = null;
+        expired++;
+        interrupts.raise(line);
+        if ((control & CONTROL_PERIODIC) != 0 && period > 0) {
+            arm(now + period);
+        } else {
+            control &= ~CONTROL_ENABLE;
+        }
+    }
+
+    private void cancel() {
+        if (pendingEvent != null) {
+            pendingEvent.cancel();
+            pendingEvent = null;
+        }
+    }
+
+    @Override
+    public void reset() {
+        cancel();
+        period = 0;
+        control = 0;
+        expired = 0;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getExpiredCount() {
+        return expired;
+    }
+}
@@ -0,0 +1,46 @@
+package core;
+
+import model.Instruction;
+
+/**
+ * Modelo de temporização opcional ligado à CPU (ver CPU.setTimingModel): recebe cada
+ * instrução executada, na ordem do programa, e estima quantos ciclos uma microarquitetura
+ * levaria para executá-las. Não muda o resultado dos programas.
+ */
+public interface TimingModel {
+
+    /**
+     * Chamado depois que a CPU executa uma instrução.
+     *
+     * @param pc          Endereço da instrução.
+     * @param instruction A instrução decodificada.
+     * @param nextPc      PC depois da execução (pc + 1, ou o destino de um desvio/trap).
+     */
+    void onInstruction(int pc, Instruction instruction, int nextPc);
+
+    /**
+     * Chamado no lugar de onInstruction quando a instrução falhou e a CPU entrou no tratador
+     * de trap (nextPc é o vetor). Um desvio que falhou (call com a pilha cheia, ret com ela
+     * vazia) não deve treinar o preditor; por padrão, a instrução é contada como as outras.
+     */
+    default void onFault(int pc, Instruction instruction, int nextPc) {
+        onInstruction(pc, instruction, nextPc);
+    }
+
+    /** @return Ciclos estimados até a última instrução sair do pipeline. */
+    long getCycles();
+
+    /** @return Instruções recebidas. */
+    long getInstructions();
+
+    /** @return Ciclos por instrução (0 se nenhuma instrução foi executada). */
+    default double getCpi() {
+        long instructions = getInstructions();
+        return instructions == 0 ? 0 : (double) getCycles() / instructions;
+    }
+
+    /** Volta ao estado inicial (pipeline vazio, contadores zerados). */
+    void reset();
+
+    void printStatistics();
+}
@@ -0,0 +1,70 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Preditor de torneio: dois preditores rodam lado a lado e uma tabela de escolha
+ * (contadores de 2 bits indexados pelo PC) aprende qual acerta mais em cada desvio.
+ * A escolha só é treinada quando os dois discordam. Os dois preditores são sempre
+ * treinados, mesmo o que não foi escolhido.
+ */
+public class TournamentPredictor implements BranchPredictor {
+    private final BranchPredictor first;
+    private final BranchPredictor second;
+    private final byte[] chooser; // 0..1 escolhe first, 2..3 escolhe second
+    private final int mask;
+
+    // Previsões do último predict, usadas no update seguinte
+    private boolean firstGuess;
+    private boolean secondGuess;
+
+    /**
+     * @param first       Preditor escolhido inicialmente (ex: bimodal).
+     * @param second      Preditor alternativo (ex: gshare).
+     * @param chooserBits log2 da quantidade de contadores de escolha.
+     */
+    public TournamentPredictor(BranchPredictor first, BranchPredictor second, int chooserBits) {
+        if (chooserBits < 0 || chooserBits > 24) {
+            throw new IllegalArgumentException("Tamanho de tabela inválido: 2^" + chooserBits);
+        }
+        this.first = first;
+        this.second = second;
+        this.chooser = new byte[1 << chooserBits];
+        this.mask = chooser.length - 1;
+        reset();
+    }
+
+    /** Bimodal contra gshare, com tabelas de 2^indexBits entradas. */
+    public static TournamentPredictor createDefault(int indexBits) {
+        return new TournamentPredictor(new BimodalPredictor(indexBits),
+                                       new GsharePredictor(indexBits, indexBits), indexBits);
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        firstGuess = first.predict(pc, target);
+        secondGuess = second.predict(pc, target);
+        return chooser[pc & mask] >= 2 ? secondGuess : firstGuess;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        if (firstGuess != secondGuess) {
+            chooser[pc & mask] = BimodalPredictor.train(chooser[pc & mask], secondGuess == taken);
+        }
+        first.update(pc, target, taken);
+        second.update(pc, target, taken);
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(chooser, BimodalPredictor.WEAKLY_NOT_TAKEN);
+        first.reset();
+        second.reset();
+    }
+
+    @Override
+    public String getName() {
+        return "torneio (" + first.getName() + " x " + second.getName() + ")";
+    }
+}
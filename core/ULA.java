@@ -3,7 +3,13 @@ package core;
 // Importa a classe Flags para que a ULA possa interagir com ela
 
 public class ULA {
-    private Flags flags; // A ULA precisa de uma referência às Flags para atualizá-las
+    // Códigos das operações aceitas por perform()
+    public static final int OP_ADD = 0;
+    public static final int OP_SUB = 1;
+    public static final int OP_INC = 2;
+    public static final int OP_DEC = 3;
+
+    private Flags flags; // A ULA precisa de uma referência às Flags para registrar o último resultado
 
     // Construtor: a ULA precisa receber uma instância de Flags
     public ULA(Flags flags) {
@@ -19,7 +25,7 @@ public class ULA {
      */
     public int add(int operand1, int operand2) {
         int result = operand1 + operand2;
-        flags.updateFlags(result); // Atualiza as flags com base no resultado
+        flags.updateFlags(result); // Registra o resultado; Z e N são derivados só quando lidos
         return result;
     }
 
@@ -32,7 +38,7 @@ public class ULA {
      */
     public int sub(int operand1, int operand2) {
         int result = operand1 - operand2;
-        flags.updateFlags(result); // Atualiza as flags com base no resultado
+        flags.updateFlags(result); // Registra o resultado; Z e N são derivados só quando lidos
         return result;
     }
 
@@ -44,7 +50,7 @@ public class ULA {
      */
     public int inc(int operand) {
         int result = operand + 1; // Ou você pode usar add(operand, 1)
-        flags.updateFlags(result); // Atualiza as flags com base no resultado
+        flags.updateFlags(result); // Registra o resultado; Z e N são derivados só quando lidos
         return result;
     }
 
@@ -57,42 +63,36 @@ public class ULA {
      */
     public int dec(int operand) {
         int result = operand - 1; // Ou você pode usar sub(operand, 1)
-        flags.updateFlags(result); // Atualiza as flags com base no resultado
+        flags.updateFlags(result); // Registra o resultado; Z e N são derivados só quando lidos
         return result;
     }
 
     /**
-     * Método genérico para realizar operações aritméticas com base em uma string de operação.
-     * Este método é útil para a classe Stack, como discutimos anteriormente.
-     * Você pode expandir este método para incluir mais operações se precisar.
+     * Método genérico para realizar operações aritméticas a partir de um código inteiro
+     * (OP_ADD, OP_SUB, OP_INC, OP_DEC). O switch é sobre int, sem criação de strings
+     * nem hashing, então pode ser usado no caminho quente.
      *
-     * @param operand1 O primeiro operando.
-     * @param operand2 O segundo operando (para operações binárias) ou um valor para unárias.
-     * @param operation A string que representa a operação (ex: "ADD", "SUB", "INC", "DEC").
+     * @param operation O código da operação.
+     * @param operand1  O primeiro operando.
+     * @param operand2  O segundo operando (ignorado nas operações unárias INC e DEC).
      * @return O resultado da operação.
      * @throws IllegalArgumentException Se a operação não for reconhecida.
      */
-    public int performOperation(int operand1, int operand2, String operation) {
-        int result;
-        switch (operation.toUpperCase()) {
-            case "ADD":
-                result = add(operand1, operand2);
-                break;
-            case "SUB":
-                result = sub(operand1, operand2);
-                break;
-            case "INC": // Para operações unárias, o operand2 pode ser ignorado ou usado como 1
-                result = inc(operand1);
-                break;
-            case "DEC": // Para operações unárias, o operand2 pode ser ignorado ou usado como 1
-                result = dec(operand1);
-                break;
+    public int perform(int operation, int operand1, int operand2) {
+        // As flags já são atualizadas dentro dos métodos específicos (add, sub, inc, dec)
+        switch (operation) {
+            case OP_ADD:
+                return add(operand1, operand2);
+            case OP_SUB:
+                return sub(operand1, operand2);
+            case OP_INC:
+                return inc(operand1);
+            case OP_DEC:
+                return dec(operand1);
             // TODO: Adicionar outras operações lógicas se houver (AND, OR, NOT, XOR, etc.)
             default:
                 throw new IllegalArgumentException("ULA: Operação desconhecida: " + operation);
         }
-        // As flags já são atualizadas dentro dos métodos específicos (add, sub, inc, dec)
-        return result;
     }
 
     /**
@@ -104,6 +104,6 @@ public class ULA {
      */
     public void compare(int value1, int value2) {
         int result = value1 - value2; // A comparação é feita implicitamente por uma subtração
-        flags.updateFlags(result); // Atualiza as flags com base no resultado da "subtração"
+        flags.updateFlags(result); // Registra o resultado da "subtração" para os desvios avaliarem
     }
 }
\ No newline at end of file
@@ -1,29 +1,64 @@
 package core;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
 public class Memory {
+    // Acesso atômico às palavras da memória (usado por CAS/FAA quando vários núcleos
+    // compartilham a mesma Memory). read/write comuns continuam sendo acessos simples,
+    // sem garantia de ordem entre núcleos; só as operações atômicas sincronizam.
+    private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(int[].class);
+
     private int[] data;
     private final int MAX_SIZE; // Tamanho total da memória em "palavras" (inteiros)
 
+    // Páginas sujas: toda escrita marca a página do endereço, e reset() zera só as páginas
+    // marcadas. Programas curtos tocam poucas páginas, então reutilizar uma Memory sai bem
+    // mais barato que alocar (e zerar) outra. Marcar é idempotente, então escritas
+    // simultâneas de vários núcleos não precisam de sincronização aqui.
+    public static final int PAGE_SHIFT = 6; // 64 palavras por página
+    private final boolean[] dirty;
+
+    // Dispositivos mapeados em memória (MMIO). mmioStart/mmioEnd cobrem todos eles, para que
+    // o caminho comum (endereço fora de qualquer dispositivo) custe só uma comparação.
+    private Device[] devices = new Device[0];
+    private int[] deviceBase = new int[0];
+    private int mmioStart = Integer.MAX_VALUE;
+    private int mmioEnd = Integer.MIN_VALUE; // exclusivo
+
     // Endereços de memória reservados e pontos de interesse
     private int imulMicroprogramStartAddress; // Início do microprograma IMUL
     private int imulRegistersSaveAreaStart;   // Início da área para salvar registradores
     private int imulResultAddress;            // Endereço onde o resultado do IMUL será salvo
+    private int interruptSaveAreaStart;       // Início da área de contexto salvo na entrada de interrupção
+    private int trapSaveAreaStart;            // Início da área de trap (contexto, falha e vetor)
+    private final int trapContextWords;       // Palavras de contexto no início da área de trap
+
+    // Registrador de falha, logo depois do contexto na área de trap: causa, endereço, PC
+    public static final int TRAP_FAULT_WORDS = 3;
     private int variablesStartAddress;        // Início da área de variáveis
     private int stackBottomAddress;           // Endereço inicial (base) da pilha (StkBOT)
                                               // A pilha cresce "para baixo" a partir daqui.
 
     // Construtor: define o tamanho da memória e os endereços de áreas reservadas
     public Memory(int maxSize) {
+        this(maxSize, RegisterFile.DEFAULT_GENERAL_PURPOSE);
+    }
+
+    /**
+     * @param maxSize       Tamanho total da memória em palavras.
+     * @param registerCount Quantidade de registradores de uso geral da CPU; define o tamanho
+     *                      da área de salvamento de contexto (registradores + PC + flags).
+     */
+    public Memory(int maxSize, int registerCount) {
         if (maxSize <= 0) {
             throw new IllegalArgumentException("Memory size must be positive.");
         }
         this.MAX_SIZE = maxSize;
-        this.data = new int[MAX_SIZE];
-        
-        // Inicializa a memória com zeros
-        for (int i = 0; i < MAX_SIZE; i++) {
-            this.data[i] = 0;
-        }
+        this.data = new int[MAX_SIZE]; // A JVM já entrega o array zerado
+        this.dirty = new boolean[((MAX_SIZE - 1) >>> PAGE_SHIFT) + 1];
+        this.trapContextWords = registerCount + 2;
 
         // --- Definição dos endereços de áreas reservadas ---
         // Estes valores são arbitrários para começar. Você precisará ajustá-los
@@ -39,22 +74,31 @@ public class Memory {
         this.imulMicroprogramStartAddress = currentAddress;
         currentAddress += 20; // +20 para o microprograma IMUL
 
-        // 2. Área para salvar registradores (PC, REG0-3, FLAGS - 5 registradores + flags = 6 palavras)
+        // 2. Área para salvar registradores (REG0..REGn-1, PC, FLAGS - com 4 registradores = 6 palavras)
         // Você pode alocar mais se precisar de espaço para flags separadas ou outros.
         this.imulRegistersSaveAreaStart = currentAddress;
-        currentAddress += 6; // +6 para salvar registradores e flags (ex: 5 regs + 1 para flags compactadas ou separadas)
+        currentAddress += registerCount + 2; // registradores + PC + 1 para flags compactadas
 
         // 3. Endereço para o resultado do IMUL
         this.imulResultAddress = currentAddress;
         currentAddress += 1; // +1 para o resultado da multiplicação
 
-        // 4. Início da área de variáveis
+        // 4. Área para salvar o contexto interrompido (mesmo formato da área do IMUL)
+        this.interruptSaveAreaStart = currentAddress;
+        currentAddress += registerCount + 2; // registradores + PC + flags compactadas
+
+        // 5. Área de trap: contexto salvo na entrada do tratador (registradores + PC + flags),
+        // registrador de falha (causa, endereço, PC da instrução) e vetor do tratador
+        this.trapSaveAreaStart = currentAddress;
+        currentAddress += registerCount + 2 + TRAP_FAULT_WORDS + 1;
+
+        // 6. Início da área de variáveis
         // Variáveis começam após todas as áreas reservadas do sistema.
         this.variablesStartAddress = currentAddress;
         // Para este exemplo, não vamos predefinir um tamanho fixo para variáveis aqui.
         // O Loader/CPU precisará gerenciar a alocação de variáveis a partir daqui.
 
-        // 5. Início da pilha (cresce para baixo a partir daqui)
+        // 7. Início da pilha (cresce para baixo a partir daqui)
         // A pilha é alocada a partir da primeira posição livre após as variáveis.
         // Para simplificar no construtor da memória, vamos definir o "fundo" da pilha
         // como o final da memória disponível para o usuário, mas antes disso, precisamos
@@ -75,6 +119,8 @@ public class Memory {
             System.err.println("  IMUL Microprogram Start: " + imulMicroprogramStartAddress);
             System.err.println("  IMUL Regs Save Start: " + imulRegistersSaveAreaStart);
             System.err.println("  IMUL Result Address: " + imulResultAddress);
+            System.err.println("  Interrupt Save Start: " + interruptSaveAreaStart);
+            System.err.println("  Trap Save Start: " + trapSaveAreaStart);
             System.err.println("  Variables Start Address: " + variablesStartAddress);
             System.err.println("  Calculated Stack Bottom Address: " + stackBottomAddress);
             throw new IllegalArgumentException("Memory allocation overlap detected during initialization.");
@@ -92,6 +138,12 @@ public class Memory {
         if (address < 0 || address >= MAX_SIZE) {
             throw new IndexOutOfBoundsException("Memory read error: Address " + address + " is out of bounds [0, " + (MAX_SIZE - 1) + "]");
         }
+        if (address >= mmioStart && address < mmioEnd) {
+            int i = deviceAt(address);
+            if (i >= 0) {
+                return devices[i].read(address - deviceBase[i]);
+            }
+        }
         return data[address];
     }
 
@@ -106,7 +158,72 @@ public class Memory {
         if (address < 0 || address >= MAX_SIZE) {
             throw new IndexOutOfBoundsException("Memory write error: Address " + address + " is out of bounds [0, " + (MAX_SIZE - 1) + "]");
         }
+        if (address >= mmioStart && address < mmioEnd) {
+            int i = deviceAt(address);
+            if (i >= 0) {
+                devices[i].write(address - deviceBase[i], value);
+                return;
+            }
+        }
         data[address] = value;
+        dirty[address >>> PAGE_SHIFT] = true;
+    }
+
+    /**
+     * Compara e troca atomicamente: se memória[address] == expected, grava newValue.
+     * Num endereço de dispositivo, vira leitura e escrita no próprio dispositivo (ver deviceAtomic).
+     *
+     * @return O valor que estava no endereço antes da operação (igual a expected se a troca ocorreu).
+     * @throws IndexOutOfBoundsException Se o endereço estiver fora dos limites da memória.
+     */
+    public int compareAndSwap(int address, int expected, int newValue) {
+        if (address < 0 || address >= MAX_SIZE) {
+            throw new IndexOutOfBoundsException("Memory CAS error: Address " + address + " is out of bounds [0, " + (MAX_SIZE - 1) + "]");
+        }
+        if (address >= mmioStart && address < mmioEnd) {
+            int i = deviceAt(address);
+            if (i >= 0) {
+                return deviceAtomic(devices[i], address - deviceBase[i], expected, newValue, false);
+            }
+        }
+        dirty[address >>> PAGE_SHIFT] = true;
+        return (int) WORD.compareAndExchange(data, address, expected, newValue);
+    }
+
+    /**
+     * Soma delta atomicamente ao valor em memória[address].
+     * Num endereço de dispositivo, vira leitura e escrita no próprio dispositivo (ver deviceAtomic).
+     *
+     * @return O valor que estava no endereço antes da soma.
+     * @throws IndexOutOfBoundsException Se o endereço estiver fora dos limites da memória.
+     */
+    public int fetchAndAdd(int address, int delta) {
+        if (address < 0 || address >= MAX_SIZE) {
+            throw new IndexOutOfBoundsException("Memory FAA error: Address " + address + " is out of bounds [0, " + (MAX_SIZE - 1) + "]");
+        }
+        if (address >= mmioStart && address < mmioEnd) {
+            int i = deviceAt(address);
+            if (i >= 0) {
+                return deviceAtomic(devices[i], address - deviceBase[i], 0, delta, true);
+            }
+        }
+        dirty[address >>> PAGE_SHIFT] = true;
+        return (int) WORD.getAndAdd(data, address, delta);
+    }
+
+    // CAS/FAA num registrador de dispositivo: read seguido de write no dispositivo, com o
+    // dispositivo travado. É atômico só em relação a outros CAS/FAA no mesmo dispositivo;
+    // leituras e escritas comuns (ou a thread do próprio dispositivo) não passam pela trava.
+    private static int deviceAtomic(Device device, int offset, int expected, int value, boolean add) {
+        synchronized (device) {
+            int old = device.read(offset);
+            if (add) {
+                device.write(offset, old + value);
+            } else if (old == expected) {
+                device.write(offset, value);
+            }
+            return old;
+        }
     }
 
     // --- Getters para os endereços das áreas reservadas ---
@@ -122,6 +239,32 @@ public class Memory {
         return imulResultAddress;
     }
 
+    public int getInterruptSaveAreaStart() {
+        return interruptSaveAreaStart;
+    }
+
+    public int getTrapSaveAreaStart() {
+        return trapSaveAreaStart;
+    }
+
+    /**
+     * Palavras da área de contexto de um núcleo: contexto de interrupção, contexto de trap,
+     * registrador de falha e vetor de trap, nessa ordem a partir de getInterruptSaveAreaStart.
+     */
+    public int getContextAreaWords() {
+        return variablesStartAddress - interruptSaveAreaStart;
+    }
+
+    /** Endereço da causa da falha; o endereço que falhou e o PC da instrução vêm em seguida. */
+    public int getFaultRegisterAddress() {
+        return trapSaveAreaStart + trapContextWords;
+    }
+
+    /** Endereço do vetor de trap (0 = sem tratador: a falha para a CPU). */
+    public int getTrapVectorAddress() {
+        return trapSaveAreaStart + trapContextWords + TRAP_FAULT_WORDS;
+    }
+
     public int getVariablesStartAddress() {
         return variablesStartAddress;
     }
@@ -140,6 +283,187 @@ public class Memory {
             throw new IllegalArgumentException("Program data does not fit in memory at address " + startAddress);
         }
         System.arraycopy(programData, 0, data, startAddress, programData.length);
+        markDirty(startAddress, programData.length);
+    }
+
+    /**
+     * Copia um bloco de palavras dentro da memória (as regiões podem se sobrepor).
+     * Acessa só a RAM: endereços de dispositivos mapeados não são desviados.
+     *
+     * @throws IndexOutOfBoundsException Se algum dos blocos sair da memória.
+     */
+    public void copy(int source, int destination, int length) {
+        checkBlock(source, length);
+        checkBlock(destination, length);
+        System.arraycopy(data, source, data, destination, length);
+        markDirty(destination, length);
+    }
+
+    /**
+     * Preenche um bloco de palavras com um valor. Acessa só a RAM.
+     *
+     * @throws IndexOutOfBoundsException Se o bloco sair da memória.
+     */
+    public void fill(int address, int length, int value) {
+        checkBlock(address, length);
+        Arrays.fill(data, address, address + length, value);
+        markDirty(address, length);
+    }
+
+    /**
+     * Grava length palavras de source[offset..] a partir de address. Acessa só a RAM.
+     *
+     * @throws IndexOutOfBoundsException Se o bloco sair da memória.
+     */
+    public void writeBlock(int address, int[] source, int offset, int length) {
+        checkBlock(address, length);
+        System.arraycopy(source, offset, data, address, length);
+        markDirty(address, length);
+    }
+
+    /**
+     * Lê length palavras a partir de address para destination[offset..]. Acessa só a RAM.
+     *
+     * @throws IndexOutOfBoundsException Se o bloco sair da memória.
+     */
+    public void readBlock(int address, int[] destination, int offset, int length) {
+        checkBlock(address, length);
+        System.arraycopy(data, address, destination, offset, length);
+    }
+
+    /**
+     * Soma value a cada palavra do bloco (com estouro em 32 bits). Acessa só a RAM.
+     * O laço simples sobre o array é vetorizado pelo compilador JIT.
+     *
+     * @throws IndexOutOfBoundsException Se o bloco sair da memória.
+     */
+    public void addBlock(int address, int length, int value) {
+        checkBlock(address, length);
+        final int[] d = data;
+        for (int i = address, end = address + length; i < end; i++) {
+            d[i] += value;
+        }
+        markDirty(address, length);
+    }
+
+    /**
+     * Soma das palavras do bloco (com estouro em 32 bits). Acessa só a RAM.
+     *
+     * @throws IndexOutOfBoundsException Se o bloco sair da memória.
+     */
+    public int sumBlock(int address, int length) {
+        checkBlock(address, length);
+        final int[] d = data;
+        int sum = 0;
+        for (int i = address, end = address + length; i < end; i++) {
+            sum += d[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return true se o bloco [address, address + length) cabe na memória (length >= 0).
+     *         Para quem recebe endereço e tamanho do programa e precisa recusá-los sem exceção.
+     */
+    public boolean isValidBlock(int address, int length) {
+        return length >= 0 && address >= 0 && address <= MAX_SIZE - length;
+    }
+
+    private void checkBlock(int address, int length) {
+        if (!isValidBlock(address, length)) {
+            throw new IndexOutOfBoundsException("Memory block error: [" + address + ", " + address + " + " + length
+                    + ") is out of bounds [0, " + (MAX_SIZE - 1) + "]");
+        }
+    }
+
+    // --- Dispositivos mapeados em memória ---
+
+    /**
+     * Mapeia um dispositivo a partir de base. A faixa não pode sair da memória nem se
+     * sobrepor a outro dispositivo. A RAM "embaixo" do dispositivo fica inacessível para
+     * read/write (continua acessível para load/copy/fill).
+     *
+     * @throws IllegalArgumentException Se a faixa for inválida ou se sobrepuser a outra.
+     */
+    public synchronized void attach(int base, Device device) {
+        int size = device.size();
+        if (size <= 0 || base < 0 || base > MAX_SIZE - size) {
+            throw new IllegalArgumentException("Faixa de dispositivo inválida: [" + base + ", " + base + " + " + size + ")");
+        }
+        for (int i = 0; i < devices.length; i++) {
+            int otherBase = deviceBase[i];
+            if (base < otherBase + devices[i].size() && otherBase < base + size) {
+                throw new IllegalArgumentException("Dispositivo em [" + base + ", " + (base + size)
+                        + ") se sobrepõe a outro em [" + otherBase + ", " + (otherBase + devices[i].size()) + ")");
+            }
+        }
+        Device[] newDevices = Arrays.copyOf(devices, devices.length + 1);
+        int[] newBases = Arrays.copyOf(deviceBase, deviceBase.length + 1);
+        newDevices[devices.length] = device;
+        newBases[deviceBase.length] = base;
+        devices = newDevices;
+        deviceBase = newBases;
+        mmioStart = Math.min(mmioStart, base);
+        mmioEnd = Math.max(mmioEnd, base + size);
+    }
+
+    /**
+     * @return true se o endereço pertence a um dispositivo mapeado, onde uma leitura pode ter
+     *         efeito colateral (ex: consumir uma palavra de uma porta de entrada).
+     */
+    public boolean isDeviceAddress(int address) {
+        return address >= mmioStart && address < mmioEnd && deviceAt(address) >= 0;
+    }
+
+    /**
+     * @return true se a faixa [address, address+length) cruza a região de dispositivos. As
+     *         operações de bloco (copy, fill, addBlock, sumBlock) só enxergam a RAM; nessas
+     *         faixas quem as usa deve ir palavra a palavra por read/write.
+     */
+    public boolean overlapsDevice(int address, int length) {
+        return length > 0 && address < mmioEnd && (long) address + length > mmioStart;
+    }
+
+    // Índice do dispositivo que cobre o endereço, ou -1 (buraco entre dispositivos)
+    private int deviceAt(int address) {
+        for (int i = 0; i < devices.length; i++) {
+            int offset = address - deviceBase[i];
+            if (offset >= 0 && offset < devices[i].size()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Volta a memória ao estado inicial (toda zerada), limpando apenas as páginas escritas
+     * desde a criação ou o último reset.
+     *
+     * @return Quantas páginas foram limpas.
+     */
+    public int reset() {
+        int cleared = 0;
+        for (int page = 0; page < dirty.length; page++) {
+            if (dirty[page]) {
+                int from = page << PAGE_SHIFT;
+                Arrays.fill(data, from, Math.min(from + (1 << PAGE_SHIFT), MAX_SIZE), 0);
+                dirty[page] = false;
+                cleared++;
+            }
+        }
+        for (Device device : devices) {
+            device.reset(); // Os dispositivos continuam mapeados
+        }
+        return cleared;
+    }
+
+    private void markDirty(int startAddress, int length) {
+        if (length > 0) {
+            int last = (startAddress + length - 1) >>> PAGE_SHIFT;
+            for (int page = startAddress >>> PAGE_SHIFT; page <= last; page++) {
+                dirty[page] = true;
+            }
+        }
     }
     
     // Método para depuração
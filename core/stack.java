@@ -1,17 +1,57 @@
 package core;
 
+/**
+ * Pilha da arquitetura, crescendo para baixo a partir de StkBOT.
+ *
+ * As palavras do topo ficam em um cache de topo de pilha (TOS cache) com capacidade fixa;
+ * só vão para a Memory quando o cache enche (spill) e só são lidas da Memory quando o
+ * cache está vazio (fill). Cada endereço da pilha tem um slot fixo no cache
+ * (endereço % capacidade), então o spill sempre libera exatamente o slot que o próximo
+ * push vai ocupar.
+ *
+ * Enquanto estão no cache, as palavras do topo NÃO estão na Memory. Para o programa isso
+ * é invisível: a CPU confere os acessos a dados (move, bcopy, hcall...) contra a faixa
+ * em cache (holds/overlaps) e, se houver sobreposição, chama flush() antes do acesso.
+ * Quem vê a Memory por fora da CPU (dump, depuração, DMA, outros núcleos) deve chamar
+ * flush() antes; transferências de DMA sobre a pilha em uso não veem o topo em cache.
+ */
 public class Stack {
+    public static final int DEFAULT_CACHE_WORDS = 8;     // Palavras do topo mantidas no cache
+    public static final int DEFAULT_STACK_WORDS = 256;  // Tamanho padrão da pilha (define o limite)
+
     private Memory memory;
     private Register stackTop;
     private Register stackBottom;
-    private ULA ula; // Adiciona referência à ULA
+    private AddressAdder addressAdder; // Atualiza o StackTop sem passar pela ULA (não altera as flags)
+
+    private int limit;   // Menor endereço que o topo pode atingir (abaixo disso é overflow)
+    private int[] cache; // Cache de topo de pilha, indexado por endereço % capacidade
+    private int cached;  // Quantas palavras do topo estão apenas no cache
+
+    // Estatísticas de acesso à memória feitas pela pilha
+    private long spills;
+    private long fills;
+
+    // Construtor: o ponteiro de pilha é atualizado pelo somador de endereços, não pela ULA
+    public Stack(Memory memory, Register stackTop, Register stackBottom, AddressAdder addressAdder) {
+        this(memory, stackTop, stackBottom, addressAdder,
+             Math.max(memory.getVariablesStartAddress(), stackBottom.get() - DEFAULT_STACK_WORDS),
+             DEFAULT_CACHE_WORDS);
+    }
 
-    // Construtor atualizado para receber a ULA
-    public Stack(Memory memory, Register stackTop, Register stackBottom, ULA ula) {
+    /**
+     * @param limit      Menor endereço que a pilha pode ocupar.
+     * @param cacheWords Quantidade de palavras do topo mantidas fora da Memory (0 desliga o cache).
+     */
+    public Stack(Memory memory, Register stackTop, Register stackBottom, AddressAdder addressAdder,
+                 int limit, int cacheWords) {
         this.memory = memory;
         this.stackTop = stackTop;
         this.stackBottom = stackBottom;
-        this.ula = ula; // Armazena a instância da ULA
+        this.addressAdder = addressAdder;
+        this.limit = limit;
+        this.cache = new int[Math.max(cacheWords, 0)];
+        this.cached = 0;
     }
 
     public void push(int value) {
@@ -19,17 +59,29 @@ public class Stack {
         // Isso significa que primeiro decrementamos StackTop, e então escrevemos.
         // StackTop apontará para o último elemento inserido.
 
-        // Simula a operação stackTop.set(stackTop.get() - 1) via ULA
-        // Para isso, a ULA precisaria de um método para fazer decremento/incremento de registradores
-        // Ou você pode passar o valor do registrador e a ULA retornar o novo valor.
-        // Vou assumir que a ULA terá um método para decremento de um valor.
-
+        // Simula a operação stackTop.set(stackTop.get() - 1) no somador de endereços.
+        // Usar a ULA aqui sobrescreveria as flags Z/N do programa a cada CALL.
         int currentTopValue = stackTop.get();
-        int newTopValue = ula.performOperation(currentTopValue, 1, "SUB"); // ULA.SUB representa subtração
-        stackTop.set(newTopValue); // Atualiza o registrador StackTop
+        int newTopValue = addressAdder.decrement(currentTopValue);
+        if (newTopValue < limit) {
+            throw new IllegalStateException("Stack overflow: topo " + newTopValue + " abaixo do limite " + limit + ".");
+        }
 
         // "o endereço de retorno deve ser inserido na posição indicada por StackTop."
-        memory.write(stackTop.get(), value); // Escreve o valor na nova posição do topo
+        if (cache.length == 0) {
+            memory.write(newTopValue, value);
+        } else {
+            int slot = newTopValue % cache.length;
+            if (cached == cache.length) {
+                // Cache cheio: a palavra mais antiga ocupa o mesmo slot e vai para a memória
+                memory.write(addressAdder.add(newTopValue, cache.length), cache[slot]);
+                spills++;
+            } else {
+                cached++;
+            }
+            cache[slot] = value;
+        }
+        stackTop.set(newTopValue); // Atualiza o registrador StackTop
     }
 
     public int pop() {
@@ -37,23 +89,88 @@ public class Stack {
             throw new IllegalStateException("Stack underflow: pilha vazia.");
         }
         // "o conteúdo da posição apontada por ele deve ser enviado para PC."
-        int poppedValue = memory.read(stackTop.get());
+        int currentTopValue = stackTop.get();
+        int poppedValue;
+        if (cached > 0) {
+            poppedValue = cache[currentTopValue % cache.length];
+            cached--;
+        } else {
+            poppedValue = memory.read(currentTopValue);
+            if (cache.length > 0) {
+                fills++;
+            }
+        }
 
         // "o registrador SackTop é "recuado" (mas, na memória, é avançado) uma posição"
-        // Simula a operação stackTop.set(stackTop.get() + 1) via ULA
-        int currentTopValue = stackTop.get();
-        int newTopValue = ula.performOperation(currentTopValue, 1, "ADD"); // ULA.ADD representa adição
+        // Simula a operação stackTop.set(stackTop.get() + 1) no somador de endereços
+        int newTopValue = addressAdder.increment(currentTopValue);
         stackTop.set(newTopValue); // Atualiza o registrador StackTop
-        
+
         return poppedValue;
     }
 
+    /** Pilha cheia: o próximo push ficaria abaixo do limite. */
+    public boolean isFull() {
+        return stackTop.get() - 1 < limit;
+    }
+
     public boolean isEmpty() {
-        // Pilha vazia quando StackTop e StackBottom apontam para o mesmo endereço
-        return stackTop.get() == stackBottom.get();
+        // Pilha vazia quando StackTop alcança StackBottom
+        return stackTop.get() >= stackBottom.get();
+    }
+
+    /** Se o endereço é de uma palavra que está apenas no cache de topo. */
+    public boolean holds(int address) {
+        int offset = address - stackTop.get();
+        return offset >= 0 && offset < cached;
+    }
+
+    /** Se a faixa [address, address + length) tem alguma palavra que está apenas no cache. */
+    public boolean overlaps(int address, int length) {
+        int top = stackTop.get();
+        return cached > 0 && length > 0 && address < top + cached && top < address + length;
+    }
+
+    /**
+     * Escreve na Memory as palavras que estão apenas no cache de topo.
+     */
+    public void flush() {
+        int top = stackTop.get();
+        for (int i = 0; i < cached; i++) {
+            int address = addressAdder.add(top, i);
+            memory.write(address, cache[address % cache.length]);
+        }
+        cached = 0;
     }
 
     public void reset() {
         stackTop.set(stackBottom.get());
+        cached = 0;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @throws IllegalArgumentException Se o limite estiver fora de [0, StkBOT].
+     */
+    public void setLimit(int limit) {
+        if (limit < 0 || limit > stackBottom.get()) {
+            throw new IllegalArgumentException("Limite da pilha fora de [0, " + stackBottom.get() + "]: " + limit);
+        }
+        this.limit = limit;
+    }
+
+    public int getCacheWords() {
+        return cache.length;
+    }
+
+    public long getSpills() {
+        return spills;
+    }
+
+    public long getFills() {
+        return fills;
     }
-}
\ No newline at end of file
+}